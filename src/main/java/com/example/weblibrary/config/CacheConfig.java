@@ -1,37 +1,318 @@
 package com.example.weblibrary.config;
 
+import com.example.weblibrary.mapper.BookMapper;
+import com.example.weblibrary.model.dto.AuthorDtoResponse;
+import com.example.weblibrary.model.dto.BookAuthorRow;
 import com.example.weblibrary.model.dto.BookDtoResponse;
+import com.example.weblibrary.model.dto.CursorPage;
+import com.example.weblibrary.model.dto.ReviewDtoResponse;
+import com.example.weblibrary.model.dto.UserDtoResponse;
+import com.example.weblibrary.repository.BookRepository;
+import com.example.weblibrary.service.cache.InProcessInvalidationBus;
+import com.example.weblibrary.service.cache.InvalidationBus;
+import com.example.weblibrary.service.cache.MicrometerStatsCounter;
+import com.example.weblibrary.service.cache.OffHeapStore;
+import com.example.weblibrary.service.cache.PostgresInvalidationBus;
+import com.example.weblibrary.service.cache.SerializedResponse;
+import com.example.weblibrary.service.cache.SerializedResponseCache;
 import com.example.weblibrary.service.cache.SimpleCache;
+import com.example.weblibrary.service.cache.SimpleCacheCacheManager;
+import com.example.weblibrary.service.cache.SimpleCacheRegistry;
+import com.example.weblibrary.service.impl.BookServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
 import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Configuration class for setting up application caches.
  * Defines beans for various cache implementations used in the application.
+ * Every cache is named, records its statistics as Micrometer meters and is
+ * registered in the {@link SimpleCacheRegistry}. Sizes and expiration times
+ * come from {@code cache.specs} (see {@link SimpleCacheProperties}).
+ *
+ * <p>The caches are also available to {@code @Cacheable}, {@code @CachePut}
+ * and {@code @CacheEvict} through the {@link SimpleCacheCacheManager}.
  */
 @Configuration
+@EnableCaching
+@EnableConfigurationProperties(SimpleCacheProperties.class)
 public class CacheConfig {
+  private static final Duration NEGATIVE_TTL = Duration.ofSeconds(30);
+  private static final int NEGATIVE_MAXIMUM_SIZE = 10_000;
+
+  private final MeterRegistry meterRegistry;
+  private final SimpleCacheProperties cacheProperties;
+
+  /**
+   * Creates the configuration.
+   *
+   * @param meterRegistry registry receiving the cache meters
+   * @param cacheProperties size and expiration settings of the caches
+   */
+  public CacheConfig(MeterRegistry meterRegistry, SimpleCacheProperties cacheProperties) {
+    this.meterRegistry = meterRegistry;
+    this.cacheProperties = cacheProperties;
+  }
+
+  /**
+   * Creates the registry holding every cache bean.
+   *
+   * @param caches all cache beans of the application
+   * @return the populated registry
+   */
+  @Bean
+  public SimpleCacheRegistry simpleCacheRegistry(List<SimpleCache<?, ?>> caches) {
+    SimpleCacheRegistry registry = new SimpleCacheRegistry();
+    caches.forEach(registry::register);
+    return registry;
+  }
+
+  /**
+   * Creates the cache manager behind the caching annotations. Caches not
+   * defined as beans are created on first use with their
+   * {@code cache.specs} entry or the default spec. Null values are not
+   * cached: the cache beans are shared with the services, which expect
+   * their entries to be of the cache's value type.
+   *
+   * @param simpleCacheRegistry registry of the cache beans
+   * @return the cache manager
+   */
+  @Bean
+  public CacheManager cacheManager(SimpleCacheRegistry simpleCacheRegistry) {
+    return new SimpleCacheCacheManager(simpleCacheRegistry,
+        name -> this.<Object, Object>named(name).build(), false);
+  }
+
+  /**
+   * Creates the bus propagating cache invalidations between nodes through
+   * PostgreSQL {@code LISTEN/NOTIFY}. This is the default.
+   *
+   * @param properties connection settings of the application database
+   * @param flushInterval how long invalidations are coalesced before sending
+   * @return the started bus
+   */
+  @Bean(initMethod = "start", destroyMethod = "close")
+  @ConditionalOnProperty(name = "cache.invalidation.bus", havingValue = "postgres",
+      matchIfMissing = true)
+  public PostgresInvalidationBus postgresInvalidationBus(DataSourceProperties properties,
+      @Value("${cache.invalidation.flush-interval:100ms}") Duration flushInterval) {
+    return new PostgresInvalidationBus(properties.determineUrl(),
+        properties.determineUsername(), properties.determinePassword(), flushInterval);
+  }
+
+  /**
+   * Creates an in-process invalidation bus for single-node runs.
+   *
+   * @return the bus
+   */
+  @Bean
+  @ConditionalOnProperty(name = "cache.invalidation.bus", havingValue = "in-process")
+  public InvalidationBus inProcessInvalidationBus() {
+    return new InProcessInvalidationBus();
+  }
 
   /**
    * Creates a cache for individual book responses.
    *
    * @return SimpleCache instance configured to store BookDtoResponse objects
-   *         with a maximum size of 100 entries
    */
   @Bean
   public SimpleCache<Long, BookDtoResponse> bookCache() {
-    return new SimpleCache<>(100);
+    return this.<Long, BookDtoResponse>named("bookCache")
+        .negativeCaching(NEGATIVE_TTL, NEGATIVE_MAXIMUM_SIZE)
+        .build();
   }
 
   /**
    * Creates a cache for lists of book responses.
    *
+   * <p>A single entry can hold the whole catalog, so the cache should be
+   * bounded by the estimated retained size of its lists rather than their
+   * count.
+   *
+   * <p>Every list (the full catalog, a genre or a title search) is reloaded
+   * in the background five minutes after it was cached, so with a longer
+   * expiration readers do not wait for the reload.
+   *
+   * <p>Lists evicted from the heap are kept serialized off-heap.
+   *
+   * @param bookRepository repository used to reload the lists
+   * @param bookMapper mapper used to convert reloaded books
+   * @param transactionManager transaction manager for the background reload
+   * @param objectMapper mapper serializing the off-heap lists
+   * @param offHeapCapacity off-heap capacity in bytes
    * @return SimpleCache instance configured to store lists of BookDtoResponse objects
-   *         with a maximum size of 100 entries
    */
   @Bean
-  public SimpleCache<String, List<BookDtoResponse>> bookListCache() {
-    return new SimpleCache<>(100);
+  public SimpleCache<String, List<BookDtoResponse>> bookListCache(
+      BookRepository bookRepository, BookMapper bookMapper,
+      PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+      @Value("${cache.off-heap.capacity:134217728}") long offHeapCapacity) {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setReadOnly(true);
+    return this.<String, List<BookDtoResponse>>named("bookListCache")
+        .offHeap(offHeapList(objectMapper, BookDtoResponse.class, offHeapCapacity))
+        .refreshAfterWrite(Duration.ofMinutes(5), key -> transaction.execute(status ->
+            bookMapper.fromRows(reloadBookList(bookRepository, key))))
+        .build();
+  }
+
+  /**
+   * Reads the rows of a cached book list again, with the same query that
+   * filled it.
+   */
+  private static List<BookAuthorRow> reloadBookList(BookRepository bookRepository, String key) {
+    if (key.startsWith(BookServiceImpl.GENRE_KEY_PREFIX)) {
+      return bookRepository.findRowsByGenre(
+          key.substring(BookServiceImpl.GENRE_KEY_PREFIX.length()));
+    }
+    if (key.startsWith(BookServiceImpl.TITLE_KEY_PREFIX)) {
+      return bookRepository.findRowsByTitleContaining(
+          key.substring(BookServiceImpl.TITLE_KEY_PREFIX.length()));
+    }
+    if (BookServiceImpl.ALL_BOOKS_CACHE_KEY.equals(key)) {
+      return bookRepository.findAllRows();
+    }
+    throw new IllegalArgumentException("Unknown book list key: " + key);
+  }
+
+  /**
+   * Creates a cache for pages of the keyset-paginated book listing.
+   *
+   * @return cache of book pages
+   */
+  @Bean
+  public SimpleCache<String, CursorPage<BookDtoResponse>> bookPageCache() {
+    return this.<String, CursorPage<BookDtoResponse>>named("bookPageCache").build();
+  }
+
+  /**
+   * Creates a cache for individual author responses.
+   *
+   * @return cache of authors
+   */
+  @Bean
+  public SimpleCache<Long, AuthorDtoResponse> authorCache() {
+    return this.<Long, AuthorDtoResponse>named("authorCache")
+        .negativeCaching(NEGATIVE_TTL, NEGATIVE_MAXIMUM_SIZE)
+        .build();
+  }
+
+  /**
+   * Creates a cache for lists of author responses.
+   *
+   * @return cache of author lists
+   */
+  @Bean
+  public SimpleCache<String, List<AuthorDtoResponse>> authorListCache() {
+    return this.<String, List<AuthorDtoResponse>>named("authorListCache")
+        .build();
+  }
+
+  /**
+   * Creates a cache for individual review responses.
+   *
+   * @return cache of reviews
+   */
+  @Bean
+  public SimpleCache<Long, ReviewDtoResponse> reviewCache() {
+    return this.<Long, ReviewDtoResponse>named("reviewCache")
+        .negativeCaching(NEGATIVE_TTL, NEGATIVE_MAXIMUM_SIZE)
+        .build();
+  }
+
+  /**
+   * Creates a cache for lists of review responses, keeping lists evicted from
+   * the heap serialized off-heap.
+   *
+   * @param objectMapper mapper serializing the off-heap lists
+   * @param offHeapCapacity off-heap capacity in bytes
+   * @return cache of review lists
+   */
+  @Bean
+  public SimpleCache<String, List<ReviewDtoResponse>> reviewListCache(ObjectMapper objectMapper,
+      @Value("${cache.off-heap.capacity:134217728}") long offHeapCapacity) {
+    return this.<String, List<ReviewDtoResponse>>named("reviewListCache")
+        .offHeap(offHeapList(objectMapper, ReviewDtoResponse.class, offHeapCapacity))
+        .build();
+  }
+
+  /**
+   * Creates a cache for individual user responses.
+   *
+   * @return cache of users
+   */
+  @Bean
+  public SimpleCache<Long, UserDtoResponse> userCache() {
+    return this.<Long, UserDtoResponse>named("userCache")
+        .negativeCaching(NEGATIVE_TTL, NEGATIVE_MAXIMUM_SIZE)
+        .build();
+  }
+
+  /**
+   * Creates a cache for lists of user responses. Unlike the other list
+   * caches it has no off-heap tier, so user data is never copied outside the
+   * heap.
+   *
+   * @return cache of user lists
+   */
+  @Bean
+  public SimpleCache<String, List<UserDtoResponse>> userListCache() {
+    return this.<String, List<UserDtoResponse>>named("userListCache").build();
+  }
+
+  /**
+   * Creates a cache for encoded response bodies of the hot read endpoints.
+   * A maximum weight bounds the total size of the bodies in bytes.
+   *
+   * @return cache of response bodies
+   */
+  @Bean
+  public SimpleCache<String, SerializedResponse> responseBodyCache() {
+    return this.<String, SerializedResponse>named("responseBodyCache")
+        .weigher(SerializedResponseCache.weigher())
+        .build();
+  }
+
+  /**
+   * Creates the encoder of response bodies, which reuses the cached bodies
+   * unless caching is disabled.
+   *
+   * @param responseBodyCache cache of the encoded bodies
+   * @param objectMapper mapper used by the web layer
+   * @param enabled whether encoded bodies are cached
+   * @param gzipMinSize minimal body size in bytes that is also compressed
+   * @return the response encoder
+   */
+  @Bean
+  public SerializedResponseCache serializedResponseCache(
+      SimpleCache<String, SerializedResponse> responseBodyCache, ObjectMapper objectMapper,
+      @Value("${cache.response.enabled:true}") boolean enabled,
+      @Value("${cache.response.gzip-min-size:2048}") int gzipMinSize) {
+    return new SerializedResponseCache(enabled ? responseBodyCache : null, objectMapper,
+        gzipMinSize);
+  }
+
+  private static <T> OffHeapStore<String, List<T>> offHeapList(ObjectMapper objectMapper,
+      Class<T> elementType, long capacity) {
+    return new OffHeapStore<>(capacity, OffHeapStore.Codec.json(objectMapper,
+        objectMapper.getTypeFactory().constructCollectionType(List.class, elementType)));
+  }
+
+  private <K, V> SimpleCache.Builder<K, V> named(String name) {
+    return cacheProperties.specFor(name).applyTo(SimpleCache.<K, V>builder()
+        .name(name)
+        .recordStats(new MicrometerStatsCounter(meterRegistry, name)));
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.example.weblibrary.config;
+
+import com.example.weblibrary.service.cache.CacheSnapshotStore;
+import com.example.weblibrary.service.cache.SimpleCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ResolvableType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Warm-start support: snapshots the configured caches to a local file on
+ * shutdown and restores them in the background once the application is
+ * ready. Enabled with {@code cache.snapshot.enabled=true}.
+ *
+ * <p>The database change marker is the total number of inserted, updated
+ * and deleted rows of the cached tables as reported by
+ * {@code pg_stat_user_tables}. Any write to these tables while the node was
+ * down changes it and discards the snapshot; so does a statistics reset,
+ * which only costs a cold start.
+ */
+@Configuration
+@ConditionalOnProperty(name = "cache.snapshot.enabled", havingValue = "true")
+public class CacheSnapshotConfig {
+  private static final String CHANGE_MARKER_QUERY =
+      "SELECT coalesce(sum(n_tup_ins + n_tup_upd + n_tup_del), 0) FROM pg_stat_user_tables "
+      + "WHERE relname IN ('book', 'author', 'book_authors', 'reviews', 'users')";
+
+  private final CacheSnapshotStore snapshotStore;
+
+  /**
+   * Creates the snapshot store and registers the configured caches with the
+   * key and value types declared by their bean definitions.
+   *
+   * @param beanFactory factory holding the cache beans
+   * @param objectMapper mapper used to encode the entries
+   * @param jdbcTemplate template used to read the change marker
+   * @param file the snapshot file
+   * @param includeValues whether values are written to the snapshot
+   * @param version application-defined snapshot version
+   * @param cacheNames names of the cache beans to snapshot
+   */
+  public CacheSnapshotConfig(ConfigurableListableBeanFactory beanFactory,
+      ObjectMapper objectMapper, JdbcTemplate jdbcTemplate,
+      @Value("${cache.snapshot.file:cache-snapshot.json.gz}") Path file,
+      @Value("${cache.snapshot.include-values:true}") boolean includeValues,
+      @Value("${cache.snapshot.version:1}") String version,
+      @Value("${cache.snapshot.caches}") List<String> cacheNames) {
+    this.snapshotStore = new CacheSnapshotStore(file, objectMapper, includeValues, version,
+        () -> String.valueOf(jdbcTemplate.queryForObject(CHANGE_MARKER_QUERY, Long.class)));
+    for (String name : cacheNames) {
+      ResolvableType type = beanFactory.getMergedBeanDefinition(name).getResolvableType();
+      snapshotStore.register(beanFactory.getBean(name, SimpleCache.class),
+          objectMapper.constructType(type.getGeneric(0).getType()),
+          objectMapper.constructType(type.getGeneric(1).getType()));
+    }
+  }
+
+  /**
+   * Exposes the snapshot store.
+   *
+   * @return the snapshot store
+   */
+  @Bean
+  public CacheSnapshotStore cacheSnapshotStore() {
+    return snapshotStore;
+  }
+
+  /**
+   * Restores the caches in the background once the application is ready.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void restoreSnapshot() {
+    CompletableFuture.runAsync(snapshotStore::restore);
+  }
+
+  /**
+   * Saves the caches while the application shuts down.
+   */
+  @EventListener(ContextClosedEvent.class)
+  public void saveSnapshot() {
+    snapshotStore.save();
+  }
+}
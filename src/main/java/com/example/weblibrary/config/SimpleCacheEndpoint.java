@@ -0,0 +1,72 @@
+package com.example.weblibrary.config;
+
+import com.example.weblibrary.service.cache.CacheStats;
+import com.example.weblibrary.service.cache.SimpleCache;
+import com.example.weblibrary.service.cache.SimpleCacheRegistry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint ({@code /actuator/simplecaches}) reporting the size,
+ * weight and statistics of every registered {@link SimpleCache}.
+ */
+@Component
+@Endpoint(id = "simplecaches")
+public class SimpleCacheEndpoint {
+  private final SimpleCacheRegistry cacheRegistry;
+
+  /**
+   * Creates the endpoint.
+   *
+   * @param cacheRegistry registry of the caches to report
+   */
+  public SimpleCacheEndpoint(SimpleCacheRegistry cacheRegistry) {
+    this.cacheRegistry = cacheRegistry;
+  }
+
+  /**
+   * Describes all registered caches.
+   *
+   * @return cache descriptors keyed by cache name
+   */
+  @ReadOperation
+  public Map<String, CacheDescriptor> caches() {
+    Map<String, CacheDescriptor> descriptors = new LinkedHashMap<>();
+    for (SimpleCache<?, ?> cache : cacheRegistry.getAll()) {
+      descriptors.put(cache.getName(), describe(cache));
+    }
+    return descriptors;
+  }
+
+  /**
+   * Describes a single cache.
+   *
+   * @param name the name of the cache
+   * @return the cache descriptor, or null (404) if no such cache exists
+   */
+  @ReadOperation
+  public CacheDescriptor cache(@Selector String name) {
+    SimpleCache<?, ?> cache = cacheRegistry.get(name);
+    return cache == null ? null : describe(cache);
+  }
+
+  private static CacheDescriptor describe(SimpleCache<?, ?> cache) {
+    CacheStats stats = cache.stats();
+    return new CacheDescriptor(cache.size(), cache.weightedSize(), stats.hitRate(), stats);
+  }
+
+  /**
+   * State of a single cache.
+   *
+   * @param size number of entries
+   * @param weightedSize total weight of the entries
+   * @param hitRate ratio of lookups that were hits
+   * @param stats the raw statistics
+   */
+  public record CacheDescriptor(int size, long weightedSize, double hitRate, CacheStats stats) {
+  }
+}
@@ -0,0 +1,69 @@
+package com.example.weblibrary.config;
+
+import com.example.weblibrary.service.cache.OffHeapStore;
+import com.example.weblibrary.service.cache.SimpleCache;
+import com.example.weblibrary.service.cache.SimpleCacheRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the current size and weight of every registered
+ * {@link SimpleCache}, and of its off-heap tier if it has one, as Micrometer
+ * gauges. Caches registered later, e.g. created on demand for
+ * {@code @Cacheable}, are picked up as well. Event counters (hits, misses,
+ * loads, evictions) are recorded by the caches' own
+ * {@link com.example.weblibrary.service.cache.MicrometerStatsCounter}.
+ */
+@Component
+public class SimpleCacheMetrics implements MeterBinder {
+  private final SimpleCacheRegistry cacheRegistry;
+
+  /**
+   * Creates the binder.
+   *
+   * @param cacheRegistry registry of the caches to monitor
+   */
+  public SimpleCacheMetrics(SimpleCacheRegistry cacheRegistry) {
+    this.cacheRegistry = cacheRegistry;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    cacheRegistry.onRegister(cache -> bind(cache, registry));
+  }
+
+  private static void bind(SimpleCache<?, ?> cache, MeterRegistry registry) {
+    Gauge.builder("cache.size", cache, SimpleCache::size)
+        .tag("cache", cache.getName())
+        .description("Number of entries in the cache")
+        .register(registry);
+    Gauge.builder("cache.weight", cache, SimpleCache::weightedSize)
+        .tag("cache", cache.getName())
+        .description("Total weight of the entries in the cache")
+        .register(registry);
+    OffHeapStore<?, ?> offHeap = cache.offHeap();
+    if (offHeap != null) {
+      Gauge.builder("cache.offheap.size", offHeap, OffHeapStore::size)
+          .tag("cache", cache.getName())
+          .description("Number of entries in the off-heap tier")
+          .register(registry);
+      Gauge.builder("cache.offheap.used", offHeap, OffHeapStore::usedBytes)
+          .tag("cache", cache.getName())
+          .description("Encoded size of the entries in the off-heap tier")
+          .baseUnit("bytes")
+          .register(registry);
+      Gauge.builder("cache.offheap.allocated", offHeap, OffHeapStore::allocatedBytes)
+          .tag("cache", cache.getName())
+          .description("Direct memory allocated by the off-heap tier")
+          .baseUnit("bytes")
+          .register(registry);
+      FunctionCounter.builder("cache.offheap.evictions", offHeap, OffHeapStore::evictionCount)
+          .tag("cache", cache.getName())
+          .description("Entries evicted from the off-heap tier")
+          .register(registry);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.example.weblibrary.config;
+
+import com.example.weblibrary.service.cache.SimpleCache;
+import com.example.weblibrary.service.cache.SizeEstimator;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Size and expiration settings of the caches, bound from {@code cache.specs}
+ * in {@code application.yml} so they can be tuned without a rebuild. Caches
+ * without an entry of their own use {@code cache.default-spec}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cache")
+public class SimpleCacheProperties {
+  private Map<String, Spec> specs = new LinkedHashMap<>();
+  private Spec defaultSpec = new Spec();
+
+  /**
+   * Returns the settings of the named cache.
+   *
+   * @param name the name of the cache
+   * @return its own settings, or the default ones
+   */
+  public Spec specFor(String name) {
+    return specs.getOrDefault(name, defaultSpec);
+  }
+
+  /**
+   * Settings of a single cache. Caches hold at most 1000 entries unless
+   * configured otherwise; a maximum weight replaces the entry count bound.
+   */
+  @Getter
+  @Setter
+  public static class Spec {
+    private Integer maximumSize = 1000;
+    private DataSize maximumWeight;
+    private Duration expireAfterWrite;
+    private Duration expireAfterAccess;
+
+    /**
+     * Applies the settings to a cache builder. A maximum weight is measured
+     * with {@link SizeEstimator} unless the caller sets another weigher;
+     * unset expirations leave the builder untouched.
+     *
+     * @param builder the builder to configure
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @return the builder
+     */
+    public <K, V> SimpleCache.Builder<K, V> applyTo(SimpleCache.Builder<K, V> builder) {
+      if (maximumWeight != null) {
+        builder.maximumWeight(maximumWeight.toBytes()).weigher(SizeEstimator.weigher());
+      } else if (maximumSize != null) {
+        builder.maximumSize(maximumSize);
+      }
+      if (expireAfterWrite != null) {
+        builder.expireAfterWrite(expireAfterWrite);
+      }
+      if (expireAfterAccess != null) {
+        builder.expireAfterAccess(expireAfterAccess);
+      }
+      return builder;
+    }
+  }
+}
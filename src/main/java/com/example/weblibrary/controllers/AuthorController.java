@@ -2,13 +2,18 @@ package com.example.weblibrary.controllers;
 
 import com.example.weblibrary.model.dto.AuthorDtoRequest;
 import com.example.weblibrary.model.dto.AuthorDtoResponse;
+import com.example.weblibrary.service.cache.SerializedResponseCache;
 import com.example.weblibrary.service.impl.AuthorServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
-import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -23,11 +28,21 @@ import org.springframework.web.bind.annotation.*;
 public class AuthorController {
 
   private final AuthorServiceImpl authorService;
+  private final SerializedResponseCache responseCache;
 
   @GetMapping
-  @Operation(summary = "Получить всех авторов")
-  public ResponseEntity<List<AuthorDtoResponse>> getAllAuthors() {
-    return ResponseEntity.ok(authorService.getAll());
+  @Operation(summary = "Получить всех авторов",
+      description = "С параметром cursor или limit возвращает страницу {items, nextCursor} "
+          + "в порядке id; следующая страница запрашивается с cursor=nextCursor.")
+  @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/json",
+      array = @ArraySchema(schema = @Schema(implementation = AuthorDtoResponse.class))))
+  public ResponseEntity<byte[]> getAllAuthors(@RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit,
+                                              HttpServletRequest request) {
+    if (cursor == null && limit == null) {
+      return JsonResponses.ok(responseCache.get("authors", authorService.getAll()), request);
+    }
+    return JsonResponses.ok(responseCache.encode(authorService.getPage(cursor, limit)), request);
   }
 
   @GetMapping("/{id}")
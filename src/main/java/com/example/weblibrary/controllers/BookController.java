@@ -2,17 +2,34 @@ package com.example.weblibrary.controllers;
 
 import com.example.weblibrary.model.dto.BookDtoRequest;
 import com.example.weblibrary.model.dto.BookDtoResponse;
+import com.example.weblibrary.model.dto.CursorPage;
+import com.example.weblibrary.model.dto.FacetFilter;
+import com.example.weblibrary.model.dto.FacetPage;
+import com.example.weblibrary.model.dto.SearchPage;
+import com.example.weblibrary.service.cache.SerializedResponseCache;
 import com.example.weblibrary.service.impl.BookServiceImpl;
+import com.example.weblibrary.service.impl.FacetServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.util.zip.GZIPOutputStream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -25,17 +42,109 @@ import java.util.List;
 public class BookController {
 
   private final BookServiceImpl bookService;
+  private final FacetServiceImpl facetService;
+  private final SerializedResponseCache responseCache;
 
   @GetMapping
-  @Operation(summary = "Получить список книг")
-  public ResponseEntity<List<BookDtoResponse>> getBooks() {
-    return ResponseEntity.ok(bookService.getAll());
+  @Operation(summary = "Получить список книг",
+      description = "Без параметров возвращает весь каталог. С любым из параметров sort, "
+          + "direction, cursor, limit возвращает страницу {items, nextCursor}; следующая "
+          + "страница запрашивается с cursor=nextCursor. С параметром ids возвращает "
+          + "книги с указанными id в порядке запроса.")
+  @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/json",
+      array = @ArraySchema(schema = @Schema(implementation = BookDtoResponse.class))))
+  public ResponseEntity<byte[]> getBooks(
+      @Parameter(description = "id, title, rating или publishDate")
+      @RequestParam(required = false) String sort,
+      @Parameter(description = "asc или desc")
+      @RequestParam(required = false) String direction,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit,
+      @Parameter(description = "id книг через запятую")
+      @RequestParam(required = false) List<Long> ids,
+      HttpServletRequest request) {
+    if (ids != null) {
+      return JsonResponses.ok(responseCache.encode(bookService.getByIds(ids)), request);
+    }
+    if (sort == null && direction == null && cursor == null && limit == null) {
+      return JsonResponses.ok(responseCache.get("books", bookService.getAll()), request);
+    }
+    CursorPage<BookDtoResponse> page = bookService.getPage(sort, direction, cursor, limit);
+    return JsonResponses.ok(responseCache.get("books?" + request.getQueryString(), page),
+        request);
+  }
+
+  @GetMapping("/search")
+  @Operation(summary = "Полнотекстовый поиск книг",
+      description = "Ищет по названию, авторам, издательству и описанию с учётом морфологии; "
+          + "результаты упорядочены по релевантности.")
+  public ResponseEntity<SearchPage<BookDtoResponse>> searchBooks(
+      @Parameter(description = "Слова, \"фразы\", or, -исключение")
+      @RequestParam String q,
+      @Parameter(description = "Номер страницы, начиная с 0")
+      @RequestParam(required = false) Integer page,
+      @RequestParam(required = false) Integer limit) {
+    return ResponseEntity.ok(bookService.search(q, page, limit));
+  }
+
+  @GetMapping("/facets")
+  @Operation(summary = "Фасетный поиск книг",
+      description = "Фильтрует книги по любому сочетанию жанров, языков, издательств, "
+          + "диапазонов года издания и рейтинга и возвращает страницу книг в порядке id "
+          + "вместе с количеством книг по каждому значению фасетов genre, language, "
+          + "publisher, year и rating. Несколько значений одного параметра объединяются "
+          + "через «или».")
+  public ResponseEntity<FacetPage<BookDtoResponse>> browseBooks(
+      @RequestParam(required = false) List<String> genre,
+      @RequestParam(required = false) List<String> language,
+      @RequestParam(required = false) List<String> publisher,
+      @Parameter(description = "Первый год издания, включительно")
+      @RequestParam(required = false) Integer yearFrom,
+      @Parameter(description = "Последний год издания, включительно")
+      @RequestParam(required = false) Integer yearTo,
+      @Parameter(description = "Минимальный рейтинг, включительно")
+      @RequestParam(required = false) Double ratingFrom,
+      @Parameter(description = "Максимальный рейтинг, включительно")
+      @RequestParam(required = false) Double ratingTo,
+      @Parameter(description = "Номер страницы, начиная с 0")
+      @RequestParam(required = false) Integer page,
+      @RequestParam(required = false) Integer limit) {
+    FacetFilter filter = new FacetFilter(genre, language, publisher, yearFrom, yearTo,
+        ratingFrom, ratingTo);
+    return ResponseEntity.ok(facetService.search(filter, page, limit));
+  }
+
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @Operation(summary = "Выгрузить весь каталог",
+      description = "Потоковая выгрузка в формате NDJSON: одна книга в строке, в порядке id. "
+          + "Сжимается gzip, если клиент передал Accept-Encoding: gzip.")
+  public ResponseEntity<StreamingResponseBody> exportBooks(HttpServletRequest request) {
+    boolean gzip = JsonResponses.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_NDJSON);
+    headers.setContentDisposition(ContentDisposition.attachment().filename("books.ndjson").build());
+    headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    StreamingResponseBody body = out -> {
+      if (gzip) {
+        GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+        bookService.exportCatalog(compressed);
+        compressed.finish();
+      } else {
+        bookService.exportCatalog(out);
+      }
+    };
+    return new ResponseEntity<>(body, headers, HttpStatus.OK);
   }
 
   @GetMapping("/{id}")
   @Operation(summary = "Получить книгу по ID")
-  public ResponseEntity<BookDtoResponse> getBookById(@PathVariable Long id) {
-    return ResponseEntity.ok(bookService.getById(id));
+  @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/json",
+      schema = @Schema(implementation = BookDtoResponse.class)))
+  public ResponseEntity<byte[]> getBookById(@PathVariable Long id, HttpServletRequest request) {
+    return JsonResponses.ok(responseCache.get("books/" + id, bookService.getById(id)), request);
   }
 
   @GetMapping("/genre")
@@ -73,6 +182,15 @@ public class BookController {
     return ResponseEntity.noContent().build();
   }
 
+  @PostMapping("/batch-get")
+  @Operation(summary = "Получить несколько книг по ID",
+      description = "Возвращает книги с указанными id в порядке запроса; id без книги "
+          + "пропускаются. Для длинных списков id, не помещающихся в URL.")
+  public ResponseEntity<byte[]> getBooksByIds(@RequestBody List<Long> ids,
+      HttpServletRequest request) {
+    return JsonResponses.ok(responseCache.encode(bookService.getByIds(ids)), request);
+  }
+
   @PostMapping("/bulk")
   @PreAuthorize("hasRole('ADMIN')")
   @Operation(summary = "Создать несколько книг (только ADMIN)")
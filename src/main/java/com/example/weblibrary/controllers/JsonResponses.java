@@ -0,0 +1,68 @@
+package com.example.weblibrary.controllers;
+
+import com.example.weblibrary.service.cache.SerializedResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Builds responses from pre-encoded JSON bodies. The bytes are written to
+ * the response as they are, honouring {@code If-None-Match} and sending the
+ * compressed body to clients that accept gzip. Each encoding has its own
+ * entity tag, so a cache never answers a conditional request for one
+ * encoding with the body of the other.
+ */
+final class JsonResponses {
+
+  private JsonResponses() {
+  }
+
+  static ResponseEntity<byte[]> ok(SerializedResponse body, HttpServletRequest request) {
+    boolean gzip = body.gzip() != null
+        && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    String etag = gzip ? body.gzipEtag() : body.etag();
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag(etag);
+    headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+      return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+    }
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    if (gzip) {
+      headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+      return new ResponseEntity<>(body.gzip(), headers, HttpStatus.OK);
+    }
+    return new ResponseEntity<>(body.json(), headers, HttpStatus.OK);
+  }
+
+  private static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      String candidate = tag.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      if (parts[0].trim().equalsIgnoreCase("gzip")) {
+        return parts.length == 1 || !parts[1].replace(" ", "").equals("q=0");
+      }
+    }
+    return false;
+  }
+}
@@ -2,12 +2,17 @@ package com.example.weblibrary.controllers;
 
 import com.example.weblibrary.model.dto.ReviewDtoRequest;
 import com.example.weblibrary.model.dto.ReviewDtoResponse;
+import com.example.weblibrary.service.cache.SerializedResponseCache;
 import com.example.weblibrary.service.impl.ReviewServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
-import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -22,11 +27,21 @@ import org.springframework.web.bind.annotation.*;
 public class ReviewController {
 
   private final ReviewServiceImpl reviewService;
+  private final SerializedResponseCache responseCache;
 
   @GetMapping
-  @Operation(summary = "Получить все отзывы")
-  public ResponseEntity<List<ReviewDtoResponse>> getAllReviews() {
-    return ResponseEntity.ok(reviewService.getAll());
+  @Operation(summary = "Получить все отзывы",
+      description = "С параметром cursor или limit возвращает страницу {items, nextCursor} "
+          + "в порядке id; следующая страница запрашивается с cursor=nextCursor.")
+  @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/json",
+      array = @ArraySchema(schema = @Schema(implementation = ReviewDtoResponse.class))))
+  public ResponseEntity<byte[]> getAllReviews(@RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit,
+                                              HttpServletRequest request) {
+    if (cursor == null && limit == null) {
+      return JsonResponses.ok(responseCache.get("reviews", reviewService.getAll()), request);
+    }
+    return JsonResponses.ok(responseCache.encode(reviewService.getPage(cursor, limit)), request);
   }
 
   @GetMapping("/{id}")
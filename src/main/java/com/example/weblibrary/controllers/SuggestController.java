@@ -0,0 +1,54 @@
+package com.example.weblibrary.controllers;
+
+import com.example.weblibrary.model.dto.FuzzyMatch;
+import com.example.weblibrary.model.dto.SearchPage;
+import com.example.weblibrary.model.dto.Suggestion;
+import com.example.weblibrary.service.impl.SuggestServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/suggest")
+@RequiredArgsConstructor
+@Tag(name = "Suggest", description = "Подсказки для строки поиска")
+@SecurityRequirement(name = "Bearer Authentication")
+public class SuggestController {
+
+  private final SuggestServiceImpl suggestService;
+
+  @GetMapping
+  @Operation(summary = "Подсказки по началу слова в названии книги или имени автора",
+      description = "Возвращает книги и авторов с наибольшим рейтингом, у которых слово "
+          + "названия или имени начинается с введённого текста.")
+  public ResponseEntity<List<Suggestion>> suggest(
+      @Parameter(description = "Введённый текст")
+      @RequestParam String q,
+      @Parameter(description = "Количество подсказок, по умолчанию 10")
+      @RequestParam(required = false) Integer limit) {
+    return ResponseEntity.ok(suggestService.suggest(q, limit));
+  }
+
+  @GetMapping("/fuzzy")
+  @Operation(summary = "Поиск книг и авторов с опечатками",
+      description = "Находит названия и имена, слова которых отличаются от введённых не более "
+          + "чем на одну опечатку (на две в словах длиннее пяти букв); последнее слово может "
+          + "быть недописанным. Результаты упорядочены по релевантности (score от 0 до 1).")
+  public ResponseEntity<SearchPage<FuzzyMatch>> fuzzy(
+      @Parameter(description = "Введённый текст")
+      @RequestParam String q,
+      @Parameter(description = "Номер страницы, начиная с 0")
+      @RequestParam(required = false) Integer page,
+      @Parameter(description = "Размер страницы, по умолчанию 20, не более 100")
+      @RequestParam(required = false) Integer limit) {
+    return ResponseEntity.ok(suggestService.fuzzy(q, page, limit));
+  }
+}
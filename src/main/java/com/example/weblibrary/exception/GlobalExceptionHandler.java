@@ -144,6 +144,43 @@ public class GlobalExceptionHandler {
             LocalDateTime.now(ZoneId.systemDefault()), errorDetails));
   }
 
+  /**
+   * Handles invalid page requests.
+   *
+   * @param ex the invalid page request exception
+   * @return ResponseEntity containing error details
+   */
+  @ExceptionHandler(InvalidPageRequestException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidPageRequest(
+      InvalidPageRequestException ex) {
+    log.warn("Invalid page request: {}", ex.getMessage());
+
+    Map<String, String> errorDetails = new HashMap<>();
+    errorDetails.put("page", ex.getMessage());
+
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+        new ErrorResponse("Ошибка валидации",
+            LocalDateTime.now(ZoneId.systemDefault()), errorDetails));
+  }
+
+  /**
+   * Handles batch requests for too many ids.
+   *
+   * @param ex the too many ids exception
+   * @return ResponseEntity containing error details
+   */
+  @ExceptionHandler(TooManyIdsException.class)
+  public ResponseEntity<ErrorResponse> handleTooManyIds(TooManyIdsException ex) {
+    log.warn("Too many ids requested: {}", ex.getMessage());
+
+    Map<String, String> errorDetails = new HashMap<>();
+    errorDetails.put("ids", ex.getMessage());
+
+    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+        new ErrorResponse("Ошибка валидации",
+            LocalDateTime.now(ZoneId.systemDefault()), errorDetails));
+  }
+
   /**
    * Handles logs not found exceptions.
    *
@@ -0,0 +1,17 @@
+package com.example.weblibrary.exception;
+
+/**
+ * Exception thrown when a page request has an invalid cursor, sort key or
+ * page size.
+ */
+public class InvalidPageRequestException extends RuntimeException {
+
+  /**
+   * Constructs a new InvalidPageRequestException with the specified detail message.
+   *
+   * @param message the detail message explaining what is wrong with the request
+   */
+  public InvalidPageRequestException(String message) {
+    super(message);
+  }
+}
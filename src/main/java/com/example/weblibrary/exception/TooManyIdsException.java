@@ -0,0 +1,17 @@
+package com.example.weblibrary.exception;
+
+/**
+ * Exception thrown when a batch request asks for more entities than allowed
+ * at once.
+ */
+public class TooManyIdsException extends RuntimeException {
+
+  /**
+   * Constructs a new TooManyIdsException with the specified detail message.
+   *
+   * @param message the detail message stating the allowed number of ids
+   */
+  public TooManyIdsException(String message) {
+    super(message);
+  }
+}
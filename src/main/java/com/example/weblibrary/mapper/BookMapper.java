@@ -1,8 +1,11 @@
 package com.example.weblibrary.mapper;
 
 import com.example.weblibrary.model.Book;
+import com.example.weblibrary.model.dto.AuthorDtoResponse;
+import com.example.weblibrary.model.dto.BookAuthorRow;
 import com.example.weblibrary.model.dto.BookDtoRequest;
 import com.example.weblibrary.model.dto.BookDtoResponse;
+import java.util.ArrayList;
 import java.util.List;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -29,4 +32,34 @@ public interface BookMapper {
    * Converts a list of Book entities to a list of BookDtoResponse objects.
    */
   List<BookDtoResponse> toBookDtoResponse(List<Book> books);
+
+  /**
+   * Groups projection rows into BookDtoResponse objects in a single pass.
+   * Rows of the same book must be adjacent, as the projection queries order
+   * them by book ID.
+   */
+  default List<BookDtoResponse> fromRows(List<BookAuthorRow> rows) {
+    List<BookDtoResponse> books = new ArrayList<>();
+    int start = 0;
+    while (start < rows.size()) {
+      BookAuthorRow first = rows.get(start);
+      List<AuthorDtoResponse> authors = new ArrayList<>();
+      int end = start;
+      while (end < rows.size() && rows.get(end).id().equals(first.id())) {
+        BookAuthorRow row = rows.get(end++);
+        if (row.authorId() != null) {
+          authors.add(new AuthorDtoResponse(row.authorId(), row.authorName(),
+              row.authorSurname(), row.authorPatronymic(), row.authorBirthDate(),
+              row.authorDeathDate(), row.authorBiography(), row.authorGenreSpecialization(),
+              row.authorRating()));
+        }
+      }
+      books.add(new BookDtoResponse(first.id(), first.title(), first.publisher(),
+          first.isbn(), first.pages(), first.genre(), first.publishDate(), first.language(),
+          first.description(), first.imageUrl(), first.readUrl(), first.rating(), null,
+          authors));
+      start = end;
+    }
+    return books;
+  }
 }
\ No newline at end of file
@@ -7,24 +7,36 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.NonNull;
+import org.hibernate.annotations.BatchSize;
 
 /**
  * Класс, представляющий книгу в системе библиотеки.
+ * Индексы по (ключ сортировки, id) обслуживают keyset-пагинацию каталога.
  */
 @Entity
-@Table(name = "BOOK")
+@Table(name = "BOOK", indexes = {
+    @Index(name = "idx_book_title_id", columnList = "title, id"),
+    @Index(name = "idx_book_rating_id", columnList = "rating, id"),
+    @Index(name = "idx_book_publish_date_id", columnList = "publish_date, id")
+})
 public class Book {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  // Идентификаторы выдаются из последовательности блоками по 50: Hibernate не
+  // обращается к базе за каждым id и может объединять вставки в JDBC-пакеты,
+  // что невозможно с IDENTITY.
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+  @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
   private Long id;
 
   @NonNull
@@ -59,6 +71,9 @@ public class Book {
 
   private String readUrl;
 
+  // Авторы книг, загруженных без entity graph (страницы, выгрузка), подгружаются
+  // одним запросом на 100 книг, а не отдельным запросом на каждую.
+  @BatchSize(size = 100)
   @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
   @JoinTable(
       name = "book_authors",
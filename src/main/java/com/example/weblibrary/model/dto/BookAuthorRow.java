@@ -0,0 +1,38 @@
+package com.example.weblibrary.model.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Row of a book projection query: the columns of a book joined with one of
+ * its authors. A book without authors yields one row with null author
+ * columns; a book with several authors yields one row per author.
+ *
+ * <p>Rows are selected straight into this record, so no {@code Book} or
+ * {@code Author} entities are created or tracked by the persistence context.
+ * {@link com.example.weblibrary.mapper.BookMapper#fromRows(java.util.List)}
+ * groups them into responses.
+ */
+public record BookAuthorRow(
+    Long id,
+    String title,
+    String publisher,
+    String isbn,
+    Integer pages,
+    String genre,
+    LocalDate publishDate,
+    String language,
+    String description,
+    String imageUrl,
+    String readUrl,
+    Double rating,
+    Long authorId,
+    String authorName,
+    String authorSurname,
+    String authorPatronymic,
+    LocalDate authorBirthDate,
+    LocalDate authorDeathDate,
+    String authorBiography,
+    String authorGenreSpecialization,
+    Double authorRating
+) {
+}
@@ -0,0 +1,23 @@
+package com.example.weblibrary.model.dto;
+
+import java.time.LocalDate;
+
+/**
+ * The attributes of a book that faceted browsing filters and counts by.
+ *
+ * @param id the id of the book
+ * @param genre the genre
+ * @param language the language
+ * @param publisher the publisher
+ * @param publishDate the publication date, or null
+ * @param rating the rating, or null
+ */
+public record BookFacets(
+    Long id,
+    String genre,
+    String language,
+    String publisher,
+    LocalDate publishDate,
+    Double rating
+) {
+}
@@ -0,0 +1,16 @@
+package com.example.weblibrary.model.dto;
+
+import java.util.List;
+
+/**
+ * A page of a keyset-paginated listing.
+ *
+ * @param items the items of the page
+ * @param nextCursor opaque cursor of the next page, or null on the last page
+ * @param <T> the type of the items
+ */
+public record CursorPage<T>(
+    List<T> items,
+    String nextCursor
+) {
+}
@@ -0,0 +1,27 @@
+package com.example.weblibrary.model.dto;
+
+import java.util.List;
+
+/**
+ * Filters of faceted browsing. Several values of one attribute match books
+ * having any of them; different attributes must all match. Null or empty
+ * lists and null bounds do not filter.
+ *
+ * @param genres the genres
+ * @param languages the languages
+ * @param publishers the publishers
+ * @param yearFrom the first publication year, inclusive
+ * @param yearTo the last publication year, inclusive
+ * @param ratingFrom the lowest rating, inclusive
+ * @param ratingTo the highest rating, inclusive
+ */
+public record FacetFilter(
+    List<String> genres,
+    List<String> languages,
+    List<String> publishers,
+    Integer yearFrom,
+    Integer yearTo,
+    Double ratingFrom,
+    Double ratingTo
+) {
+}
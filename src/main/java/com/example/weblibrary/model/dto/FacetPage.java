@@ -0,0 +1,33 @@
+package com.example.weblibrary.model.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of books matching the facet filters, with the number of matching
+ * books per value of every facet.
+ *
+ * <p>The counts of a facet take the filters of the other facets into
+ * account but not its own, so they show how many books each value would
+ * give instead of the current selection. Facets are {@code genre},
+ * {@code language}, {@code publisher}, {@code year} and {@code rating}; a
+ * rating value {@code "4"} counts ratings from 4 (inclusive) to 5
+ * (exclusive), and {@code "5"} the ratings of exactly 5.
+ *
+ * @param items the items of the page, in id order
+ * @param page the zero-based number of the page
+ * @param size the requested page size
+ * @param hasNext whether more items follow
+ * @param total the number of matching items
+ * @param facets the counts per facet and value
+ * @param <T> the type of the items
+ */
+public record FacetPage<T>(
+    List<T> items,
+    int page,
+    int size,
+    boolean hasNext,
+    int total,
+    Map<String, Map<String, Integer>> facets
+) {
+}
@@ -0,0 +1,19 @@
+package com.example.weblibrary.model.dto;
+
+/**
+ * A book or author found by a typo-tolerant lookup.
+ *
+ * @param type {@link Suggestion#BOOK} or {@link Suggestion#AUTHOR}
+ * @param id the id of the book or author
+ * @param text the title or the full name
+ * @param rating the rating of the book or author, or null
+ * @param score relevance from 0 to 1, where 1 is an exact match of every word
+ */
+public record FuzzyMatch(
+    String type,
+    Long id,
+    String text,
+    Double rating,
+    double score
+) {
+}
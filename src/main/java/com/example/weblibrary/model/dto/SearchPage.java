@@ -0,0 +1,20 @@
+package com.example.weblibrary.model.dto;
+
+import java.util.List;
+
+/**
+ * A page of search results, ordered by relevance.
+ *
+ * @param items the items of the page
+ * @param page the zero-based number of the page
+ * @param size the requested page size
+ * @param hasNext whether more results follow
+ * @param <T> the type of the items
+ */
+public record SearchPage<T>(
+    List<T> items,
+    int page,
+    int size,
+    boolean hasNext
+) {
+}
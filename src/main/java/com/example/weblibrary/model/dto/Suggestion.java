@@ -0,0 +1,19 @@
+package com.example.weblibrary.model.dto;
+
+/**
+ * A type-ahead suggestion: a book title or an author name.
+ *
+ * @param type {@link #BOOK} or {@link #AUTHOR}
+ * @param id the id of the book or author
+ * @param text the title or the full name
+ * @param rating the rating used for ranking, or null
+ */
+public record Suggestion(
+    String type,
+    Long id,
+    String text,
+    Double rating
+) {
+  public static final String BOOK = "book";
+  public static final String AUTHOR = "author";
+}
@@ -0,0 +1,108 @@
+package com.example.weblibrary.model.enums;
+
+import com.example.weblibrary.exception.InvalidPageRequestException;
+import com.example.weblibrary.model.dto.BookDtoResponse;
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * Sort keys of the paginated book listing. Every order is made unique by the
+ * book id as a tie-breaker; books without a value for a nullable key come
+ * after all others in ascending order and before them in descending order.
+ */
+public enum BookSort {
+  ID("id", "id", false, value -> null, value -> null),
+  TITLE("title", "title", false, Object::toString, value -> value),
+  RATING("rating", "rating", true, Object::toString, Double::valueOf),
+  PUBLISH_DATE("publishDate", "publishDate", true, Object::toString, LocalDate::parse);
+
+  private final String parameter;
+  private final String property;
+  private final boolean nullable;
+  private final Function<Object, String> formatter;
+  private final Function<String, Object> parser;
+
+  BookSort(String parameter, String property, boolean nullable,
+      Function<Object, String> formatter, Function<String, Object> parser) {
+    this.parameter = parameter;
+    this.property = property;
+    this.nullable = nullable;
+    this.formatter = formatter;
+    this.parser = parser;
+  }
+
+  /**
+   * Resolves the value of the {@code sort} request parameter.
+   *
+   * @param parameter the parameter value, or null for the default order by id
+   * @return the sort key
+   * @throws InvalidPageRequestException if the key is unknown
+   */
+  public static BookSort fromParameter(String parameter) {
+    if (parameter == null) {
+      return ID;
+    }
+    for (BookSort sort : values()) {
+      if (sort.parameter.equalsIgnoreCase(parameter)) {
+        return sort;
+      }
+    }
+    throw new InvalidPageRequestException("Неизвестный ключ сортировки: " + parameter);
+  }
+
+  public String getParameter() {
+    return parameter;
+  }
+
+  public String getProperty() {
+    return property;
+  }
+
+  public boolean isNullable() {
+    return nullable;
+  }
+
+  /**
+   * Returns the value of the sort key of a book.
+   *
+   * @param book the book
+   * @return the value, or null if the book has none
+   */
+  public Object valueOf(BookDtoResponse book) {
+    return switch (this) {
+      case ID -> book.id();
+      case TITLE -> book.title();
+      case RATING -> book.rating();
+      case PUBLISH_DATE -> book.publishDate();
+    };
+  }
+
+  /**
+   * Formats a value of the sort key for a cursor. The id key needs no value
+   * besides the id itself.
+   *
+   * @param value the value, may be null
+   * @return the formatted value, or null
+   */
+  public String format(Object value) {
+    return value == null ? null : formatter.apply(value);
+  }
+
+  /**
+   * Parses a value of the sort key taken from a cursor.
+   *
+   * @param value the formatted value, may be null
+   * @return the value, or null
+   * @throws InvalidPageRequestException if the value is malformed
+   */
+  public Object parse(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return parser.apply(value);
+    } catch (RuntimeException e) {
+      throw new InvalidPageRequestException("Некорректный курсор");
+    }
+  }
+}
@@ -4,6 +4,7 @@ import com.example.weblibrary.model.Author;
 
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -26,4 +27,13 @@ public interface AuthorRepository extends JpaRepository<Author, Long> {
   @Query("SELECT a FROM Author a JOIN FETCH a.books WHERE a.id = :id")
   Optional<Author> findByIdWithBooks(@Param("id") Long id);
   List<Author> findByNameContainingIgnoreCase(String name);
+
+  /**
+   * Finds the authors following the given ID, in ID order.
+   *
+   * @param id The ID after which the page starts.
+   * @param limit The maximum number of authors.
+   * @return The authors.
+   */
+  List<Author> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
\ No newline at end of file
@@ -1,18 +1,66 @@
 package com.example.weblibrary.repository;
 
 import com.example.weblibrary.model.Book;
+import com.example.weblibrary.model.dto.BookAuthorRow;
+import com.example.weblibrary.model.dto.BookFacets;
+import com.example.weblibrary.model.dto.Suggestion;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * Репозиторий для управления сущностями Book.
  * Расширяет JpaRepository, предоставляя базовые CRUD-операции и кастомные запросы.
+ * Списочные запросы загружают авторов вместе с книгами через entity graph, чтобы
+ * преобразование в DTO не выполняло отдельный запрос на каждую книгу.
  */
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
+
+  /**
+   * Количество строк, получаемых драйвером из курсора за один запрос при
+   * потоковом чтении каталога.
+   */
+  String EXPORT_FETCH_SIZE = "500";
+
+  /**
+   * Выборка атрибутов книги, по которым работает фасетный поиск.
+   */
+  String FACETS_SELECT = "SELECT new com.example.weblibrary.model.dto.BookFacets("
+      + "b.id, b.genre, b.language, b.publisher, b.publishDate, b.rating) FROM Book b";
+
+  /**
+   * Общая часть проекционных запросов: книга и её авторы одной строкой на
+   * каждую пару, без создания сущностей.
+   */
+  String ROW_SELECT = "SELECT new com.example.weblibrary.model.dto.BookAuthorRow("
+      + "b.id, b.title, b.publisher, b.isbn, b.pages, b.genre, b.publishDate, b.language, "
+      + "b.description, b.imageUrl, b.readUrl, b.rating, a.id, a.name, a.surname, "
+      + "a.patronymic, a.birthDate, a.deathDate, a.biography, a.genreSpecialization, "
+      + "a.rating) FROM Book b LEFT JOIN b.authors a ";
+
+  /**
+   * Порядок строк проекции: строки одной книги идут подряд.
+   */
+  String ROW_ORDER = " ORDER BY b.id, a.id";
+
+  /**
+   * Находит все книги вместе с авторами.
+   *
+   * @return список всех книг
+   */
+  @Override
+  @EntityGraph(attributePaths = {"authors"})
+  List<Book> findAll();
 
   /**
    * Находит книги по имени автора.
@@ -21,7 +69,8 @@ public interface BookRepository extends JpaRepository<Book, Long> {
    * @param authorName имя автора, по которому осуществляется поиск
    * @return список книг, написанных указанным автором
    */
-  @Query("SELECT b FROM Book b JOIN b.authors a WHERE a.name = :authorName")
+  @EntityGraph(attributePaths = {"authors"})
+  @Query("SELECT DISTINCT b FROM Book b JOIN b.authors a WHERE a.name = :authorName")
   List<Book> findByAuthorName(@Param("authorName") String authorName);
 
   /**
@@ -30,6 +79,7 @@ public interface BookRepository extends JpaRepository<Book, Long> {
    * @param title часть заголовка книги для поиска
    * @return список книг с заголовками, содержащими указанную строку
    */
+  @EntityGraph(attributePaths = {"authors"})
   List<Book> findByTitleContainingIgnoreCase(@Param("title") String title);
 
   /**
@@ -38,5 +88,127 @@ public interface BookRepository extends JpaRepository<Book, Long> {
    * @param genre жанр книги
    * @return список книг, относящихся к указанному жанру
    */
+  @EntityGraph(attributePaths = {"authors"})
   List<Book> findByGenre(String genre);
+
+  /**
+   * Читает все книги с авторами в виде строк проекции.
+   *
+   * @return строки всех книг, упорядоченные по id книги
+   */
+  @Query(ROW_SELECT + ROW_ORDER)
+  List<BookAuthorRow> findAllRows();
+
+  /**
+   * Читает книгу с авторами в виде строк проекции.
+   *
+   * @param id идентификатор книги
+   * @return строки книги; пустой список, если книги нет
+   */
+  @Query(ROW_SELECT + "WHERE b.id = :id" + ROW_ORDER)
+  List<BookAuthorRow> findRowsById(@Param("id") Long id);
+
+  /**
+   * Читает книги с указанными id в виде строк проекции.
+   *
+   * @param ids идентификаторы книг
+   * @return строки найденных книг, упорядоченные по id книги
+   */
+  @Query(ROW_SELECT + "WHERE b.id IN :ids" + ROW_ORDER)
+  List<BookAuthorRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Читает названия и рейтинги всех книг для индекса подсказок.
+   *
+   * @return подсказки по всем книгам
+   */
+  @Query("SELECT new com.example.weblibrary.model.dto.Suggestion('" + Suggestion.BOOK
+      + "', b.id, b.title, b.rating) FROM Book b")
+  List<Suggestion> findAllSuggestions();
+
+  /**
+   * Читает названия и рейтинги указанных книг для индекса подсказок.
+   *
+   * @param ids идентификаторы книг
+   * @return подсказки по найденным книгам
+   */
+  @Query("SELECT new com.example.weblibrary.model.dto.Suggestion('" + Suggestion.BOOK
+      + "', b.id, b.title, b.rating) FROM Book b WHERE b.id IN :ids")
+  List<Suggestion> findSuggestionsByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Читает значения фасетов всех книг для индекса фасетного поиска.
+   *
+   * @return значения фасетов всех книг
+   */
+  @Query(FACETS_SELECT)
+  List<BookFacets> findAllFacets();
+
+  /**
+   * Читает значения фасетов указанных книг для индекса фасетного поиска.
+   *
+   * @param ids идентификаторы книг
+   * @return значения фасетов найденных книг
+   */
+  @Query(FACETS_SELECT + " WHERE b.id IN :ids")
+  List<BookFacets> findFacetsByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Находит id книг указанного автора.
+   *
+   * @param authorId идентификатор автора
+   * @return id книг автора
+   */
+  @Query("SELECT b.id FROM Book b JOIN b.authors a WHERE a.id = :authorId")
+  List<Long> findIdsByAuthorId(@Param("authorId") Long authorId);
+
+  /**
+   * Читает книги указанного жанра в виде строк проекции.
+   *
+   * @param genre жанр книги
+   * @return строки книг жанра, упорядоченные по id книги
+   */
+  @Query(ROW_SELECT + "WHERE b.genre = :genre" + ROW_ORDER)
+  List<BookAuthorRow> findRowsByGenre(@Param("genre") String genre);
+
+  /**
+   * Читает книги, заголовок которых подходит под шаблон LIKE, в виде строк
+   * проекции. Шаблон сравнивается с заголовком в нижнем регистре, символ
+   * экранирования — обратная косая черта.
+   *
+   * @param pattern шаблон в нижнем регистре
+   * @return строки найденных книг, упорядоченные по id книги
+   */
+  @Query(ROW_SELECT + "WHERE LOWER(b.title) LIKE :pattern ESCAPE '\\'" + ROW_ORDER)
+  List<BookAuthorRow> findRowsByTitleLike(@Param("pattern") String pattern);
+
+  /**
+   * Читает книги, заголовок которых содержит указанную строку (без учета
+   * регистра), в виде строк проекции.
+   *
+   * @param title часть заголовка книги для поиска
+   * @return строки найденных книг, упорядоченные по id книги
+   */
+  default List<BookAuthorRow> findRowsByTitleContaining(String title) {
+    String escaped = title.toLowerCase(Locale.ROOT)
+        .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    return findRowsByTitleLike("%" + escaped + "%");
+  }
+
+  /**
+   * Читает весь каталог потоком в порядке id. Строки приходят из курсора
+   * порциями по {@value #EXPORT_FETCH_SIZE}, поэтому в памяти не держится весь
+   * результат. Авторы не загружаются join-ом (он дублировал бы строки курсора) —
+   * их подгружает пакетная выборка {@code Book.authors}. Поток нужно читать
+   * внутри транзакции (иначе PostgreSQL отдаёт все строки сразу) и закрывать
+   * после использования.
+   *
+   * @return поток книг
+   */
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+      @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query("SELECT b FROM Book b ORDER BY b.id")
+  Stream<Book> streamAllByOrderById();
 }
\ No newline at end of file
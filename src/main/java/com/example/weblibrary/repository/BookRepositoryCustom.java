@@ -0,0 +1,49 @@
+package com.example.weblibrary.repository;
+
+import com.example.weblibrary.model.Book;
+import com.example.weblibrary.model.enums.BookSort;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Запросы к книгам, которые не выражаются производными методами репозитория.
+ */
+public interface BookRepositoryCustom {
+
+  /**
+   * Находит страницу книг после заданной позиции (keyset-пагинация).
+   * Порядок уникален за счёт id; книги без значения ключа сортировки идут
+   * последними при сортировке по возрастанию и первыми при сортировке по убыванию.
+   *
+   * @param sort ключ сортировки
+   * @param descending сортировать ли по убыванию
+   * @param lastValue значение ключа у последней книги предыдущей страницы
+   * @param lastId id последней книги предыдущей страницы или null для первой страницы
+   * @param limit максимальное число книг
+   * @return книги страницы в порядке сортировки
+   */
+  List<Book> findPage(BookSort sort, boolean descending, Object lastValue, Long lastId,
+      int limit);
+
+  /**
+   * Ищет книги полнотекстовым поиском по названию, авторам, издательству и
+   * описанию. Запрос разбирается в синтаксисе {@code websearch_to_tsquery}
+   * (слова, "фразы", OR, -исключение) с учётом морфологии всех поддерживаемых
+   * языков; совпадения в названии весят больше, чем в описании.
+   *
+   * @param query поисковый запрос
+   * @param offset число пропускаемых результатов
+   * @param limit максимальное число результатов
+   * @return id найденных книг по убыванию релевантности
+   */
+  List<Long> search(String query, long offset, int limit);
+
+  /**
+   * Пересчитывает поисковые векторы книг. Вызывается после записи книг и
+   * изменения их авторов; несохранённые изменения предварительно сбрасываются
+   * в базу.
+   *
+   * @param bookIds id книг
+   */
+  void updateSearchVectors(Collection<Long> bookIds);
+}
@@ -0,0 +1,189 @@
+package com.example.weblibrary.repository;
+
+import com.example.weblibrary.model.Book;
+import com.example.weblibrary.model.enums.BookSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Реализация {@link BookRepositoryCustom}.
+ *
+ * <p>Страница собирается не более чем из двух запросов: по книгам со
+ * значением ключа сортировки и по книгам без него. Каждый запрос начинается
+ * со сравнения кортежа {@code (ключ, id)} с позицией курсора и поэтому
+ * обслуживается поиском по индексу {@code (ключ, id)} без {@code OFFSET}.
+ *
+ * <p>Полнотекстовый поиск идёт по столбцу {@code book.search_vector} с
+ * GIN-индексом (см. {@link BookSearchSchema}). Вектор строится с морфологией
+ * языка книги ({@code Book.language}), а запрос разбирается морфологиями всех
+ * поддерживаемых языков, поэтому он находит книги на любом из них.
+ */
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+  /**
+   * Конфигурации текстового поиска PostgreSQL по значениям {@code Book.language}
+   * (без учёта регистра). Остальные языки индексируются конфигурацией
+   * {@code simple} — без стемминга и стоп-слов.
+   */
+  static final Map<String, String> LANGUAGE_CONFIGS = languageConfigs();
+
+  /**
+   * Выражение поискового вектора книги {@code b}: название (вес A), имена
+   * авторов (B), издательство (C) и описание (D).
+   */
+  static final String SEARCH_VECTOR =
+      "setweight(to_tsvector(book_search_config(b.language), coalesce(b.title, '')), 'A')"
+      + " || setweight(to_tsvector(book_search_config(b.language), coalesce(("
+      + "SELECT string_agg(concat_ws(' ', a.name, a.surname), ' ') FROM book_authors ba"
+      + " JOIN author a ON a.id = ba.author_id WHERE ba.book_id = b.id), '')), 'B')"
+      + " || setweight(to_tsvector(book_search_config(b.language),"
+      + " coalesce(b.publisher, '')), 'C')"
+      + " || setweight(to_tsvector(book_search_config(b.language),"
+      + " coalesce(b.description, '')), 'D')";
+
+  /**
+   * Число id в одном {@code IN} при обновлении векторов: массовый импорт не
+   * упирается в ограничение драйвера на число параметров запроса.
+   */
+  private static final int UPDATE_CHUNK_SIZE = 1000;
+
+  private static final String SEARCH_QUERY = new LinkedHashSet<>(LANGUAGE_CONFIGS.values())
+      .stream()
+      .map(config -> "websearch_to_tsquery('" + config + "', :query)")
+      .collect(Collectors.joining(" || ", "", " || websearch_to_tsquery('simple', :query)"));
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public List<Book> findPage(BookSort sort, boolean descending, Object lastValue, Long lastId,
+      int limit) {
+    boolean cursorInNulls = lastId != null && lastValue == null && sort.isNullable();
+    List<Book> page = new ArrayList<>(limit);
+    if (descending && sort.isNullable() && (lastId == null || cursorInNulls)) {
+      page.addAll(findWithoutValue(sort, true, lastId, limit));
+      if (page.size() < limit) {
+        page.addAll(findWithValue(sort, true, null, null, limit - page.size()));
+      }
+      return page;
+    }
+    if (!cursorInNulls) {
+      page.addAll(findWithValue(sort, descending, lastValue, lastId, limit));
+    }
+    if (!descending && sort.isNullable() && page.size() < limit) {
+      page.addAll(findWithoutValue(sort, false, cursorInNulls ? lastId : null,
+          limit - page.size()));
+    }
+    return page;
+  }
+
+  private List<Book> findWithValue(BookSort sort, boolean descending, Object lastValue,
+      Long lastId, int limit) {
+    String key = "b." + sort.getProperty();
+    String direction = descending ? " DESC" : " ASC";
+    String comparison = descending ? " < " : " > ";
+    StringBuilder jpql = new StringBuilder("SELECT b FROM Book b");
+    if (sort == BookSort.ID) {
+      if (lastId != null) {
+        jpql.append(" WHERE b.id").append(comparison).append(":lastId");
+      }
+      jpql.append(" ORDER BY b.id").append(direction);
+    } else {
+      jpql.append(" WHERE ").append(key).append(" IS NOT NULL");
+      if (lastId != null) {
+        jpql.append(" AND (").append(key).append(", b.id)").append(comparison)
+            .append("(:lastValue, :lastId)");
+      }
+      jpql.append(" ORDER BY ").append(key).append(direction).append(", b.id").append(direction);
+    }
+    TypedQuery<Book> query = entityManager.createQuery(jpql.toString(), Book.class);
+    if (lastId != null) {
+      query.setParameter("lastId", lastId);
+      if (sort != BookSort.ID) {
+        query.setParameter("lastValue", lastValue);
+      }
+    }
+    return query.setMaxResults(limit).getResultList();
+  }
+
+  private List<Book> findWithoutValue(BookSort sort, boolean descending, Long lastId,
+      int limit) {
+    String direction = descending ? " DESC" : " ASC";
+    StringBuilder jpql = new StringBuilder("SELECT b FROM Book b WHERE b.")
+        .append(sort.getProperty()).append(" IS NULL");
+    if (lastId != null) {
+      jpql.append(" AND b.id").append(descending ? " < " : " > ").append(":lastId");
+    }
+    jpql.append(" ORDER BY b.id").append(direction);
+    TypedQuery<Book> query = entityManager.createQuery(jpql.toString(), Book.class);
+    if (lastId != null) {
+      query.setParameter("lastId", lastId);
+    }
+    return query.setMaxResults(limit).getResultList();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Long> search(String query, long offset, int limit) {
+    List<Number> ids = entityManager.createNativeQuery(
+            "SELECT b.id FROM book b, (SELECT " + SEARCH_QUERY + " AS q) s"
+                + " WHERE b.search_vector @@ s.q"
+                + " ORDER BY ts_rank_cd(b.search_vector, s.q, 32) DESC, b.id"
+                + " OFFSET :offset LIMIT :limit")
+        .setParameter("query", query)
+        .setParameter("offset", offset)
+        .setParameter("limit", limit)
+        .getResultList();
+    return ids.stream().map(Number::longValue).toList();
+  }
+
+  @Override
+  @Transactional
+  public void updateSearchVectors(Collection<Long> bookIds) {
+    if (bookIds.isEmpty()) {
+      return;
+    }
+    // один flush на все части: перед каждым нативным запросом Hibernate иначе
+    // сам проверяет на изменения все сущности контекста, и импорт 100 000
+    // книг становится квадратичным
+    entityManager.flush();
+    List<Long> ids = List.copyOf(bookIds);
+    for (int from = 0; from < ids.size(); from += UPDATE_CHUNK_SIZE) {
+      entityManager.createNativeQuery(
+              "UPDATE book b SET search_vector = " + SEARCH_VECTOR + " WHERE b.id IN (:ids)")
+          .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + UPDATE_CHUNK_SIZE)))
+          .setFlushMode(FlushModeType.COMMIT)
+          .executeUpdate();
+    }
+  }
+
+  private static Map<String, String> languageConfigs() {
+    Map<String, String> configs = new LinkedHashMap<>();
+    for (String language : List.of("ru", "rus", "russian", "русский")) {
+      configs.put(language, "russian");
+    }
+    for (String language : List.of("en", "eng", "english", "английский")) {
+      configs.put(language, "english");
+    }
+    for (String language : List.of("de", "deu", "german", "немецкий")) {
+      configs.put(language, "german");
+    }
+    for (String language : List.of("fr", "fra", "french", "французский")) {
+      configs.put(language, "french");
+    }
+    for (String language : List.of("es", "spa", "spanish", "испанский")) {
+      configs.put(language, "spanish");
+    }
+    return configs;
+  }
+}
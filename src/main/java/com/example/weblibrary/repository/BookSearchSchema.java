@@ -0,0 +1,56 @@
+package com.example.weblibrary.repository;
+
+import jakarta.annotation.PostConstruct;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Создаёт объекты базы данных для полнотекстового поиска книг, которые
+ * Hibernate не умеет описывать: функцию выбора конфигурации по языку книги,
+ * столбец {@code book.search_vector} и GIN-индекс по нему. Векторы книг без
+ * него (появившихся до включения поиска) заполняются при старте; дальше
+ * их поддерживает {@link BookRepositoryCustom#updateSearchVectors}.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class BookSearchSchema {
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Приводит схему к нужному виду. Вызывается после того, как Hibernate
+   * обновил схему, и до обработки запросов, так что поиск не обращается к
+   * ещё не созданным функции и столбцу. Все операции идемпотентны.
+   */
+  @PostConstruct
+  public void initialize() {
+    jdbcTemplate.execute("CREATE OR REPLACE FUNCTION book_search_config(language text)"
+        + " RETURNS regconfig LANGUAGE sql IMMUTABLE AS $$"
+        + " SELECT (CASE lower(trim(language)) " + languageCases()
+        + " ELSE 'simple' END)::regconfig $$");
+    jdbcTemplate.execute("ALTER TABLE book ADD COLUMN IF NOT EXISTS search_vector tsvector");
+    jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_book_search_vector"
+        + " ON book USING GIN (search_vector)");
+    int filled = jdbcTemplate.update("UPDATE book b SET search_vector = "
+        + BookRepositoryImpl.SEARCH_VECTOR + " WHERE b.search_vector IS NULL");
+    if (filled > 0) {
+      log.info("Построены поисковые векторы для {} книг", filled);
+    }
+  }
+
+  private static String languageCases() {
+    return BookRepositoryImpl.LANGUAGE_CONFIGS.entrySet().stream()
+        .map(BookSearchSchema::languageCase)
+        .collect(Collectors.joining(" "));
+  }
+
+  private static String languageCase(Map.Entry<String, String> entry) {
+    return "WHEN '" + entry.getKey() + "' THEN '" + entry.getValue() + "'";
+  }
+}
@@ -0,0 +1,51 @@
+package com.example.weblibrary.repository;
+
+import jakarta.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Согласует последовательности идентификаторов с уже существующими строками.
+ *
+ * <p>Сущности получают id из последовательностей блоками по 50 (pooled
+ * optimizer Hibernate: после {@code nextval} = N выдаются id от N - 49 до N).
+ * В базе, созданной до перехода с IDENTITY, последовательность начинается с
+ * 1 и выдала бы уже занятые id, поэтому до первой вставки она сдвигается за
+ * максимальный id таблицы. Сдвиг выполняется только вперёд, так что
+ * повторный запуск и одновременный старт нескольких узлов безопасны.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class IdSequenceSchema {
+  private static final Map<String, String> SEQUENCES = Map.of(
+      "book", "book_seq",
+      "author", "author_seq",
+      "reviews", "reviews_seq",
+      "users", "users_seq",
+      "favorites", "favorites_seq");
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Сдвигает последовательности, отстающие от данных. Вызывается после того,
+   * как Hibernate обновил схему, и до обработки запросов.
+   */
+  @PostConstruct
+  public void alignSequences() {
+    SEQUENCES.forEach((table, sequence) -> {
+      List<Long> moved = jdbcTemplate.queryForList("SELECT setval('" + sequence + "', m.id)"
+          + " FROM (SELECT max(id) AS id FROM " + table + ") m, " + sequence + " s"
+          + " WHERE m.id > CASE WHEN s.is_called THEN s.last_value ELSE 0 END", Long.class);
+      if (!moved.isEmpty()) {
+        log.info("Последовательность {} сдвинута до {}", sequence, moved.get(0));
+      }
+    });
+  }
+}
@@ -1,6 +1,8 @@
 package com.example.weblibrary.repository;
 
 import com.example.weblibrary.model.Log;
+import java.util.List;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +11,13 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface ReviewRepository extends JpaRepository<Log.Review, Long> {
+
+  /**
+   * Finds the reviews following the given ID, in ID order.
+   *
+   * @param id The ID after which the page starts.
+   * @param limit The maximum number of reviews.
+   * @return The reviews.
+   */
+  List<Log.Review> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
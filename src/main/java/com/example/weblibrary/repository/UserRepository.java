@@ -1,9 +1,11 @@
 package com.example.weblibrary.repository;
 
 import com.example.weblibrary.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -16,5 +18,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
   Optional<User> findByEmail(String email);
   boolean existsByUsername(String username);
   boolean existsByEmail(String email);
+  List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
 
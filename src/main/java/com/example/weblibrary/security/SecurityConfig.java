@@ -1,6 +1,7 @@
 package com.example.weblibrary.security;
 
 import com.example.weblibrary.service.JwtService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -35,6 +36,8 @@ public class SecurityConfig {
     http
             .csrf(AbstractHttpConfigurer::disable)
             .authorizeHttpRequests(auth -> auth
+                    // Асинхронное продолжение уже авторизованного запроса (потоковые ответы)
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                     // Публичные endpoints
                     .requestMatchers("/api/auth/**").permitAll()
                     .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
@@ -47,11 +50,15 @@ public class SecurityConfig {
 
                     // Книги - все могут просматривать, только ADMIN изменять
                     .requestMatchers(HttpMethod.GET, "/api/books/**").hasAnyRole("USER", "ADMIN")
+                    .requestMatchers(HttpMethod.POST, "/api/books/batch-get").hasAnyRole("USER", "ADMIN")
                     .requestMatchers(HttpMethod.POST, "/api/books/**").hasRole("ADMIN")
                     .requestMatchers(HttpMethod.PUT, "/api/books/**").hasRole("ADMIN")
                     .requestMatchers(HttpMethod.DELETE, "/api/books/**").hasRole("ADMIN")
                     .requestMatchers(HttpMethod.POST, "/api/books/bulk").hasRole("ADMIN")
 
+                    // Подсказки поиска - все могут просматривать
+                    .requestMatchers(HttpMethod.GET, "/api/suggest/**").hasAnyRole("USER", "ADMIN")
+
                     // Отзывы - специальные правила
                     .requestMatchers(HttpMethod.GET, "/api/reviews/**").hasAnyRole("USER", "ADMIN")
                     .requestMatchers(HttpMethod.POST, "/api/reviews").hasAnyRole("USER", "ADMIN")
@@ -1,5 +1,6 @@
 package com.example.weblibrary.service;
 
+import com.example.weblibrary.model.dto.CursorPage;
 import java.util.List;
 
 /**
@@ -19,6 +20,19 @@ public interface CrudService<Q, T> {
    */
   List<T> getAll();
 
+  /**
+   * Retrieves a page of entities in ID order. Each page continues right
+   * after the last entity of the previous one, so fetching it costs the same
+   * at any depth and only one page is held in memory.
+   *
+   * @param cursor
+   *     The cursor returned with the previous page, or null for the first page.
+   * @param limit
+   *     The page size, or null for the default size.
+   * @return The page with the cursor of the next one, which is null on the last page.
+   */
+  CursorPage<T> getPage(String cursor, Integer limit);
+
   /**
    * Retrieves an entity by its ID.
    *
@@ -0,0 +1,176 @@
+package com.example.weblibrary.service;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of book ids having one facet value.
+ *
+ * <p>A set is kept either as a sorted array of ids or as a bitmap over the id
+ * range, whichever takes less memory: a publisher with three books costs
+ * twelve bytes rather than a bitmap over the whole catalog, while a genre
+ * covering a large part of it costs one bit per id. The representation is
+ * switched as the set grows and shrinks, with some slack so that a set on
+ * the boundary does not switch on every change.
+ *
+ * <p>Not thread-safe; {@link FacetIndex} guards its sets with a lock.
+ */
+final class FacetBitmap {
+  private int[] ids = new int[4];
+  private long[] words;
+  private int size;
+
+  /**
+   * Adds an id.
+   *
+   * @param id the id, not negative
+   */
+  void add(int id) {
+    if (words != null) {
+      int word = id >>> 6;
+      if (word >= words.length) {
+        words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+      }
+      if ((words[word] & 1L << id) == 0) {
+        words[word] |= 1L << id;
+        size++;
+      }
+      return;
+    }
+    int position = Arrays.binarySearch(ids, 0, size, id);
+    if (position >= 0) {
+      return;
+    }
+    position = -position - 1;
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+    }
+    System.arraycopy(ids, position, ids, position + 1, size - position);
+    ids[position] = id;
+    size++;
+    // four bytes per id against eight bytes per 64 ids up to the largest one
+    if (size > 2 * ((ids[size - 1] >>> 6) + 1)) {
+      long[] dense = new long[(ids[size - 1] >>> 6) + 1];
+      for (int i = 0; i < size; i++) {
+        dense[ids[i] >>> 6] |= 1L << ids[i];
+      }
+      words = dense;
+      ids = null;
+    }
+  }
+
+  /**
+   * Removes an id.
+   *
+   * @param id the id
+   */
+  void remove(int id) {
+    if (words != null) {
+      int word = id >>> 6;
+      if (word < words.length && (words[word] & 1L << id) != 0) {
+        words[word] &= ~(1L << id);
+        size--;
+        if (size < words.length) {
+          int[] sparse = new int[Math.max(4, size)];
+          int[] count = new int[1];
+          forEach(value -> sparse[count[0]++] = value);
+          ids = sparse;
+          words = null;
+        }
+      }
+      return;
+    }
+    int position = Arrays.binarySearch(ids, 0, size, id);
+    if (position >= 0) {
+      System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+      size--;
+    }
+  }
+
+  /**
+   * Tells whether the id is in the set.
+   *
+   * @param id the id
+   * @return whether the set contains the id
+   */
+  boolean contains(int id) {
+    if (words != null) {
+      int word = id >>> 6;
+      return word < words.length && (words[word] & 1L << id) != 0;
+    }
+    return Arrays.binarySearch(ids, 0, size, id) >= 0;
+  }
+
+  /**
+   * Returns the number of ids in the set.
+   *
+   * @return the number of ids
+   */
+  int cardinality() {
+    return size;
+  }
+
+  /**
+   * Returns the number of ids in both this set and the given bitmap.
+   *
+   * @param filter the bitmap, one bit per id
+   * @return the size of the intersection
+   */
+  int countIn(long[] filter) {
+    int count = 0;
+    if (words != null) {
+      int length = Math.min(words.length, filter.length);
+      for (int i = 0; i < length; i++) {
+        count += Long.bitCount(words[i] & filter[i]);
+      }
+      return count;
+    }
+    for (int i = 0; i < size; i++) {
+      int word = ids[i] >>> 6;
+      if (word < filter.length && (filter[word] & 1L << ids[i]) != 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Sets the bits of the ids in the set in the given bitmap, which must be
+   * long enough for the largest of them.
+   *
+   * @param target the bitmap, one bit per id
+   */
+  void orInto(long[] target) {
+    if (words != null) {
+      int length = Math.min(words.length, target.length);
+      for (int i = 0; i < length; i++) {
+        target[i] |= words[i];
+      }
+      return;
+    }
+    for (int i = 0; i < size; i++) {
+      target[ids[i] >>> 6] |= 1L << ids[i];
+    }
+  }
+
+  /**
+   * Calls the action for every id in the set, in ascending order.
+   *
+   * @param action the action
+   */
+  void forEach(IntConsumer action) {
+    if (words != null) {
+      for (int i = 0; i < words.length; i++) {
+        long word = words[i];
+        while (word != 0) {
+          action.accept(i << 6 | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return;
+    }
+    for (int i = 0; i < size; i++) {
+      action.accept(ids[i]);
+    }
+  }
+}
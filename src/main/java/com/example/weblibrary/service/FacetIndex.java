@@ -0,0 +1,340 @@
+package com.example.weblibrary.service;
+
+import com.example.weblibrary.model.dto.BookFacets;
+import com.example.weblibrary.model.dto.FacetFilter;
+import com.example.weblibrary.model.dto.FacetPage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory bitmap index for faceted browsing of the catalog.
+ *
+ * <p>Every value of every facet keeps the set of ids of the books having it
+ * ({@link FacetBitmap}). A filter is the union of the sets of its selected
+ * values, the matching books are the intersection of the filters, and the
+ * count of a value is the size of its set intersected with the filters of
+ * the other facets; no query touches the database. Publication years and
+ * ratings are bucketed by whole years and whole points; a rating range
+ * that cuts a bucket checks the ratings of that bucket one by one, read
+ * from an array indexed by book id.
+ *
+ * <p>The index is changed book by book as books are written. Lookups and
+ * changes are serialized by a read-write lock; a lookup costs a few passes
+ * over bitmaps of one bit per id, so writers are not held up for long.
+ */
+public class FacetIndex {
+  public static final String GENRE = "genre";
+  public static final String LANGUAGE = "language";
+  public static final String PUBLISHER = "publisher";
+  public static final String YEAR = "year";
+  public static final String RATING = "rating";
+
+  private final int maxValues;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, BookFacets> books = new HashMap<>();
+  private FacetBitmap all = new FacetBitmap();
+  private final Facet<String> genres = new Facet<>(GENRE, BookFacets::genre, true);
+  private final Facet<String> languages = new Facet<>(LANGUAGE, BookFacets::language, true);
+  private final Facet<String> publishers = new Facet<>(PUBLISHER, BookFacets::publisher, true);
+  private final Facet<Integer> years = new Facet<>(YEAR,
+      book -> book.publishDate() == null ? null : book.publishDate().getYear(), false);
+  private final Facet<Integer> ratings = new Facet<>(RATING,
+      book -> book.rating() == null ? null : (int) Math.floor(book.rating()), false);
+  private final List<Facet<?>> facets = List.of(genres, languages, publishers, years, ratings);
+  private double[] ratingOf = new double[0];
+  private int maxId;
+
+  /**
+   * Creates an empty index.
+   *
+   * @param maxValues the largest number of values returned for the genre,
+   *     language and publisher facets; the most frequent ones are kept
+   */
+  public FacetIndex(int maxValues) {
+    this.maxValues = maxValues;
+  }
+
+  /**
+   * Finds the books matching the filters and counts the values of every facet.
+   *
+   * @param filter the filters
+   * @param page zero-based page number
+   * @param size page size
+   * @return the page of matching book ids, in ascending order, with the counts
+   */
+  public FacetPage<Long> search(FacetFilter filter, int page, int size) {
+    lock.readLock().lock();
+    try {
+      int length = (maxId >>> 6) + 1;
+      long[][] selected = {
+          genres.union(filter.genres(), length),
+          languages.union(filter.languages(), length),
+          publishers.union(filter.publishers(), length),
+          yearRange(filter.yearFrom(), filter.yearTo(), length),
+          ratingRange(filter.ratingFrom(), filter.ratingTo(), length)
+      };
+      Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+      for (int i = 0; i < facets.size(); i++) {
+        Facet<?> facet = facets.get(i);
+        counts.put(facet.name, facet.counts(intersection(selected, i), maxValues));
+      }
+      long[] matching = intersection(selected, -1);
+      if (matching == null) {
+        matching = new long[length];
+        all.orInto(matching);
+      }
+      int total = 0;
+      for (long word : matching) {
+        total += Long.bitCount(word);
+      }
+      long from = (long) page * size;
+      List<Long> ids = new ArrayList<>(size);
+      long position = 0;
+      for (int i = 0; i < matching.length && ids.size() < size; i++) {
+        long word = matching[i];
+        while (word != 0 && ids.size() < size) {
+          if (position++ >= from) {
+            ids.add((long) (i << 6 | Long.numberOfTrailingZeros(word)));
+          }
+          word &= word - 1;
+        }
+      }
+      return new FacetPage<>(ids, page, size, from + ids.size() < total, total, counts);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds books or replaces their facet values.
+   *
+   * @param changed the current facet values of the books
+   */
+  public void putAll(Collection<BookFacets> changed) {
+    lock.writeLock().lock();
+    try {
+      for (BookFacets book : changed) {
+        remove(book.id());
+        int id = Math.toIntExact(book.id());
+        books.put(book.id(), book);
+        all.add(id);
+        facets.forEach(facet -> facet.add(book, id));
+        maxId = Math.max(maxId, id);
+        if (book.rating() != null) {
+          if (id >= ratingOf.length) {
+            ratingOf = Arrays.copyOf(ratingOf, Math.max(id + 1, ratingOf.length * 2));
+          }
+          ratingOf[id] = book.rating();
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes books.
+   *
+   * @param ids the ids of the books
+   */
+  public void removeAll(Collection<Long> ids) {
+    lock.writeLock().lock();
+    try {
+      ids.forEach(this::remove);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Replaces the whole content of the index.
+   *
+   * @param current the facet values of every book
+   */
+  public void replaceAll(Collection<BookFacets> current) {
+    lock.writeLock().lock();
+    try {
+      books.clear();
+      all = new FacetBitmap();
+      facets.forEach(facet -> facet.values.clear());
+      ratingOf = new double[0];
+      maxId = 0;
+      putAll(current);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of indexed books.
+   *
+   * @return the number of books
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return books.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void remove(Long bookId) {
+    BookFacets previous = books.remove(bookId);
+    if (previous != null) {
+      int id = Math.toIntExact(bookId);
+      all.remove(id);
+      facets.forEach(facet -> facet.remove(previous, id));
+    }
+  }
+
+  private long[] yearRange(Integer from, Integer to, int length) {
+    if (from == null && to == null) {
+      return null;
+    }
+    int first = from == null ? Integer.MIN_VALUE : from;
+    int last = to == null ? Integer.MAX_VALUE : to;
+    long[] bits = new long[length];
+    if (first <= last) {
+      years.values.subMap(first, true, last, true).values().forEach(ids -> ids.orInto(bits));
+    }
+    return bits;
+  }
+
+  private long[] ratingRange(Double from, Double to, int length) {
+    if (from == null && to == null) {
+      return null;
+    }
+    double low = from == null ? Double.NEGATIVE_INFINITY : from;
+    double high = to == null ? Double.POSITIVE_INFINITY : to;
+    long[] bits = new long[length];
+    ratings.values.forEach((bucket, ids) -> {
+      if (bucket + 1 <= low || bucket > high) {
+        return;
+      }
+      if (low <= bucket && bucket + 1 <= high) {
+        ids.orInto(bits);
+        return;
+      }
+      ids.forEach(id -> {
+        double rating = ratingOf[id];
+        if (low <= rating && rating <= high) {
+          bits[id >>> 6] |= 1L << id;
+        }
+      });
+    });
+    return bits;
+  }
+
+  /**
+   * Intersects the selected filters, skipping the one at the given index.
+   * Returns null when nothing is left to filter by.
+   */
+  private static long[] intersection(long[][] selected, int skipped) {
+    long[] result = null;
+    for (int i = 0; i < selected.length; i++) {
+      if (i == skipped || selected[i] == null) {
+        continue;
+      }
+      if (result == null) {
+        result = selected[i].clone();
+      } else {
+        for (int word = 0; word < result.length; word++) {
+          result[word] &= selected[i][word];
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * The sets of book ids of the values of one facet.
+   */
+  private static final class Facet<K extends Comparable<K>> {
+    private final String name;
+    private final Function<BookFacets, K> keyOf;
+    private final boolean byCount;
+    private final NavigableMap<K, FacetBitmap> values = new TreeMap<>();
+
+    private Facet(String name, Function<BookFacets, K> keyOf, boolean byCount) {
+      this.name = name;
+      this.keyOf = keyOf;
+      this.byCount = byCount;
+    }
+
+    void add(BookFacets book, int id) {
+      K key = keyOf.apply(book);
+      if (key != null) {
+        values.computeIfAbsent(key, k -> new FacetBitmap()).add(id);
+      }
+    }
+
+    void remove(BookFacets book, int id) {
+      K key = keyOf.apply(book);
+      FacetBitmap ids = key == null ? null : values.get(key);
+      if (ids != null) {
+        ids.remove(id);
+        if (ids.cardinality() == 0) {
+          values.remove(key);
+        }
+      }
+    }
+
+    /**
+     * Returns the union of the sets of the selected values, or null when no
+     * value is selected.
+     */
+    long[] union(List<K> selected, int length) {
+      if (selected == null || selected.isEmpty()) {
+        return null;
+      }
+      long[] bits = new long[length];
+      for (K key : selected) {
+        FacetBitmap ids = values.get(key);
+        if (ids != null) {
+          ids.orInto(bits);
+        }
+      }
+      return bits;
+    }
+
+    /**
+     * Counts the books of every value within the filter, or of all books when
+     * the filter is null. Values without books are left out. Facets ordered
+     * by count keep the {@code limit} most frequent values; the others are
+     * ordered by value.
+     */
+    Map<String, Integer> counts(long[] filter, int limit) {
+      List<Map.Entry<K, Integer>> counted = new ArrayList<>();
+      values.forEach((key, ids) -> {
+        int count = filter == null ? ids.cardinality() : ids.countIn(filter);
+        if (count > 0) {
+          counted.add(Map.entry(key, count));
+        }
+      });
+      if (byCount) {
+        counted.sort(Map.Entry.<K, Integer>comparingByValue(Comparator.reverseOrder())
+            .thenComparing(Map.Entry.comparingByKey()));
+      }
+      Map<String, Integer> result = new LinkedHashMap<>();
+      for (Map.Entry<K, Integer> entry : counted) {
+        if (byCount && result.size() == limit) {
+          break;
+        }
+        result.put(String.valueOf(entry.getKey()), entry.getValue());
+      }
+      return result;
+    }
+  }
+}
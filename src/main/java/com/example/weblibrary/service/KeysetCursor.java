@@ -0,0 +1,55 @@
+package com.example.weblibrary.service;
+
+import com.example.weblibrary.exception.InvalidPageRequestException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated listing: the sort order and the sort value
+ * and id of the last item of the previous page. The next page starts right
+ * after this item, so the database seeks to it through an index instead of
+ * skipping rows with {@code OFFSET}.
+ *
+ * <p>Clients receive the cursor as an opaque URL-safe string.
+ *
+ * @param sort the name of the sort key
+ * @param descending whether the order is descending
+ * @param id the id of the last item
+ * @param value the formatted sort value of the last item, or null
+ */
+public record KeysetCursor(String sort, boolean descending, long id, String value) {
+
+  /**
+   * Encodes the cursor for a client.
+   *
+   * @return the opaque cursor
+   */
+  public String encode() {
+    String raw = sort + "\n" + (descending ? "desc" : "asc") + "\n" + id + "\n"
+        + (value == null ? "" : "=" + value);
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a cursor received from a client.
+   *
+   * @param cursor the opaque cursor
+   * @return the cursor
+   * @throws InvalidPageRequestException if the cursor is malformed
+   */
+  public static KeysetCursor decode(String cursor) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = raw.split("\n", 4);
+      if (parts.length != 4 || !(parts[1].equals("asc") || parts[1].equals("desc"))
+          || !(parts[3].isEmpty() || parts[3].startsWith("="))) {
+        throw new InvalidPageRequestException("Некорректный курсор");
+      }
+      return new KeysetCursor(parts[0], parts[1].equals("desc"), Long.parseLong(parts[2]),
+          parts[3].isEmpty() ? null : parts[3].substring(1));
+    } catch (IllegalArgumentException e) {
+      throw new InvalidPageRequestException("Некорректный курсор");
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.example.weblibrary.service;
+
+import com.example.weblibrary.exception.InvalidPageRequestException;
+import com.example.weblibrary.model.dto.CursorPage;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Page size limits and id-ordered keyset paging shared by the services.
+ *
+ * <p>A page is read as {@code WHERE id > :lastId ORDER BY id LIMIT size + 1};
+ * the primary key index makes every page, however deep, cost the same, and
+ * the extra row tells whether a next page exists.
+ */
+@Component
+public class KeysetPager {
+  private static final String ID_SORT = "id";
+  private final int defaultSize;
+  private final int maxSize;
+
+  /**
+   * Creates the pager.
+   *
+   * @param defaultSize page size used when the client does not give one
+   * @param maxSize largest page size a client may request
+   */
+  public KeysetPager(@Value("${pagination.default-size:20}") int defaultSize,
+      @Value("${pagination.max-size:100}") int maxSize) {
+    this.defaultSize = defaultSize;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Validates the requested page size.
+   *
+   * @param limit the requested size, or null for the default one
+   * @return the page size
+   * @throws InvalidPageRequestException if the size is out of range
+   */
+  public int pageSize(Integer limit) {
+    int size = limit == null ? defaultSize : limit;
+    if (size < 1 || size > maxSize) {
+      throw new InvalidPageRequestException("Размер страницы должен быть от 1 до " + maxSize);
+    }
+    return size;
+  }
+
+  /**
+   * Reads a page of entities ordered by id.
+   *
+   * @param cursor cursor returned with the previous page, or null for the first page
+   * @param limit the requested page size, or null for the default one
+   * @param finder reads at most the given number of entities with an id
+   *     greater than the given one, in id order
+   * @param mapper converts the entities to response DTOs
+   * @param idOf returns the id of a response DTO
+   * @param <E> the type of the entities
+   * @param <T> the type of the response DTOs
+   * @return the page with the cursor of the next one
+   * @throws InvalidPageRequestException if the cursor or the size is invalid
+   */
+  public <E, T> CursorPage<T> byId(String cursor, Integer limit,
+      BiFunction<Long, Limit, List<E>> finder, Function<List<E>, List<T>> mapper,
+      Function<T, Long> idOf) {
+    int size = pageSize(limit);
+    long lastId = Long.MIN_VALUE;
+    if (cursor != null) {
+      KeysetCursor position = KeysetCursor.decode(cursor);
+      if (!ID_SORT.equals(position.sort()) || position.descending()) {
+        throw new InvalidPageRequestException("Некорректный курсор");
+      }
+      lastId = position.id();
+    }
+    List<E> rows = finder.apply(lastId, Limit.of(size + 1));
+    boolean hasNext = rows.size() > size;
+    List<T> items = mapper.apply(hasNext ? rows.subList(0, size) : rows);
+    String next = hasNext
+        ? new KeysetCursor(ID_SORT, false, idOf.apply(items.get(size - 1)), null).encode()
+        : null;
+    return new CursorPage<>(items, next);
+  }
+}
@@ -0,0 +1,309 @@
+package com.example.weblibrary.service;
+
+import com.example.weblibrary.model.dto.FuzzyMatch;
+import com.example.weblibrary.model.dto.Suggestion;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index for type-ahead suggestions.
+ *
+ * <p>Every word of a suggestion's text starts a key: "Мастер и Маргарита"
+ * is found by "маст", "маргар" and "и марг". Keys are normalized (lower case,
+ * diacritics and punctuation removed, ё read as е) and kept in a sorted
+ * array, so the keys with a given prefix form one range found by binary
+ * search. Suggestions are numbered by rank (rating, then shorter text), which
+ * turns "the best k in a range" into "the k smallest distinct numbers". For
+ * prefixes of up to {@value #PRECOMPUTED_LENGTH} characters, whose ranges can
+ * cover most of the index, the answer is computed when the index is built;
+ * longer prefixes scan their range, which is short.
+ *
+ * <p>The same words are also kept in a {@link TrigramIndex} for lookups that
+ * tolerate typos.
+ *
+ * <p>Readers use an immutable snapshot and never block. Changes are applied
+ * to the entry map right away and the snapshot is rebuilt on the given
+ * executor; changes arriving during a rebuild are coalesced into one more
+ * rebuild.
+ */
+public class SuggestionIndex {
+  private static final int PRECOMPUTED_LENGTH = 3;
+  private static final int MAX_KEY_LENGTH = 64;
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+  private static final Comparator<Entry> RANK = Comparator
+      .comparing((Entry entry) -> entry.suggestion().rating(),
+          Comparator.nullsLast(Comparator.reverseOrder()))
+      .thenComparingInt(entry -> entry.suggestion().text().length())
+      .thenComparing(entry -> entry.suggestion().type())
+      .thenComparing(entry -> entry.suggestion().id());
+
+  private final int maxResults;
+  private final Executor rebuildExecutor;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicBoolean rebuildPending = new AtomicBoolean();
+  private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+  /**
+   * Creates an empty index.
+   *
+   * @param maxResults the largest number of suggestions a lookup may return
+   * @param rebuildExecutor runs the snapshot rebuilds
+   */
+  public SuggestionIndex(int maxResults, Executor rebuildExecutor) {
+    this.maxResults = maxResults;
+    this.rebuildExecutor = rebuildExecutor;
+  }
+
+  /**
+   * Returns the best suggestions whose text has a word starting with the prefix.
+   *
+   * @param prefix the typed text
+   * @param limit the number of suggestions, at most the configured maximum
+   * @return the suggestions, best first
+   */
+  public List<Suggestion> suggest(String prefix, int limit) {
+    String key = normalize(prefix);
+    if (key.isEmpty()) {
+      return List.of();
+    }
+    if (key.length() > MAX_KEY_LENGTH) {
+      key = key.substring(0, MAX_KEY_LENGTH);
+    }
+    return snapshot.lookup(key, Math.min(limit, maxResults), maxResults);
+  }
+
+  /**
+   * Finds the suggestions whose words match every word of the query,
+   * allowing up to one typo in words of three to five letters and two in
+   * longer words. The last word may be unfinished; words of a single
+   * letter are ignored.
+   *
+   * @param query the typed text
+   * @return the matches, most relevant first; equally relevant matches are
+   *     ordered as in {@link #suggest(String, int)}
+   */
+  public List<FuzzyMatch> fuzzy(String query) {
+    String key = normalize(query);
+    if (key.isEmpty()) {
+      return List.of();
+    }
+    return snapshot.fuzzy(key);
+  }
+
+  /**
+   * Adds or replaces suggestions.
+   *
+   * @param suggestions the suggestions
+   */
+  public void putAll(Collection<Suggestion> suggestions) {
+    suggestions.forEach(suggestion -> entries.put(keyOf(suggestion.type(), suggestion.id()),
+        new Entry(suggestion, normalize(suggestion.text()))));
+    scheduleRebuild();
+  }
+
+  /**
+   * Removes suggestions.
+   *
+   * @param type the type of the suggestions
+   * @param ids the ids of the suggestions
+   */
+  public void removeAll(String type, Collection<Long> ids) {
+    ids.forEach(id -> entries.remove(keyOf(type, id)));
+    scheduleRebuild();
+  }
+
+  /**
+   * Replaces all suggestions of a type.
+   *
+   * @param type the type of the suggestions
+   * @param suggestions the new suggestions of the type
+   */
+  public void replaceAll(String type, Collection<Suggestion> suggestions) {
+    entries.values().removeIf(entry -> entry.suggestion().type().equals(type));
+    putAll(suggestions);
+  }
+
+  /**
+   * Returns the number of suggestions, including changes not yet visible to
+   * lookups.
+   *
+   * @return the number of suggestions
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Normalizes text for matching: lower case, without diacritics, with runs
+   * of other characters than letters and digits replaced by one space.
+   *
+   * @param text the text
+   * @return the normalized text
+   */
+  public static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+        .replaceAll("");
+    return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ")
+        .trim();
+  }
+
+  private void scheduleRebuild() {
+    if (rebuildPending.compareAndSet(false, true)) {
+      rebuildExecutor.execute(() -> {
+        rebuildPending.set(false);
+        snapshot = Snapshot.build(new ArrayList<>(entries.values()), maxResults);
+      });
+    }
+  }
+
+  private static String keyOf(String type, Long id) {
+    return type + ":" + id;
+  }
+
+  /**
+   * Immutable state read by lookups.
+   */
+  private static final class Snapshot {
+    static final Snapshot EMPTY = new Snapshot(new Suggestion[0], new String[0], new int[0],
+        Map.of(), TrigramIndex.build(new String[0]));
+
+    private final Suggestion[] items;
+    private final String[] keys;
+    private final int[] itemOfKey;
+    private final Map<String, int[]> precomputed;
+    private final TrigramIndex trigrams;
+
+    private Snapshot(Suggestion[] items, String[] keys, int[] itemOfKey,
+        Map<String, int[]> precomputed, TrigramIndex trigrams) {
+      this.items = items;
+      this.keys = keys;
+      this.itemOfKey = itemOfKey;
+      this.precomputed = precomputed;
+      this.trigrams = trigrams;
+    }
+
+    static Snapshot build(List<Entry> ranked, int maxResults) {
+      ranked.sort(RANK);
+      Suggestion[] items = new Suggestion[ranked.size()];
+      String[] texts = new String[ranked.size()];
+      List<Key> entries = new ArrayList<>();
+      for (int item = 0; item < items.length; item++) {
+        items[item] = ranked.get(item).suggestion();
+        String text = ranked.get(item).normalized();
+        texts[item] = text;
+        for (int start = 0; start < text.length(); start++) {
+          if (start == 0 || text.charAt(start - 1) == ' ') {
+            int end = Math.min(text.length(), start + MAX_KEY_LENGTH);
+            entries.add(new Key(text.substring(start, end), item));
+          }
+        }
+      }
+      entries.sort(Comparator.comparing(Key::key).thenComparingInt(Key::item));
+      String[] keys = new String[entries.size()];
+      int[] itemOfKey = new int[entries.size()];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = entries.get(i).key();
+        itemOfKey[i] = entries.get(i).item();
+      }
+      Map<String, int[]> precomputed = new HashMap<>();
+      for (int length = 1; length <= PRECOMPUTED_LENGTH; length++) {
+        int from = 0;
+        while (from < keys.length) {
+          if (keys[from].length() < length) {
+            from++;
+            continue;
+          }
+          String prefix = keys[from].substring(0, length);
+          int to = from + 1;
+          while (to < keys.length && keys[to].startsWith(prefix)) {
+            to++;
+          }
+          precomputed.put(prefix, best(itemOfKey, from, to, maxResults));
+          from = to;
+        }
+      }
+      return new Snapshot(items, keys, itemOfKey, precomputed, TrigramIndex.build(texts));
+    }
+
+    List<FuzzyMatch> fuzzy(String query) {
+      Map<Integer, Double> scores = trigrams.search(query);
+      List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+      ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed()
+          .thenComparing(Map.Entry.comparingByKey()));
+      List<FuzzyMatch> matches = new ArrayList<>(ranked.size());
+      for (Map.Entry<Integer, Double> match : ranked) {
+        Suggestion suggestion = items[match.getKey()];
+        matches.add(new FuzzyMatch(suggestion.type(), suggestion.id(), suggestion.text(),
+            suggestion.rating(), match.getValue()));
+      }
+      return matches;
+    }
+
+    List<Suggestion> lookup(String prefix, int limit, int maxResults) {
+      int[] best;
+      if (prefix.length() <= PRECOMPUTED_LENGTH) {
+        best = precomputed.getOrDefault(prefix, new int[0]);
+      } else {
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        best = best(itemOfKey, from, to, maxResults);
+      }
+      List<Suggestion> result = new ArrayList<>(Math.min(limit, best.length));
+      for (int i = 0; i < best.length && i < limit; i++) {
+        result.add(items[best[i]]);
+      }
+      return result;
+    }
+
+    private int lowerBound(String key) {
+      int index = Arrays.binarySearch(keys, key);
+      return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Returns the k smallest distinct item numbers of a key range in
+     * ascending order, that is the k best suggestions.
+     */
+    private static int[] best(int[] itemOfKey, int from, int to, int k) {
+      int[] best = new int[k];
+      int count = 0;
+      for (int i = from; i < to; i++) {
+        int item = itemOfKey[i];
+        if (count == k && item >= best[k - 1]) {
+          continue;
+        }
+        int position = Arrays.binarySearch(best, 0, count, item);
+        if (position >= 0) {
+          continue;
+        }
+        position = -position - 1;
+        int moved = Math.min(count, k - 1) - position;
+        System.arraycopy(best, position, best, position + 1, moved);
+        best[position] = item;
+        count = Math.min(count + 1, k);
+      }
+      return Arrays.copyOf(best, count);
+    }
+  }
+
+  private record Entry(Suggestion suggestion, String normalized) {
+  }
+
+  private record Key(String key, int item) {
+  }
+}
@@ -0,0 +1,246 @@
+package com.example.weblibrary.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typo-tolerant word index used by {@link SuggestionIndex} for fuzzy lookups.
+ *
+ * <p>Every distinct word of the indexed texts is split into trigrams of the
+ * word padded with {@code $} on both sides. A query word is compared only
+ * with the words that share enough of its trigrams (a single edit changes at
+ * most three of them), and those candidates are ranked by their
+ * Damerau-Levenshtein distance to the query word. The last query word may be
+ * unfinished, so it also matches the beginning of longer words.
+ */
+final class TrigramIndex {
+  private static final int MAX_QUERY_WORDS = 5;
+  private static final int MIN_WORD_LENGTH = 2;
+  private static final double PREFIX_PENALTY = 0.9;
+  private static final int[] NO_WORDS = new int[0];
+
+  private final String[] words;
+  private final int[][] itemsOfWord;
+  private final Map<String, int[]> wordsOfTrigram;
+
+  private TrigramIndex(String[] words, int[][] itemsOfWord, Map<String, int[]> wordsOfTrigram) {
+    this.words = words;
+    this.itemsOfWord = itemsOfWord;
+    this.wordsOfTrigram = wordsOfTrigram;
+  }
+
+  /**
+   * Indexes normalized texts.
+   *
+   * @param texts the texts, indexed by item number
+   * @return the index
+   */
+  static TrigramIndex build(String[] texts) {
+    Map<String, IntList> items = new HashMap<>();
+    for (int item = 0; item < texts.length; item++) {
+      if (texts[item].isEmpty()) {
+        continue;
+      }
+      for (String word : texts[item].split(" ")) {
+        IntList list = items.computeIfAbsent(word, w -> new IntList());
+        if (list.size == 0 || list.values[list.size - 1] != item) {
+          list.add(item);
+        }
+      }
+    }
+    String[] words = items.keySet().toArray(new String[0]);
+    int[][] itemsOfWord = new int[words.length][];
+    Map<String, IntList> trigrams = new HashMap<>();
+    for (int word = 0; word < words.length; word++) {
+      itemsOfWord[word] = items.get(words[word]).toArray();
+      for (String trigram : trigrams(words[word], true)) {
+        trigrams.computeIfAbsent(trigram, t -> new IntList()).add(word);
+      }
+    }
+    Map<String, int[]> wordsOfTrigram = new HashMap<>(trigrams.size() * 2);
+    trigrams.forEach((trigram, list) -> wordsOfTrigram.put(trigram, list.toArray()));
+    return new TrigramIndex(words, itemsOfWord, wordsOfTrigram);
+  }
+
+  /**
+   * Finds the items matching every word of the query, allowing typos. Words
+   * shorter than {@value #MIN_WORD_LENGTH} characters, such as an initial or
+   * a word that is still being typed, are too short to match by trigrams
+   * and are ignored rather than emptying the result.
+   *
+   * @param query the normalized query
+   * @return the score of each matching item, from 0 (exclusive) to 1 for an
+   *     exact match of every word; empty if no word is long enough
+   */
+  Map<Integer, Double> search(String query) {
+    String[] queryWords = query.split(" ");
+    int[] matched = new int[MAX_QUERY_WORDS];
+    int count = 0;
+    for (int i = 0; i < queryWords.length && count < MAX_QUERY_WORDS; i++) {
+      if (queryWords[i].length() >= MIN_WORD_LENGTH) {
+        matched[count++] = i;
+      }
+    }
+    Map<Integer, Double> scores = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      int word = matched[i];
+      Map<Integer, Double> wordScores =
+          matchItems(queryWords[word], word == queryWords.length - 1);
+      if (i == 0) {
+        scores = wordScores;
+      } else {
+        Map<Integer, Double> previous = scores;
+        scores = new HashMap<>();
+        for (Map.Entry<Integer, Double> entry : wordScores.entrySet()) {
+          Double score = previous.get(entry.getKey());
+          if (score != null) {
+            scores.put(entry.getKey(), score + entry.getValue());
+          }
+        }
+      }
+      if (scores.isEmpty()) {
+        return scores;
+      }
+    }
+    int matchedCount = count;
+    scores.replaceAll((item, score) -> score / matchedCount);
+    return scores;
+  }
+
+  private Map<Integer, Double> matchItems(String query, boolean unfinished) {
+    Map<Integer, Double> scores = new HashMap<>();
+    int maxEdits = query.length() <= 2 ? 0 : query.length() <= 5 ? 1 : 2;
+    Set<String> grams = trigrams(query, !unfinished);
+    int needed = Math.max(1, grams.size() - 3 * maxEdits);
+    Map<Integer, Integer> shared = new HashMap<>();
+    for (String gram : grams) {
+      for (int word : wordsOfTrigram.getOrDefault(gram, NO_WORDS)) {
+        shared.merge(word, 1, Integer::sum);
+      }
+    }
+    for (Map.Entry<Integer, Integer> candidate : shared.entrySet()) {
+      if (candidate.getValue() < needed) {
+        continue;
+      }
+      double similarity = similarity(query, words[candidate.getKey()], maxEdits, unfinished);
+      if (similarity > 0) {
+        for (int item : itemsOfWord[candidate.getKey()]) {
+          scores.merge(item, similarity, Math::max);
+        }
+      }
+    }
+    return scores;
+  }
+
+  /**
+   * Scores a candidate word from 1 for an exact match down to 0 for a word
+   * more than {@code maxEdits} edits away. An unfinished query is also
+   * compared with the beginnings of the word, at a small penalty.
+   */
+  private static double similarity(String query, String word, int maxEdits, boolean unfinished) {
+    if (!unfinished && Math.abs(query.length() - word.length()) > maxEdits) {
+      return 0;
+    }
+    int[] distances = distances(query, word, maxEdits);
+    if (distances == null) {
+      return 0;
+    }
+    double best = 0;
+    int distance = distances[word.length()];
+    if (distance <= maxEdits) {
+      best = 1 - (double) distance / Math.max(query.length(), word.length());
+    }
+    if (unfinished) {
+      int shortest = Math.max(1, query.length() - maxEdits);
+      int longest = Math.min(word.length() - 1, query.length() + maxEdits);
+      for (int length = shortest; length <= longest; length++) {
+        if (distances[length] <= maxEdits) {
+          best = Math.max(best, PREFIX_PENALTY
+              * (1 - (double) distances[length] / Math.max(query.length(), length)));
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the optimal string alignment distance (edits and adjacent
+   * transpositions), or {@code max + 1} once it is known to exceed
+   * {@code max}.
+   */
+  static int distance(String a, String b, int max) {
+    if (Math.abs(a.length() - b.length()) > max) {
+      return max + 1;
+    }
+    int[] distances = distances(a, b, max);
+    return distances == null ? max + 1 : Math.min(distances[b.length()], max + 1);
+  }
+
+  /**
+   * Returns the optimal string alignment distances from {@code a} to every
+   * prefix of {@code b}, indexed by prefix length, or null once all of them
+   * are known to exceed {@code max}.
+   */
+  private static int[] distances(String a, String b, int max) {
+    int[] previous2 = new int[b.length() + 1];
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      int rowMin = current[0];
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1),
+            previous[j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2)
+            && a.charAt(i - 2) == b.charAt(j - 1)) {
+          value = Math.min(value, previous2[j - 2] + 1);
+        }
+        current[j] = value;
+        rowMin = Math.min(rowMin, value);
+      }
+      if (rowMin > max) {
+        return null;
+      }
+      int[] recycled = previous2;
+      previous2 = previous;
+      previous = current;
+      current = recycled;
+    }
+    return previous;
+  }
+
+  private static Set<String> trigrams(String word, boolean padEnd) {
+    String padded = "$" + word + (padEnd ? "$" : "");
+    Set<String> grams = new LinkedHashSet<>();
+    for (int i = 0; i + 3 <= padded.length(); i++) {
+      grams.add(padded.substring(i, i + 3));
+    }
+    return grams;
+  }
+
+  /**
+   * Growable list of ints, avoiding boxing while the index is built.
+   */
+  private static final class IntList {
+    private int[] values = new int[2];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
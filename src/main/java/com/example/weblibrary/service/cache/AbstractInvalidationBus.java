@@ -0,0 +1,152 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Base class for invalidation buses that coalesces published ids before they
+ * are sent.
+ *
+ * <p>Ids published inside a transaction are collected per transaction and
+ * only queued once it commits, so other nodes never reload data that is not
+ * visible yet and rolled back changes are not broadcast. Queued ids are kept
+ * in one set per region until {@link #flush()} hands them to
+ * {@link #send(String, Set)}, so repeated changes of the same entity and
+ * bulk imports produce a single message per region and flush.
+ */
+@Slf4j
+public abstract class AbstractInvalidationBus implements InvalidationBus {
+  private final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+  private final Object pendingLock = new Object();
+  private Map<String, Set<Long>> pending = new HashMap<>();
+
+  @Override
+  public void publish(String region, Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      transactionPending().computeIfAbsent(region, r -> new LinkedHashSet<>()).addAll(ids);
+    } else {
+      enqueue(Map.of(region, Set.copyOf(ids)));
+    }
+  }
+
+  @Override
+  public void subscribe(String region, Listener listener) {
+    listeners.computeIfAbsent(region, r -> new CopyOnWriteArrayList<>()).add(listener);
+  }
+
+  /**
+   * Sends all queued ids.
+   */
+  public void flush() {
+    Map<String, Set<Long>> batch;
+    synchronized (pendingLock) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      batch = pending;
+      pending = new HashMap<>();
+    }
+    batch.forEach((region, ids) -> {
+      try {
+        send(region, ids);
+      } catch (RuntimeException e) {
+        log.warn("Invalidation bus: sending failed, will retry. Region: {}", region, e);
+        requeue(region, ids);
+      }
+    });
+  }
+
+  /**
+   * Sends the coalesced ids of a region to the other nodes.
+   *
+   * @param region the region of the entities
+   * @param ids the ids of the changed entities
+   */
+  protected abstract void send(String region, Set<Long> ids);
+
+  /**
+   * Called after ids have been queued; implementations either flush right
+   * away or leave it to a periodic flush.
+   */
+  protected abstract void onQueued();
+
+  /**
+   * Applies invalidations received from another node to the local listeners.
+   *
+   * @param region the region of the entities
+   * @param ids the ids of the changed entities
+   */
+  protected void deliver(String region, Set<Long> ids) {
+    for (Listener listener : listeners.getOrDefault(region, List.of())) {
+      try {
+        listener.invalidate(ids);
+      } catch (RuntimeException e) {
+        log.warn("Invalidation bus: listener failed. Region: {}", region, e);
+      }
+    }
+  }
+
+  /**
+   * Invalidates every region, used when invalidations may have been missed.
+   */
+  protected void deliverAll() {
+    listeners.forEach((region, regionListeners) -> {
+      for (Listener listener : regionListeners) {
+        try {
+          listener.invalidateAll();
+        } catch (RuntimeException e) {
+          log.warn("Invalidation bus: listener failed. Region: {}", region, e);
+        }
+      }
+    });
+  }
+
+  private void requeue(String region, Set<Long> ids) {
+    synchronized (pendingLock) {
+      pending.computeIfAbsent(region, r -> new LinkedHashSet<>()).addAll(ids);
+    }
+  }
+
+  private void enqueue(Map<String, Set<Long>> batch) {
+    synchronized (pendingLock) {
+      batch.forEach((region, ids) ->
+          pending.computeIfAbsent(region, r -> new LinkedHashSet<>()).addAll(ids));
+    }
+    onQueued();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Set<Long>> transactionPending() {
+    Map<String, Set<Long>> batch =
+        (Map<String, Set<Long>>) TransactionSynchronizationManager.getResource(this);
+    if (batch == null) {
+      Map<String, Set<Long>> created = new HashMap<>();
+      TransactionSynchronizationManager.bindResource(this, created);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          enqueue(created);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(AbstractInvalidationBus.this);
+        }
+      });
+      batch = created;
+    }
+    return batch;
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.weblibrary.service.cache;
+
+/**
+ * A single cache entry together with the links used by the eviction policy.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the cached value
+ */
+final class CacheNode<K, V> {
+  final K key;
+  volatile V value;
+  volatile boolean retired;
+  volatile long writeTime;
+  volatile long accessTime;
+  volatile long weight;
+  volatile boolean offHeap;
+  int frequency;
+  long expiresAt;
+  long policyWeight;
+
+  FrequencyList.Bucket<K, V> bucket;
+  CacheNode<K, V> prev;
+  CacheNode<K, V> next;
+  CacheNode<K, V> timerPrev;
+  CacheNode<K, V> timerNext;
+
+  CacheNode(K key, V value) {
+    this.key = key;
+    this.value = value;
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(value);
+  }
+}
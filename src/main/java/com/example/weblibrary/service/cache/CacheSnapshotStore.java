@@ -0,0 +1,309 @@
+package com.example.weblibrary.service.cache;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Saves the contents of caches to a local file on shutdown and restores them
+ * on startup, so a restarted node does not begin with cold caches.
+ *
+ * <p>The snapshot is gzip-compressed JSON holding the keys and access
+ * frequencies of every registered cache and, optionally, the values. Without
+ * values, only caches that have a refresh loader are warmed, by loading the
+ * snapshotted keys again.
+ *
+ * <p>A snapshot is discarded when
+ * <ul>
+ *   <li>its format version differs from the current one,</li>
+ *   <li>its schema fingerprint differs, i.e. the configured version or the
+ *       key or value types of a cache (including the fields of application
+ *       classes) have changed, or</li>
+ *   <li>the database change marker differs, i.e. the cached tables were
+ *       written while the node was down.</li>
+ * </ul>
+ * Keys that are already cached, or that are written or invalidated after
+ * restoring has started, are skipped, since snapshotted values could then
+ * overwrite newer data; the rest of the cache is still restored.
+ */
+@Slf4j
+public class CacheSnapshotStore {
+  private static final int FORMAT_VERSION = 1;
+  private static final String APPLICATION_PACKAGE = "com.example.weblibrary.";
+
+  private final Path file;
+  private final ObjectMapper objectMapper;
+  private final boolean includeValues;
+  private final String version;
+  private final Supplier<String> changeMarker;
+  private final Map<String, Registration<?, ?>> registrations = new LinkedHashMap<>();
+
+  /**
+   * Creates the store.
+   *
+   * @param file the snapshot file
+   * @param objectMapper mapper used to encode keys and values
+   * @param includeValues whether values are written to the snapshot
+   * @param version application-defined version; changing it discards snapshots
+   * @param changeMarker returns a value that changes whenever the cached data
+   *     changes in the database
+   */
+  public CacheSnapshotStore(Path file, ObjectMapper objectMapper, boolean includeValues,
+      String version, Supplier<String> changeMarker) {
+    this.file = file;
+    this.objectMapper = objectMapper;
+    this.includeValues = includeValues;
+    this.version = version;
+    this.changeMarker = changeMarker;
+  }
+
+  /**
+   * Registers a named cache for snapshots.
+   *
+   * @param cache the cache
+   * @param keyType the type of its keys
+   * @param valueType the type of its values
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   */
+  public <K, V> void register(SimpleCache<K, V> cache, JavaType keyType, JavaType valueType) {
+    registrations.put(cache.getName(), new Registration<>(cache, keyType, valueType));
+  }
+
+  /**
+   * Writes the contents of all registered caches to the snapshot file. The
+   * file is replaced atomically, so a failed save keeps the previous one.
+   */
+  public void save() {
+    try {
+      String marker = changeMarker.get();
+      Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      int count = 0;
+      try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary));
+           JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+        generator.writeStartObject();
+        generator.writeNumberField("format", FORMAT_VERSION);
+        generator.writeStringField("schema", fingerprint());
+        generator.writeStringField("marker", marker);
+        generator.writeFieldName("caches");
+        generator.writeStartObject();
+        for (Registration<?, ?> registration : registrations.values()) {
+          count += registration.write(generator, includeValues);
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+      }
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      log.info("Cache snapshot: saved {} entries to {}", count, file);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Cache snapshot: saving to {} failed", file, e);
+    }
+  }
+
+  /**
+   * Restores the registered caches from the snapshot file if it is present
+   * and still valid.
+   *
+   * @return the number of restored entries
+   */
+  public int restore() {
+    if (!Files.isRegularFile(file)) {
+      return 0;
+    }
+    List<Reservation<?, ?>> reservations = new ArrayList<>();
+    int count = 0;
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+      JsonNode snapshot = objectMapper.readTree(in);
+      String reason = validateFormat(snapshot);
+      if (reason == null) {
+        // The keys are reserved before the change marker is read: a write
+        // made after that is caught by the check of its key, one made
+        // before changes the marker.
+        JsonNode caches = snapshot.path("caches");
+        for (Map.Entry<String, Registration<?, ?>> registration : registrations.entrySet()) {
+          JsonNode entries = caches.path(registration.getKey());
+          if (entries.isArray()) {
+            reservations.add(registration.getValue().reserve(entries, objectMapper));
+          }
+        }
+        if (!changeMarker.get().equals(snapshot.path("marker").asText())) {
+          reason = "database changed";
+        }
+      }
+      if (reason != null) {
+        log.info("Cache snapshot: {} discarded, {}", file, reason);
+        return 0;
+      }
+      for (Reservation<?, ?> reservation : reservations) {
+        count += reservation.restore(objectMapper);
+      }
+      log.info("Cache snapshot: restored {} entries from {}", count, file);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Cache snapshot: restoring from {} failed", file, e);
+    } finally {
+      reservations.forEach(Reservation::release);
+    }
+    return count;
+  }
+
+  private String validateFormat(JsonNode snapshot) {
+    if (snapshot.path("format").asInt() != FORMAT_VERSION) {
+      return "format version changed";
+    }
+    if (!fingerprint().equals(snapshot.path("schema").asText())) {
+      return "schema changed";
+    }
+    return null;
+  }
+
+  /**
+   * Fingerprints the configured version and the types of all registered
+   * caches, including the fields of the application classes they contain.
+   */
+  private String fingerprint() {
+    StringBuilder description = new StringBuilder(version);
+    Set<Class<?>> visited = new HashSet<>();
+    registrations.forEach((name, registration) -> {
+      description.append('|').append(name);
+      describe(registration.keyType, description, visited);
+      describe(registration.valueType, description, visited);
+    });
+    return DigestUtils.md5DigestAsHex(description.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void describe(JavaType type, StringBuilder description, Set<Class<?>> visited) {
+    description.append(';').append(type.toCanonical());
+    for (int i = 0; i < type.containedTypeCount(); i++) {
+      describe(type.containedType(i), description, visited);
+    }
+    Class<?> raw = type.getRawClass();
+    if (!raw.getName().startsWith(APPLICATION_PACKAGE) || !visited.add(raw)) {
+      return;
+    }
+    for (Class<?> current = raw; current != null && current != Object.class;
+         current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          description.append(',').append(field.getName());
+          describe(objectMapper.getTypeFactory().constructType(field.getGenericType()),
+              description, visited);
+        }
+      }
+    }
+  }
+
+  /**
+   * An entry of a cache together with its access frequency.
+   *
+   * @param key the key
+   * @param value the value
+   * @param frequency the access frequency
+   * @param <K> the type of the key
+   * @param <V> the type of the value
+   */
+  record Entry<K, V>(K key, V value, int frequency) {
+  }
+
+  /**
+   * A registered cache and the types needed to read its entries back.
+   */
+  private record Registration<K, V>(SimpleCache<K, V> cache, JavaType keyType,
+                                    JavaType valueType) {
+
+    int write(JsonGenerator generator, boolean includeValues) throws IOException {
+      List<Entry<K, V>> entries = cache.entries();
+      generator.writeFieldName(cache.getName());
+      generator.writeStartArray();
+      for (Entry<K, V> entry : entries) {
+        generator.writeStartArray();
+        generator.writeObject(entry.key());
+        generator.writeNumber(entry.frequency());
+        if (includeValues) {
+          generator.writeObject(entry.value());
+        }
+        generator.writeEndArray();
+      }
+      generator.writeEndArray();
+      return entries.size();
+    }
+
+    Reservation<K, V> reserve(JsonNode entries, ObjectMapper objectMapper) {
+      Reservation<K, V> reservation = new Reservation<>(this, entries);
+      for (JsonNode entry : entries) {
+        K key = objectMapper.convertValue(entry.get(0), keyType);
+        reservation.versions.computeIfAbsent(key, cache::reserve);
+      }
+      return reservation;
+    }
+  }
+
+  /**
+   * The keys of one cache reserved for restoring, with their write versions.
+   */
+  private record Reservation<K, V>(Registration<K, V> registration, JsonNode entries,
+                                   Map<K, Long> versions) {
+
+    Reservation(Registration<K, V> registration, JsonNode entries) {
+      this(registration, entries, new LinkedHashMap<>());
+    }
+
+    int restore(ObjectMapper objectMapper) {
+      SimpleCache<K, V> cache = registration.cache();
+      Function<? super K, ? extends V> loader = cache.loader();
+      int count = 0;
+      int skipped = 0;
+      for (JsonNode entry : entries) {
+        K key = objectMapper.convertValue(entry.get(0), registration.keyType());
+        V value = null;
+        if (entry.size() > 2) {
+          value = objectMapper.convertValue(entry.get(2), registration.valueType());
+        } else if (loader != null) {
+          value = loader.apply(key);
+        }
+        if (value == null) {
+          continue;
+        }
+        if (cache.restore(key, value, entry.get(1).asInt(), versions.get(key))) {
+          count++;
+        } else {
+          skipped++;
+        }
+      }
+      if (skipped > 0) {
+        log.info("Cache snapshot: {} entries of {} skipped, present or written since start",
+            skipped, cache.getName());
+      }
+      return count;
+    }
+
+    void release() {
+      versions.keySet().forEach(registration.cache()::release);
+    }
+  }
+}
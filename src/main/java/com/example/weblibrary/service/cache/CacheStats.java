@@ -0,0 +1,52 @@
+package com.example.weblibrary.service.cache;
+
+/**
+ * Immutable snapshot of the statistics of a {@link SimpleCache}.
+ *
+ * @param hitCount number of lookups that found a live entry
+ * @param missCount number of lookups that found no entry or an expired one
+ * @param loadSuccessCount number of loads and refreshes that produced a value
+ * @param loadFailureCount number of loads and refreshes that threw
+ * @param totalLoadTime total time spent loading, in nanoseconds
+ * @param evictionCount number of entries removed by size, weight or expiration
+ * @param evictionWeight total weight of the evicted entries
+ */
+public record CacheStats(
+    long hitCount,
+    long missCount,
+    long loadSuccessCount,
+    long loadFailureCount,
+    long totalLoadTime,
+    long evictionCount,
+    long evictionWeight
+) {
+
+  /**
+   * Returns the number of lookups.
+   *
+   * @return hits plus misses
+   */
+  public long requestCount() {
+    return hitCount + missCount;
+  }
+
+  /**
+   * Returns the ratio of lookups that were hits.
+   *
+   * @return the hit rate, or 1.0 if there were no lookups
+   */
+  public double hitRate() {
+    long requests = requestCount();
+    return requests == 0L ? 1.0 : (double) hitCount / requests;
+  }
+
+  /**
+   * Returns the average time spent per load.
+   *
+   * @return the average load time in nanoseconds, or 0 if nothing was loaded
+   */
+  public double averageLoadPenalty() {
+    long loads = loadSuccessCount + loadFailureCount;
+    return loads == 0L ? 0.0 : (double) totalLoadTime / loads;
+  }
+}
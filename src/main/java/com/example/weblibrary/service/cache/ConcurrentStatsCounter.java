@@ -0,0 +1,57 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link StatsCounter} backed by {@link LongAdder}s, so concurrent
+ * readers do not contend on shared counters.
+ */
+public class ConcurrentStatsCounter implements StatsCounter {
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder loadSuccessCount = new LongAdder();
+  private final LongAdder loadFailureCount = new LongAdder();
+  private final LongAdder totalLoadTime = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+  private final LongAdder evictionWeight = new LongAdder();
+
+  @Override
+  public void recordHit() {
+    hitCount.increment();
+  }
+
+  @Override
+  public void recordMiss() {
+    missCount.increment();
+  }
+
+  @Override
+  public void recordLoadSuccess(long loadTime) {
+    loadSuccessCount.increment();
+    totalLoadTime.add(loadTime);
+  }
+
+  @Override
+  public void recordLoadFailure(long loadTime) {
+    loadFailureCount.increment();
+    totalLoadTime.add(loadTime);
+  }
+
+  @Override
+  public void recordEviction(long weight) {
+    evictionCount.increment();
+    evictionWeight.add(weight);
+  }
+
+  @Override
+  public CacheStats snapshot() {
+    return new CacheStats(
+        hitCount.sum(),
+        missCount.sum(),
+        loadSuccessCount.sum(),
+        loadFailureCount.sum(),
+        totalLoadTime.sum(),
+        evictionCount.sum(),
+        evictionWeight.sum());
+  }
+}
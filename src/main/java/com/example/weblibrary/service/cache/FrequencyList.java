@@ -0,0 +1,264 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Constant-time LFU bookkeeping.
+ *
+ * <p>Nodes are grouped into buckets of equal access frequency. Buckets form a
+ * doubly linked list ordered by ascending frequency, and every bucket keeps
+ * its nodes in a doubly linked list ordered by insertion time. Recording an
+ * access moves a node into the neighbouring bucket, and the eviction victim is
+ * always the oldest node of the first bucket, so every operation is O(1)
+ * regardless of the number of entries.
+ *
+ * <p>This class is not thread-safe; callers must provide synchronization.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the cached value
+ */
+final class FrequencyList<K, V> {
+
+  /**
+   * A group of nodes sharing the same access frequency.
+   *
+   * @param <K> the type of the key
+   * @param <V> the type of the cached value
+   */
+  static final class Bucket<K, V> {
+    int frequency;
+    Bucket<K, V> prev;
+    Bucket<K, V> next;
+    CacheNode<K, V> head;
+    CacheNode<K, V> tail;
+
+    Bucket(int frequency) {
+      this.frequency = frequency;
+    }
+
+    boolean isEmpty() {
+      return head == null;
+    }
+
+    void append(CacheNode<K, V> node) {
+      node.bucket = this;
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+    }
+
+    void unlink(CacheNode<K, V> node) {
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      node.bucket = null;
+    }
+  }
+
+  private Bucket<K, V> first;
+
+  /**
+   * Registers a newly inserted node with a frequency of one.
+   *
+   * @param node the node to add
+   */
+  void add(CacheNode<K, V> node) {
+    node.frequency = 1;
+    if (first == null || first.frequency != 1) {
+      Bucket<K, V> bucket = new Bucket<>(1);
+      bucket.next = first;
+      if (first != null) {
+        first.prev = bucket;
+      }
+      first = bucket;
+    }
+    first.append(node);
+  }
+
+  /**
+   * Registers a node with a known frequency, e.g. one restored from a
+   * snapshot. Finding the bucket walks the buckets of lower frequency, so
+   * this is not constant-time and is meant for bulk loading only.
+   *
+   * @param node the node to add
+   * @param frequency the frequency of the node, at least one
+   */
+  void add(CacheNode<K, V> node, int frequency) {
+    node.frequency = frequency;
+    Bucket<K, V> previous = null;
+    Bucket<K, V> bucket = first;
+    while (bucket != null && bucket.frequency < frequency) {
+      previous = bucket;
+      bucket = bucket.next;
+    }
+    if (bucket == null || bucket.frequency != frequency) {
+      Bucket<K, V> created = new Bucket<>(frequency);
+      created.prev = previous;
+      created.next = bucket;
+      if (bucket != null) {
+        bucket.prev = created;
+      }
+      if (previous == null) {
+        first = created;
+      } else {
+        previous.next = created;
+      }
+      bucket = created;
+    }
+    bucket.append(node);
+  }
+
+  /**
+   * Visits all nodes from the least to the most frequently used.
+   *
+   * @param action the action to run for every node
+   */
+  void forEach(Consumer<CacheNode<K, V>> action) {
+    for (Bucket<K, V> bucket = first; bucket != null; bucket = bucket.next) {
+      for (CacheNode<K, V> node = bucket.head; node != null; node = node.next) {
+        action.accept(node);
+      }
+    }
+  }
+
+  /**
+   * Records an access to the node, moving it to the next frequency bucket.
+   *
+   * @param node the accessed node
+   */
+  void touch(CacheNode<K, V> node) {
+    if (node.frequency == Integer.MAX_VALUE) {
+      return;
+    }
+    Bucket<K, V> current = node.bucket;
+    int frequency = node.frequency + 1;
+    Bucket<K, V> target = current.next;
+    if (target == null || target.frequency != frequency) {
+      target = new Bucket<>(frequency);
+      target.prev = current;
+      target.next = current.next;
+      if (current.next != null) {
+        current.next.prev = target;
+      }
+      current.next = target;
+    }
+    current.unlink(node);
+    node.frequency = frequency;
+    target.append(node);
+    if (current.isEmpty()) {
+      unlinkBucket(current);
+    }
+  }
+
+  /**
+   * Removes the node from the frequency structure.
+   *
+   * @param node the node to remove
+   */
+  void remove(CacheNode<K, V> node) {
+    Bucket<K, V> bucket = node.bucket;
+    if (bucket == null) {
+      return;
+    }
+    bucket.unlink(node);
+    if (bucket.isEmpty()) {
+      unlinkBucket(bucket);
+    }
+  }
+
+  /**
+   * Returns the least frequently used node, preferring the oldest one among
+   * nodes with equal frequency.
+   *
+   * @return the eviction candidate, or null if the structure is empty
+   */
+  CacheNode<K, V> victim() {
+    return first == null ? null : first.head;
+  }
+
+  /**
+   * Returns the eviction candidate, skipping the given node unless it is the
+   * only one left. Used to keep a freshly inserted entry from being evicted
+   * by its own insertion.
+   *
+   * @param excluded the node to spare, may be null
+   * @return the eviction candidate, or null if the structure is empty
+   */
+  CacheNode<K, V> victim(CacheNode<K, V> excluded) {
+    CacheNode<K, V> candidate = victim();
+    if (candidate == null || candidate != excluded) {
+      return candidate;
+    }
+    if (candidate.next != null) {
+      return candidate.next;
+    }
+    return first.next != null ? first.next.head : candidate;
+  }
+
+  /**
+   * Halves the frequency of every node, so entries that were popular long
+   * ago lose their advantage over recently popular ones. Buckets whose
+   * halved frequencies coincide are merged; relative order is preserved
+   * otherwise. Runs in time linear in the number of nodes.
+   */
+  void halve() {
+    Bucket<K, V> previous = null;
+    Bucket<K, V> bucket = first;
+    while (bucket != null) {
+      Bucket<K, V> next = bucket.next;
+      int frequency = Math.max(1, bucket.frequency >>> 1);
+      if (previous != null && previous.frequency == frequency) {
+        for (CacheNode<K, V> node = bucket.head; node != null; ) {
+          CacheNode<K, V> following = node.next;
+          node.frequency = frequency;
+          previous.append(node);
+          node = following;
+        }
+        bucket.head = null;
+        bucket.tail = null;
+        unlinkBucket(bucket);
+      } else {
+        bucket.frequency = frequency;
+        for (CacheNode<K, V> node = bucket.head; node != null; node = node.next) {
+          node.frequency = frequency;
+        }
+        previous = bucket;
+      }
+      bucket = next;
+    }
+  }
+
+  /**
+   * Drops all buckets.
+   */
+  void clear() {
+    first = null;
+  }
+
+  private void unlinkBucket(Bucket<K, V> bucket) {
+    if (bucket.prev == null) {
+      first = bucket.next;
+    } else {
+      bucket.prev.next = bucket.next;
+    }
+    if (bucket.next != null) {
+      bucket.next.prev = bucket.prev;
+    }
+    bucket.prev = null;
+    bucket.next = null;
+  }
+}
@@ -0,0 +1,124 @@
+package com.example.weblibrary.service.cache;
+
+/**
+ * Count-min sketch estimating how often keys were used recently, the
+ * admission filter of the TinyLFU policy.
+ *
+ * <p>Counters are four bits wide and packed sixteen to a {@code long}. Each
+ * key maps to one counter in each of four rows, and its estimate is the
+ * minimum of those counters, so collisions can only overestimate. After a
+ * sample of ten increments per table slot all counters are halved, so the
+ * sketch forgets old popularity and reflects recent use.
+ *
+ * <p>The sketch counts every accessed key, including keys that were evicted
+ * or never admitted, and ages all counts by the periodic halving. This
+ * history of recent use is what lets it judge a new entry against the entry
+ * it would displace.
+ *
+ * <p>This class is not thread-safe; callers must hold the eviction lock.
+ *
+ * @param <K> the type of the key
+ */
+final class FrequencySketch<K> {
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final int MAXIMUM_CAPACITY = 1 << 26;
+
+  private long[] table = new long[0];
+  private int tableMask;
+  private int sampleSize;
+  private int size;
+
+  /**
+   * Grows the sketch so it can tell apart the given number of keys. Growing
+   * forgets all counts.
+   *
+   * @param maximumSize the expected number of distinct keys
+   */
+  void ensureCapacity(long maximumSize) {
+    int maximum = (int) Math.min(Math.max(maximumSize, 8L), MAXIMUM_CAPACITY);
+    if (table.length >= maximum) {
+      return;
+    }
+    table = new long[Integer.highestOneBit(maximum - 1) << 1];
+    tableMask = table.length - 1;
+    sampleSize = 10 * maximum;
+    size = 0;
+  }
+
+  /**
+   * Returns the estimated number of recent uses of the key, at most 15.
+   *
+   * @param key the key
+   * @return the estimated frequency
+   */
+  int frequency(K key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Records a use of the key.
+   *
+   * @param key the key
+   * @return true if the counters were halved as a result
+   */
+  boolean increment(K key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++size >= sampleSize) {
+      reset();
+      return true;
+    }
+    return false;
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Halves every counter. Odd counters lose their remainder, which is
+   * accounted for when lowering the sample count.
+   */
+  private void reset() {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size - (odd >>> 2)) >>> 1;
+  }
+
+  private int indexOf(int hash, int row) {
+    long index = (hash + SEEDS[row]) * SEEDS[row];
+    index += index >>> 32;
+    return ((int) index) & tableMask;
+  }
+
+  private static int spread(int hash) {
+    int x = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+}
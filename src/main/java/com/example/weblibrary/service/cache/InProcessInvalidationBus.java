@@ -0,0 +1,50 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Invalidation bus that connects nodes living in the same JVM.
+ *
+ * <p>Every bus created with {@link #InProcessInvalidationBus()} starts its own
+ * group; buses created with {@link #InProcessInvalidationBus(InProcessInvalidationBus)}
+ * join the group of the given peer and receive each other's invalidations
+ * synchronously. A single bus without peers is a no-op, which suits a
+ * single-node deployment, and a group stands in for a cluster in tests.
+ */
+public class InProcessInvalidationBus extends AbstractInvalidationBus {
+  private final List<InProcessInvalidationBus> group;
+
+  /**
+   * Creates a bus in a new group.
+   */
+  public InProcessInvalidationBus() {
+    this.group = new CopyOnWriteArrayList<>();
+    group.add(this);
+  }
+
+  /**
+   * Creates a bus in the group of the given peer.
+   *
+   * @param peer a bus of the group to join
+   */
+  public InProcessInvalidationBus(InProcessInvalidationBus peer) {
+    this.group = peer.group;
+    group.add(this);
+  }
+
+  @Override
+  protected void send(String region, Set<Long> ids) {
+    for (InProcessInvalidationBus node : group) {
+      if (node != this) {
+        node.deliver(region, ids);
+      }
+    }
+  }
+
+  @Override
+  protected void onQueued() {
+    flush();
+  }
+}
@@ -0,0 +1,147 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * Immutable cached list patched by {@link ListCachePatcher}. Along with the
+ * elements it keeps their positions by entity id and its estimated retained
+ * size, so that changing a few elements of a large list neither scans it
+ * for their positions nor has {@link SizeEstimator} walk it again: the size
+ * of a new version is the size of the previous one adjusted by the changed
+ * elements.
+ *
+ * <p>Versions of a list in which elements were only replaced or appended
+ * share one position map. A position read from it is checked against the
+ * element found there, so the entries added for a newer version are ignored
+ * by older ones. Removing elements shifts the positions and builds a new map.
+ *
+ * @param <T> the type of the elements
+ */
+final class IndexedList<T> extends AbstractList<T> implements RandomAccess {
+  /**
+   * Estimated size of an element beyond the element itself: its reference
+   * in the array and its entry, boxed id and boxed position in the map.
+   */
+  private static final long ELEMENT_OVERHEAD = 4L + 32L + 16L + 16L;
+
+  private final Object[] elements;
+  private final Function<? super T, Long> idFunction;
+  private final Map<Long, Integer> positions;
+  private final long estimatedSize;
+
+  private IndexedList(Object[] elements, Function<? super T, Long> idFunction,
+      Map<Long, Integer> positions, long estimatedSize) {
+    this.elements = elements;
+    this.idFunction = idFunction;
+    this.positions = positions;
+    this.estimatedSize = estimatedSize;
+  }
+
+  /**
+   * Returns the list itself if it is already indexed, or an indexed copy of
+   * it. Copying indexes and weighs every element once.
+   *
+   * @param list the cached list
+   * @param idFunction returns the entity id of an element
+   * @param <T> the type of the elements
+   * @return the indexed list
+   */
+  static <T> IndexedList<T> of(List<T> list, Function<? super T, Long> idFunction) {
+    if (list instanceof IndexedList<T> indexed) {
+      return indexed;
+    }
+    Object[] elements = list.toArray();
+    Map<Long, Integer> positions = index(elements, idFunction);
+    return new IndexedList<>(elements, idFunction, positions,
+        SizeEstimator.estimate(list) + SizeEstimator.estimate(positions));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    Objects.checkIndex(index, elements.length);
+    return (T) elements[index];
+  }
+
+  @Override
+  public int size() {
+    return elements.length;
+  }
+
+  /**
+   * Returns the position of the element with the given id.
+   *
+   * @param id the entity id
+   * @return the position, or -1 if the list has no such element
+   */
+  int positionOf(Long id) {
+    Integer position = positions.get(id);
+    if (position == null || position >= elements.length
+        || !id.equals(idFunction.apply(get(position)))) {
+      return -1;
+    }
+    return position;
+  }
+
+  /**
+   * Returns the estimated retained size of the list in bytes.
+   *
+   * @return the estimated size
+   */
+  long estimatedSize() {
+    return estimatedSize;
+  }
+
+  /**
+   * Returns a new version of the list.
+   *
+   * @param changes the new elements by position; a null element is removed
+   * @param appended the elements added at the end
+   * @return the new version
+   */
+  IndexedList<T> with(Map<Integer, T> changes, List<T> appended) {
+    Object[] patched = Arrays.copyOf(elements, elements.length + appended.size());
+    long size = estimatedSize;
+    boolean removed = false;
+    for (Map.Entry<Integer, T> change : changes.entrySet()) {
+      int position = change.getKey();
+      size -= SizeEstimator.estimate(elements[position]);
+      if (change.getValue() == null) {
+        size -= ELEMENT_OVERHEAD;
+        removed = true;
+      } else {
+        size += SizeEstimator.estimate(change.getValue());
+      }
+      patched[position] = change.getValue();
+    }
+    for (int i = 0; i < appended.size(); i++) {
+      patched[elements.length + i] = appended.get(i);
+      size += SizeEstimator.estimate(appended.get(i)) + ELEMENT_OVERHEAD;
+    }
+    if (removed) {
+      Object[] compacted = Arrays.stream(patched).filter(Objects::nonNull).toArray();
+      return new IndexedList<>(compacted, idFunction, index(compacted, idFunction), size);
+    }
+    for (int i = 0; i < appended.size(); i++) {
+      positions.put(idFunction.apply(appended.get(i)), elements.length + i);
+    }
+    return new IndexedList<>(patched, idFunction, positions, size);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Map<Long, Integer> index(Object[] elements,
+      Function<? super T, Long> idFunction) {
+    Map<Long, Integer> positions = new HashMap<>();
+    for (int i = 0; i < elements.length; i++) {
+      positions.put(idFunction.apply((T) elements[i]), i);
+    }
+    return positions;
+  }
+}
@@ -0,0 +1,91 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Propagates entity changes made on one application node to the caches of
+ * the other nodes.
+ *
+ * <p>Invalidations are grouped by region (the kind of entity, e.g.
+ * {@code "books"}) and carry entity ids. A node never receives its own
+ * invalidations, since it has already updated its caches itself.
+ */
+public interface InvalidationBus {
+
+  /**
+   * Publishes the ids of changed entities to the other nodes. When called
+   * inside a transaction the ids are sent after it commits.
+   *
+   * @param region the region of the entities
+   * @param ids the ids of the changed entities
+   */
+  void publish(String region, Collection<Long> ids);
+
+  /**
+   * Publishes the id of a changed entity to the other nodes.
+   *
+   * @param region the region of the entity
+   * @param id the id of the changed entity
+   */
+  default void publish(String region, Long id) {
+    publish(region, List.of(id));
+  }
+
+  /**
+   * Registers a listener for invalidations published by other nodes.
+   *
+   * @param region the region to listen to
+   * @param listener the listener applying the invalidations
+   */
+  void subscribe(String region, Listener listener);
+
+  /**
+   * Subscribes the caches of a region: invalidated ids are removed from the
+   * entity cache and the dependent caches (e.g. list caches) are cleared.
+   *
+   * @param region the region to listen to
+   * @param cache the cache keyed by entity id
+   * @param dependents caches derived from the region's entities
+   */
+  default void subscribe(String region, SimpleCache<Long, ?> cache,
+      SimpleCache<?, ?>... dependents) {
+    subscribe(region, new Listener() {
+      @Override
+      public void invalidate(Set<Long> ids) {
+        ids.forEach(cache::remove);
+        for (SimpleCache<?, ?> dependent : dependents) {
+          dependent.clear();
+        }
+      }
+
+      @Override
+      public void invalidateAll() {
+        cache.clear();
+        for (SimpleCache<?, ?> dependent : dependents) {
+          dependent.clear();
+        }
+      }
+    });
+  }
+
+  /**
+   * Applies invalidations received from other nodes.
+   */
+  interface Listener {
+
+    /**
+     * Invalidates the given entities.
+     *
+     * @param ids the ids of the changed entities
+     */
+    void invalidate(Set<Long> ids);
+
+    /**
+     * Invalidates every entity of the region, called when invalidations may
+     * have been missed (e.g. after a lost connection).
+     */
+    void invalidateAll();
+  }
+}
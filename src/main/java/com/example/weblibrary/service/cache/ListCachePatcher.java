@@ -0,0 +1,177 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the cached lists of a list cache consistent with writes of single
+ * entities without dropping the whole cache.
+ *
+ * <p>Each list entry depends on the ids of the entities it contains and on
+ * the attribute values encoded in its key (e.g. {@code genre:Fantasy}). A
+ * write affects an entry if the list contains one of the written ids or if
+ * one of the written values belongs to the list according to the membership
+ * predicate. Affected entries whose membership is decided exactly by the
+ * predicate are patched in place: the old element is replaced, removed or
+ * the new one appended. All other affected entries are invalidated.
+ *
+ * <p>A patched list is stored as an {@link IndexedList}, which finds the
+ * patched elements by id and adjusts its estimated size by their
+ * difference, so a write costs the same whatever the length of the lists.
+ * Only the first patch of a freshly loaded list indexes and weighs it.
+ *
+ * <p>The patcher holds no state, so a single instance can serve any cache.
+ *
+ * @param <T> the type of the list elements
+ */
+public final class ListCachePatcher<T> {
+  private final Function<? super T, Long> idFunction;
+  private final BiPredicate<String, ? super T> membership;
+  private final Predicate<String> patchable;
+
+  /**
+   * Creates a patcher.
+   *
+   * @param idFunction returns the entity id of a list element
+   * @param membership tells whether an element belongs to the list of a key
+   * @param patchable tells whether the list of a key can be patched in place;
+   *     lists whose membership is only approximated by the predicate must be
+   *     invalidated instead
+   */
+  public ListCachePatcher(Function<? super T, Long> idFunction,
+      BiPredicate<String, ? super T> membership, Predicate<String> patchable) {
+    this.idFunction = idFunction;
+    this.membership = membership;
+    this.patchable = patchable;
+  }
+
+  /**
+   * Applies created or updated entities to the cached lists.
+   *
+   * @param cache the list cache
+   * @param values the current state of the written entities
+   */
+  public void upsert(SimpleCache<String, List<T>> cache, Collection<? extends T> values) {
+    Set<Long> ids = new HashSet<>();
+    for (T value : values) {
+      ids.add(idFunction.apply(value));
+    }
+    for (String key : cache.keys()) {
+      if (patchable.test(key)) {
+        cache.computeIfPresent(key, (k, list) -> patch(k, list, values, Set.of()));
+      } else if (affected(key, cache, values, ids)) {
+        cache.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Applies a created or updated entity to the cached lists.
+   *
+   * @param cache the list cache
+   * @param value the current state of the written entity
+   */
+  public void upsert(SimpleCache<String, List<T>> cache, T value) {
+    upsert(cache, List.of(value));
+  }
+
+  /**
+   * Removes deleted entities from the cached lists.
+   *
+   * @param cache the list cache
+   * @param ids the ids of the deleted entities
+   */
+  public void delete(SimpleCache<String, List<T>> cache, Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    Set<Long> deleted = Set.copyOf(ids);
+    for (String key : cache.keys()) {
+      if (patchable.test(key)) {
+        cache.computeIfPresent(key, (k, list) -> patch(k, list, List.of(), deleted));
+      } else if (affected(key, cache, List.of(), deleted)) {
+        cache.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Removes a deleted entity from the cached lists.
+   *
+   * @param cache the list cache
+   * @param id the id of the deleted entity
+   */
+  public void delete(SimpleCache<String, List<T>> cache, Long id) {
+    delete(cache, List.of(id));
+  }
+
+  /**
+   * Invalidates the cached lists containing any of the entities, for changes
+   * that alter the elements without the entities being written themselves,
+   * e.g. a renamed author embedded in its books.
+   *
+   * @param cache the list cache
+   * @param ids the ids of the changed entities
+   */
+  public void invalidate(SimpleCache<String, List<T>> cache, Collection<Long> ids) {
+    Set<Long> changed = Set.copyOf(ids);
+    for (String key : cache.keys()) {
+      if (affected(key, cache, List.of(), changed)) {
+        cache.remove(key);
+      }
+    }
+  }
+
+  private boolean affected(String key, SimpleCache<String, List<T>> cache,
+      Collection<? extends T> values, Set<Long> ids) {
+    for (T value : values) {
+      if (membership.test(key, value)) {
+        return true;
+      }
+    }
+    List<T> list = cache.peek(key);
+    if (list == null) {
+      return false;
+    }
+    for (T element : list) {
+      if (ids.contains(idFunction.apply(element))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private List<T> patch(String key, List<T> list, Collection<? extends T> values,
+      Set<Long> deleted) {
+    IndexedList<T> indexed = IndexedList.of(list, idFunction);
+    Map<Integer, T> changes = new HashMap<>();
+    List<T> appended = new ArrayList<>();
+    for (T value : values) {
+      int position = indexed.positionOf(idFunction.apply(value));
+      boolean member = membership.test(key, value);
+      if (position >= 0) {
+        changes.put(position, member ? value : null);
+      } else if (member) {
+        appended.add(value);
+      }
+    }
+    for (Long id : deleted) {
+      int position = indexed.positionOf(id);
+      if (position >= 0) {
+        changes.put(position, null);
+      }
+    }
+    if (changes.isEmpty() && appended.isEmpty()) {
+      return indexed;
+    }
+    return indexed.with(changes, appended);
+  }
+}
@@ -0,0 +1,99 @@
+package com.example.weblibrary.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StatsCounter} that records cache events as Micrometer meters tagged
+ * with the cache name. Load times are recorded in a timer with a percentile
+ * histogram, so load latency distributions are available to the metrics
+ * backend.
+ */
+public class MicrometerStatsCounter implements StatsCounter {
+  private final Counter hitCount;
+  private final Counter missCount;
+  private final Timer loadSuccess;
+  private final Timer loadFailure;
+  private final Counter evictionCount;
+  private final Counter evictionWeight;
+
+  /**
+   * Registers the meters of one cache.
+   *
+   * @param registry the registry to register the meters in
+   * @param cacheName the value of the {@code cache} tag
+   */
+  public MicrometerStatsCounter(MeterRegistry registry, String cacheName) {
+    hitCount = Counter.builder("cache.gets")
+        .tag("cache", cacheName)
+        .tag("result", "hit")
+        .description("Number of cache lookups that found a live entry")
+        .register(registry);
+    missCount = Counter.builder("cache.gets")
+        .tag("cache", cacheName)
+        .tag("result", "miss")
+        .description("Number of cache lookups that found no live entry")
+        .register(registry);
+    loadSuccess = Timer.builder("cache.loads")
+        .tag("cache", cacheName)
+        .tag("result", "success")
+        .description("Time spent loading or refreshing cache entries")
+        .publishPercentileHistogram()
+        .register(registry);
+    loadFailure = Timer.builder("cache.loads")
+        .tag("cache", cacheName)
+        .tag("result", "failure")
+        .description("Time spent loading or refreshing cache entries")
+        .publishPercentileHistogram()
+        .register(registry);
+    evictionCount = Counter.builder("cache.evictions")
+        .tag("cache", cacheName)
+        .description("Number of entries evicted by size, weight or expiration")
+        .register(registry);
+    evictionWeight = Counter.builder("cache.eviction.weight")
+        .tag("cache", cacheName)
+        .description("Total weight of the evicted entries")
+        .register(registry);
+  }
+
+  @Override
+  public void recordHit() {
+    hitCount.increment();
+  }
+
+  @Override
+  public void recordMiss() {
+    missCount.increment();
+  }
+
+  @Override
+  public void recordLoadSuccess(long loadTime) {
+    loadSuccess.record(loadTime, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordLoadFailure(long loadTime) {
+    loadFailure.record(loadTime, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordEviction(long weight) {
+    evictionCount.increment();
+    evictionWeight.increment(weight);
+  }
+
+  @Override
+  public CacheStats snapshot() {
+    return new CacheStats(
+        (long) hitCount.count(),
+        (long) missCount.count(),
+        loadSuccess.count(),
+        loadFailure.count(),
+        (long) (loadSuccess.totalTime(TimeUnit.NANOSECONDS)
+            + loadFailure.totalTime(TimeUnit.NANOSECONDS)),
+        (long) evictionCount.count(),
+        (long) evictionWeight.count());
+  }
+}
@@ -0,0 +1,326 @@
+package com.example.weblibrary.service.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Second cache tier keeping serialized entries outside the Java heap, so
+ * large values such as whole catalog lists can be cached without adding to
+ * heap usage and GC work.
+ *
+ * <p>Memory is taken from direct {@link ByteBuffer} slabs, allocated lazily
+ * as the store fills up, and divided into fixed-size blocks. An entry
+ * occupies as many blocks as its encoded size needs; only its block list is
+ * kept on the heap. When there are not enough free blocks for a new entry,
+ * the least recently used entries are evicted.
+ *
+ * <p>A {@link SimpleCache} with this store as its second tier moves entries
+ * evicted for space here and promotes them back when they are read (see
+ * {@link SimpleCache.Builder#offHeap(OffHeapStore)}).
+ *
+ * <p>All operations on the index are synchronized; encoding and decoding
+ * happen outside the lock.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class OffHeapStore<K, V> {
+  private static final int DEFAULT_BLOCK_SIZE = 8 * 1024;
+  private static final int SLAB_SIZE = 16 * 1024 * 1024;
+
+  private final Codec<V> codec;
+  private final int blockSize;
+  private final int blocksPerSlab;
+  private final int blockCount;
+  private final ByteBuffer[] slabs;
+  private final int[] freeBlocks;
+  private final Map<K, Slot> slots = new LinkedHashMap<>(16, 0.75f, true);
+  private int freeCount;
+  private long usedBytes;
+  private long evictionCount;
+
+  /**
+   * Creates a store with 8 KB blocks.
+   *
+   * @param capacity the maximum number of off-heap bytes
+   * @param codec the codec used to serialize the values
+   */
+  public OffHeapStore(long capacity, Codec<V> codec) {
+    this(capacity, DEFAULT_BLOCK_SIZE, codec);
+  }
+
+  /**
+   * Creates a store.
+   *
+   * @param capacity the maximum number of off-heap bytes
+   * @param blockSize the size of a block in bytes; larger blocks waste more
+   *     space per entry but need fewer of them
+   * @param codec the codec used to serialize the values
+   */
+  public OffHeapStore(long capacity, int blockSize, Codec<V> codec) {
+    if (codec == null) {
+      throw new IllegalArgumentException("Codec must not be null");
+    }
+    if (blockSize <= 0 || blockSize > SLAB_SIZE) {
+      throw new IllegalArgumentException("Block size must be between 1 and " + SLAB_SIZE);
+    }
+    long blocks = capacity / blockSize;
+    if (blocks <= 0L || blocks > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Capacity must hold between 1 and "
+          + Integer.MAX_VALUE + " blocks");
+    }
+    this.codec = codec;
+    this.blockSize = blockSize;
+    this.blocksPerSlab = SLAB_SIZE / blockSize;
+    this.blockCount = (int) blocks;
+    this.slabs = new ByteBuffer[(blockCount + blocksPerSlab - 1) / blocksPerSlab];
+    this.freeBlocks = new int[blockCount];
+    for (int i = 0; i < blockCount; i++) {
+      freeBlocks[i] = blockCount - 1 - i;
+    }
+    this.freeCount = blockCount;
+  }
+
+  /**
+   * Stores the value, replacing a previous one and evicting the least
+   * recently used entries if space is needed.
+   *
+   * @param key the key
+   * @param value the value
+   * @param writeTime the time the value was written, in {@link System#nanoTime()} units
+   * @return false if the value is larger than the whole store and was not stored
+   */
+  boolean put(K key, V value, long writeTime) {
+    byte[] bytes = codec.encode(value);
+    int needed = Math.max(1, (bytes.length + blockSize - 1) / blockSize);
+    synchronized (this) {
+      Slot previous = slots.remove(key);
+      if (previous != null) {
+        release(previous);
+      }
+      if (needed > blockCount) {
+        return false;
+      }
+      Iterator<Slot> eldest = slots.values().iterator();
+      while (freeCount < needed) {
+        release(eldest.next());
+        eldest.remove();
+        evictionCount++;
+      }
+      int[] blocks = new int[needed];
+      for (int i = 0; i < needed; i++) {
+        blocks[i] = freeBlocks[--freeCount];
+        int offset = i * blockSize;
+        slab(blocks[i]).put(offsetOf(blocks[i]), bytes, offset,
+            Math.min(blockSize, bytes.length - offset));
+      }
+      slots.put(key, new Slot(blocks, bytes.length, writeTime));
+      usedBytes += bytes.length;
+      return true;
+    }
+  }
+
+  /**
+   * Reads the value of the key and marks it as recently used.
+   *
+   * @param key the key
+   * @return the value with its write time, or null if the key is not stored
+   */
+  Stored<V> get(K key) {
+    byte[] bytes;
+    long writeTime;
+    synchronized (this) {
+      Slot slot = slots.get(key);
+      if (slot == null) {
+        return null;
+      }
+      bytes = new byte[slot.length];
+      for (int i = 0; i < slot.blocks.length; i++) {
+        int offset = i * blockSize;
+        slab(slot.blocks[i]).get(offsetOf(slot.blocks[i]), bytes, offset,
+            Math.min(blockSize, bytes.length - offset));
+      }
+      writeTime = slot.writeTime;
+    }
+    return new Stored<>(codec.decode(bytes), writeTime);
+  }
+
+  /**
+   * Returns whether the key is stored.
+   *
+   * @param key the key
+   * @return true if the key is stored
+   */
+  synchronized boolean contains(K key) {
+    return slots.containsKey(key);
+  }
+
+  /**
+   * Removes the key and frees its blocks.
+   *
+   * @param key the key
+   */
+  synchronized void remove(K key) {
+    Slot slot = slots.remove(key);
+    if (slot != null) {
+      release(slot);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the stored keys.
+   *
+   * @return the keys
+   */
+  synchronized List<K> keys() {
+    return new ArrayList<>(slots.keySet());
+  }
+
+  /**
+   * Removes all entries. Allocated slabs are kept for reuse.
+   */
+  public synchronized void clear() {
+    slots.values().forEach(this::release);
+    slots.clear();
+  }
+
+  /**
+   * Returns the number of stored entries.
+   *
+   * @return the number of entries
+   */
+  public synchronized int size() {
+    return slots.size();
+  }
+
+  /**
+   * Returns the total encoded size of the stored entries.
+   *
+   * @return the used bytes, excluding unused space in the last block of each entry
+   */
+  public synchronized long usedBytes() {
+    return usedBytes;
+  }
+
+  /**
+   * Returns the off-heap memory allocated so far.
+   *
+   * @return the allocated bytes
+   */
+  public synchronized long allocatedBytes() {
+    long allocated = 0L;
+    for (ByteBuffer slab : slabs) {
+      allocated += slab == null ? 0L : slab.capacity();
+    }
+    return allocated;
+  }
+
+  /**
+   * Returns the number of entries evicted to make room for others.
+   *
+   * @return the eviction count
+   */
+  public synchronized long evictionCount() {
+    return evictionCount;
+  }
+
+  private void release(Slot slot) {
+    for (int block : slot.blocks) {
+      freeBlocks[freeCount++] = block;
+    }
+    usedBytes -= slot.length;
+  }
+
+  private ByteBuffer slab(int block) {
+    int index = block / blocksPerSlab;
+    ByteBuffer slab = slabs[index];
+    if (slab == null) {
+      int blocks = Math.min(blocksPerSlab, blockCount - index * blocksPerSlab);
+      slab = ByteBuffer.allocateDirect(blocks * blockSize);
+      slabs[index] = slab;
+    }
+    return slab;
+  }
+
+  private int offsetOf(int block) {
+    return (block % blocksPerSlab) * blockSize;
+  }
+
+  /**
+   * Converts values to bytes and back.
+   *
+   * @param <V> the type of the values
+   */
+  public interface Codec<V> {
+
+    /**
+     * Serializes a value.
+     *
+     * @param value the value
+     * @return the encoded value
+     */
+    byte[] encode(V value);
+
+    /**
+     * Deserializes a value.
+     *
+     * @param bytes the encoded value
+     * @return the value
+     */
+    V decode(byte[] bytes);
+
+    /**
+     * Returns a codec writing values as JSON.
+     *
+     * @param objectMapper the mapper
+     * @param type the type of the values
+     * @param <V> the type of the values
+     * @return the codec
+     */
+    static <V> Codec<V> json(ObjectMapper objectMapper, JavaType type) {
+      return new Codec<>() {
+        @Override
+        public byte[] encode(V value) {
+          try {
+            return objectMapper.writeValueAsBytes(value);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+
+        @Override
+        public V decode(byte[] bytes) {
+          try {
+            return objectMapper.readValue(bytes, type);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      };
+    }
+  }
+
+  /**
+   * A value read from the store.
+   *
+   * @param value the value
+   * @param writeTime the time the value was written
+   * @param <V> the type of the value
+   */
+  record Stored<V>(V value, long writeTime) {
+  }
+
+  /**
+   * The blocks holding an entry.
+   */
+  private record Slot(int[] blocks, int length, long writeTime) {
+  }
+}
@@ -0,0 +1,226 @@
+package com.example.weblibrary.service.cache;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Invalidation bus built on PostgreSQL {@code LISTEN/NOTIFY}.
+ *
+ * <p>Queued ids are flushed periodically, so every flush sends at most one
+ * notification per region unless the ids exceed the notification payload
+ * limit, in which case they are split. The payload has the form
+ * {@code origin;region;id,id,...}; notifications carrying this node's origin
+ * are ignored.
+ *
+ * <p>The bus keeps two dedicated connections outside of the connection pool:
+ * one for sending and one that listens on a background thread. When the
+ * listening connection is lost, notifications sent in the meantime are lost
+ * as well, so every subscribed region is invalidated after reconnecting.
+ */
+@Slf4j
+public class PostgresInvalidationBus extends AbstractInvalidationBus implements AutoCloseable {
+  private static final String CHANNEL = "cache_invalidation";
+  private static final int MAX_PAYLOAD = 7900;
+  private static final int POLL_TIMEOUT_MILLIS = 1000;
+  private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+  private final String url;
+  private final String username;
+  private final String password;
+  private final Duration flushInterval;
+  private final String origin = UUID.randomUUID().toString();
+  private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+      runnable -> daemon(runnable, "cache-invalidation-flusher"));
+  private final Thread listener = daemon(this::listen, "cache-invalidation-listener");
+  private volatile boolean running;
+  private Connection sendConnection;
+
+  /**
+   * Creates the bus.
+   *
+   * @param url JDBC url of the database
+   * @param username database user
+   * @param password database password
+   * @param flushInterval how long published ids are collected before sending
+   */
+  public PostgresInvalidationBus(String url, String username, String password,
+      Duration flushInterval) {
+    this.url = url;
+    this.username = username;
+    this.password = password;
+    this.flushInterval = flushInterval;
+  }
+
+  /**
+   * Starts listening and periodic flushing.
+   */
+  public void start() {
+    running = true;
+    listener.start();
+    long interval = flushInterval.toMillis();
+    flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Sends the remaining ids and stops the background threads.
+   */
+  @Override
+  public void close() {
+    running = false;
+    flusher.shutdown();
+    try {
+      flusher.awaitTermination(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+    listener.interrupt();
+    synchronized (this) {
+      closeQuietly(sendConnection);
+      sendConnection = null;
+    }
+  }
+
+  @Override
+  protected synchronized void send(String region, Set<Long> ids) {
+    try {
+      if (sendConnection == null || sendConnection.isClosed()) {
+        sendConnection = DriverManager.getConnection(url, username, password);
+      }
+      try (PreparedStatement statement =
+               sendConnection.prepareStatement("SELECT pg_notify(?, ?)")) {
+        for (String payload : payloads(region, ids)) {
+          statement.setString(1, CHANNEL);
+          statement.setString(2, payload);
+          statement.execute();
+        }
+      }
+    } catch (SQLException e) {
+      closeQuietly(sendConnection);
+      sendConnection = null;
+      throw new IllegalStateException("Could not send cache invalidation", e);
+    }
+  }
+
+  @Override
+  protected void onQueued() {
+    // Sent by the periodic flush.
+  }
+
+  /**
+   * Encodes the ids of a region as notification payloads, splitting them so
+   * that no payload exceeds the limit by more than one id.
+   *
+   * @param region the region of the entities
+   * @param ids the ids of the changed entities
+   * @return the payloads to send, at least one
+   */
+  List<String> payloads(String region, Set<Long> ids) {
+    List<String> payloads = new ArrayList<>();
+    String prefix = origin + ";" + region + ";";
+    StringBuilder payload = new StringBuilder(prefix);
+    for (Long id : ids) {
+      if (payload.length() > MAX_PAYLOAD) {
+        payloads.add(payload.toString());
+        payload.setLength(0);
+        payload.append(prefix);
+      }
+      if (payload.length() > prefix.length()) {
+        payload.append(',');
+      }
+      payload.append(id);
+    }
+    payloads.add(payload.toString());
+    return payloads;
+  }
+
+  private void listen() {
+    boolean connectedBefore = false;
+    while (running) {
+      try (Connection connection = DriverManager.getConnection(url, username, password)) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + CHANNEL);
+        }
+        if (connectedBefore) {
+          log.info("Invalidation bus: reconnected, invalidating all caches");
+          deliverAll();
+        }
+        connectedBefore = true;
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+          if (notifications != null) {
+            for (PGNotification notification : notifications) {
+              receive(notification.getParameter());
+            }
+          }
+        }
+      } catch (SQLException e) {
+        if (!running) {
+          return;
+        }
+        log.warn("Invalidation bus: listening connection lost, reconnecting", e);
+        try {
+          Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Delivers the ids of a notification to the local listeners unless it was
+   * sent by this node.
+   *
+   * @param payload the payload of the notification
+   */
+  void receive(String payload) {
+    String[] parts = payload.split(";", 3);
+    if (parts.length != 3 || origin.equals(parts[0])) {
+      return;
+    }
+    Set<Long> ids = new LinkedHashSet<>();
+    try {
+      for (String id : parts[2].split(",")) {
+        ids.add(Long.valueOf(id));
+      }
+    } catch (NumberFormatException e) {
+      log.warn("Invalidation bus: malformed notification ignored: {}", payload);
+      return;
+    }
+    deliver(parts[1], ids);
+  }
+
+  private static void closeQuietly(Connection connection) {
+    if (connection == null) {
+      return;
+    }
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      // The connection is discarded anyway.
+    }
+  }
+
+  private static Thread daemon(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+}
@@ -0,0 +1,95 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Striped, lossy buffer of cache hits waiting to be applied to the eviction
+ * policy.
+ *
+ * <p>Readers publish the node they hit into the stripe selected by their
+ * thread without taking any lock. When a stripe is full the access is dropped,
+ * which only makes the frequency counts approximate. The owner of the
+ * eviction lock drains all stripes in one go.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the cached value
+ */
+final class ReadBuffer<K, V> {
+  static final int STRIPE_CAPACITY = 16;
+  private static final int STRIPE_MASK = STRIPE_CAPACITY - 1;
+
+  private final Stripe<K, V>[] stripes;
+  private final int mask;
+
+  @SuppressWarnings("unchecked")
+  ReadBuffer() {
+    int count = Integer.highestOneBit(
+        Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+    stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      stripes[i] = new Stripe<>();
+    }
+    mask = count - 1;
+  }
+
+  /**
+   * Records an access to the node.
+   *
+   * @param node the accessed node
+   * @return true if the stripe is full and should be drained
+   */
+  boolean offer(CacheNode<K, V> node) {
+    long id = Thread.currentThread().getId();
+    int index = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    return stripes[index].offer(node);
+  }
+
+  /**
+   * Hands every buffered access to the consumer. Must be called while holding
+   * the eviction lock.
+   *
+   * @param consumer the receiver of the buffered nodes
+   */
+  void drainTo(Consumer<CacheNode<K, V>> consumer) {
+    for (Stripe<K, V> stripe : stripes) {
+      stripe.drainTo(consumer);
+    }
+  }
+
+  private static final class Stripe<K, V> {
+    private final AtomicReferenceArray<CacheNode<K, V>> slots =
+        new AtomicReferenceArray<>(STRIPE_CAPACITY);
+    private final AtomicLong writeCounter = new AtomicLong();
+    private volatile long readCounter;
+
+    boolean offer(CacheNode<K, V> node) {
+      long tail = writeCounter.get();
+      long size = tail - readCounter;
+      if (size >= STRIPE_CAPACITY) {
+        return true;
+      }
+      if (writeCounter.compareAndSet(tail, tail + 1)) {
+        slots.lazySet((int) (tail & STRIPE_MASK), node);
+      }
+      return size + 1 >= STRIPE_CAPACITY;
+    }
+
+    void drainTo(Consumer<CacheNode<K, V>> consumer) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      while (head < tail) {
+        int index = (int) (head & STRIPE_MASK);
+        CacheNode<K, V> node = slots.get(index);
+        if (node == null) {
+          break;
+        }
+        slots.lazySet(index, null);
+        consumer.accept(node);
+        head++;
+      }
+      readCounter = head;
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.example.weblibrary.service.cache;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A response body encoded once and reused for every request that reads the
+ * same cached value.
+ *
+ * <p>The value the body was encoded from is only weakly referenced: the body
+ * is valid as long as the service still returns that very instance, and it
+ * must not keep a value alive that its own cache has already dropped.
+ */
+public final class SerializedResponse {
+  private final WeakReference<Object> source;
+  private final byte[] json;
+  private final byte[] gzip;
+  private final String etag;
+  private final String gzipEtag;
+
+  SerializedResponse(Object source, byte[] json, byte[] gzip, String etag) {
+    this.source = new WeakReference<>(source);
+    this.json = json;
+    this.gzip = gzip;
+    this.etag = etag;
+    this.gzipEtag = gzip == null ? null : etag.substring(0, etag.length() - 1) + "-gzip\"";
+  }
+
+  /**
+   * Returns the encoded JSON body.
+   *
+   * @return the JSON bytes
+   */
+  public byte[] json() {
+    return json;
+  }
+
+  /**
+   * Returns the gzip-compressed JSON body.
+   *
+   * @return the compressed bytes, or null if the body was too small to compress
+   */
+  public byte[] gzip() {
+    return gzip;
+  }
+
+  /**
+   * Returns the strong entity tag of the JSON body, including the quotes.
+   *
+   * @return the ETag header value
+   */
+  public String etag() {
+    return etag;
+  }
+
+  /**
+   * Returns the strong entity tag of the compressed body. It is the tag of
+   * the JSON body with a {@code -gzip} suffix: a strong tag promises
+   * byte-identical content, so the two encodings must not share it.
+   *
+   * @return the ETag header value, or null if there is no compressed body
+   */
+  public String gzipEtag() {
+    return gzipEtag;
+  }
+
+  boolean isEncodedFrom(Object value) {
+    return source.get() == value;
+  }
+
+  long weight() {
+    return json.length + (gzip == null ? 0L : gzip.length);
+  }
+}
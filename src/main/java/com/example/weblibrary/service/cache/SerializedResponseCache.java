@@ -0,0 +1,99 @@
+package com.example.weblibrary.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Caches the encoded JSON bodies of hot read endpoints so a cache hit in the
+ * service does not have to be serialized again on every request.
+ *
+ * <p>Bodies are stored per key together with the value they were encoded
+ * from. A body is reused only while the service returns the same instance, so
+ * every write that replaces or drops the value in the service caches (puts,
+ * list patches, removals, clears, refreshes and cross-node invalidations)
+ * also makes its body stale without any extra invalidation. Bodies larger
+ * than the gzip threshold are additionally stored compressed.
+ */
+public class SerializedResponseCache {
+  private final SimpleCache<String, SerializedResponse> cache;
+  private final ObjectMapper objectMapper;
+  private final int gzipMinSize;
+
+  /**
+   * Creates the cache.
+   *
+   * @param cache the cache holding the bodies, or null to encode every time
+   * @param objectMapper the mapper used by the web layer
+   * @param gzipMinSize the minimal body size in bytes that is also compressed
+   */
+  public SerializedResponseCache(SimpleCache<String, SerializedResponse> cache,
+      ObjectMapper objectMapper, int gzipMinSize) {
+    this.cache = cache;
+    this.objectMapper = objectMapper;
+    this.gzipMinSize = gzipMinSize;
+  }
+
+  /**
+   * Returns the encoded body of the value, reusing the cached one if it was
+   * encoded from the same instance.
+   *
+   * @param key the key identifying the endpoint and its parameters
+   * @param value the value to encode, normally taken from a service cache
+   * @return the encoded body
+   */
+  public SerializedResponse get(String key, Object value) {
+    if (cache == null) {
+      return encode(value);
+    }
+    SerializedResponse cached = cache.get(key);
+    if (cached != null && cached.isEncodedFrom(value)) {
+      return cached;
+    }
+    SerializedResponse encoded = encode(value);
+    cache.put(key, encoded);
+    return encoded;
+  }
+
+  /**
+   * Encodes a value that is not kept in a service cache, such as a page read
+   * straight from the database.
+   *
+   * @param value the value to encode
+   * @return the encoded body
+   */
+  public SerializedResponse encode(Object value) {
+    byte[] json;
+    try {
+      json = objectMapper.writeValueAsBytes(value);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize response", e);
+    }
+    byte[] gzip = json.length >= gzipMinSize ? gzip(json) : null;
+    String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+    return new SerializedResponse(value, json, gzip, etag);
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Returns a weigher charging each body with its size in bytes.
+   *
+   * @return the weigher
+   */
+  public static Weigher<String, SerializedResponse> weigher() {
+    return (key, response) -> response.weight();
+  }
+}
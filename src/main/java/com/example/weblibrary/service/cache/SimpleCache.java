@@ -1,36 +1,115 @@
 package com.example.weblibrary.service.cache;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * A simple LFU (Least Frequently Used) cache implementation.
  *
+ * <p>Lookups, insertions and evictions run in constant time: entries are kept
+ * in frequency buckets (see {@link FrequencyList}) instead of being scanned
+ * for the minimum frequency when the cache is full.
+ *
+ * <p>New entries are subject to TinyLFU admission: when the cache is full, a
+ * new entry only replaces the LFU victim if a {@link FrequencySketch} of
+ * recent uses, which also covers keys that are no longer cached, rates it
+ * higher. The sketch periodically halves its counts and the LFU frequencies
+ * with them, so past popularity fades.
+ *
+ * <p>The cache is safe for concurrent use. Entries live in a
+ * {@link ConcurrentHashMap}, so reads never block: a hit is only recorded in
+ * a striped {@link ReadBuffer} and writes are striped by the map's bins. The
+ * frequency structure is updated in batches by whichever thread acquires the
+ * eviction lock, which makes frequency counts approximate under heavy load.
+ * Writes are buffered the same way: a writer that finds the lock taken
+ * leaves its update to the current holder and only waits for the lock when
+ * the write buffer is full, so the cache may briefly exceed its bounds.
+ *
+ * <p>Entries can optionally expire a fixed time after they were written or
+ * last read, and can be refreshed in the background once they reach a given
+ * age while the stale value keeps being served. Expiration deadlines are
+ * tracked by a {@link TimerWheel}. Use {@link #builder()} to configure these
+ * options.
+ *
+ * <p>Instead of an entry count the cache can be bounded by the total weight
+ * of its entries as computed by a {@link Weigher}, e.g. their estimated size
+ * in bytes (see {@link SizeEstimator}).
+ *
+ * <p>An {@link OffHeapStore} can be attached as a second tier. Entries
+ * evicted for space are then serialized into it instead of being dropped,
+ * and reading one promotes it back to the heap, where it has to pass
+ * admission like any new entry. The off-heap copy of a promoted entry is
+ * kept until the entry is written, so a cold entry moving back and forth is
+ * not serialized again. Expired entries and entries heavier than the
+ * maximum weight are never demoted.
+ *
+ * <p>{@link #get(Object, Function)} loads missing entries with single-flight
+ * semantics: concurrent misses for the same key share one load.
+ * {@link #getAll(Collection, Function)} loads the misses of several keys
+ * together.
+ *
+ * <p>Hits, misses, loads and evictions are counted by a {@link StatsCounter}
+ * and can be read with {@link #stats()}.
+ *
  * @param <K> the type of keys maintained by this cache
  * @param <V> the type of mapped values
  */
 @Slf4j
 public class SimpleCache<K, V> {
-  private final int maxSize;
-  private final Map<K, CacheEntry<V>> cache = new HashMap<>();
-  private Consumer<K> evictionListener;
+  private static final int WRITE_BUFFER_LIMIT = 1024;
 
-  /**
-   * Internal class representing a cache entry with value and frequency count.
-   *
-   * @param <V> the type of the cached value
-   */
-  private static class CacheEntry<V> {
-    V value;
-    int frequency;
+  private final String name;
+  private final StatsCounter statsCounter;
+  private final int maxSize;
+  private final long maxWeight;
+  private final Weigher<? super K, ? super V> weigher;
+  private final long expireAfterWriteNanos;
+  private final long expireAfterAccessNanos;
+  private final long refreshAfterWriteNanos;
+  private final Function<? super K, ? extends V> loader;
+  private final Executor executor;
+  private final SimpleCache<K, Boolean> tombstones;
+  private final OffHeapStore<K, V> offHeap;
+  private final LongSupplier ticker;
 
-    CacheEntry(V value) {
-      this.value = value;
-      this.frequency = 1;
-    }
-  }
+  private final ConcurrentHashMap<K, CacheNode<K, V>> cache = new ConcurrentHashMap<>();
+  private final FrequencyList<K, V> frequencies = new FrequencyList<>();
+  private final FrequencySketch<K> sketch = new FrequencySketch<>();
+  private final TimerWheel<K, V> timerWheel;
+  private final ReadBuffer<K, V> readBuffer = new ReadBuffer<>();
+  private final Queue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingWrites = new AtomicInteger();
+  private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+  private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<K, WriteStamp> writeStamps = new ConcurrentHashMap<>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private volatile Consumer<K> evictionListener;
+  private CacheNode<K, V> lastAdded;
+  private long weightedSize;
 
   /**
    * Constructs a new SimpleCache with the specified maximum size.
@@ -39,10 +118,52 @@ public class SimpleCache<K, V> {
    * @throws IllegalArgumentException if maxSize is less than or equal to 0
    */
   public SimpleCache(int maxSize) {
-    if (maxSize <= 0) {
+    this(SimpleCache.<K, V>builder().maximumSize(maxSize));
+  }
+
+  private SimpleCache(Builder<K, V> builder) {
+    if (builder.maxWeight > 0L) {
+      if (builder.weigher == null) {
+        throw new IllegalArgumentException("Weigher is required for a maximum weight");
+      }
+      this.maxSize = builder.maxSize > 0 ? builder.maxSize : Integer.MAX_VALUE;
+    } else if (builder.maxSize <= 0) {
       throw new IllegalArgumentException("Max size must be greater than 0");
+    } else {
+      this.maxSize = builder.maxSize;
     }
-    this.maxSize = maxSize;
+    this.ticker = builder.ticker;
+    this.timerWheel = new TimerWheel<>(ticker.getAsLong());
+    this.name = builder.name;
+    this.statsCounter = builder.statsCounter != null
+        ? builder.statsCounter : new ConcurrentStatsCounter();
+    this.maxWeight = builder.maxWeight > 0L ? builder.maxWeight : Long.MAX_VALUE;
+    this.weigher = builder.weigher;
+    this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+    this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+    this.refreshAfterWriteNanos = builder.refreshAfterWriteNanos;
+    this.loader = builder.loader;
+    this.executor = builder.executor;
+    sketch.ensureCapacity(this.maxSize == Integer.MAX_VALUE ? 16 : this.maxSize);
+    this.tombstones = builder.negativeMaxSize > 0
+        ? SimpleCache.<K, Boolean>builder()
+            .maximumSize(builder.negativeMaxSize)
+            .expireAfterWrite(Duration.ofNanos(builder.negativeTtlNanos))
+            .ticker(builder.ticker)
+            .build()
+        : null;
+    this.offHeap = builder.offHeap;
+  }
+
+  /**
+   * Creates a builder for a cache with expiration or refresh settings.
+   *
+   * @param <K> the type of keys maintained by the cache
+   * @param <V> the type of mapped values
+   * @return a new builder
+   */
+  public static <K, V> Builder<K, V> builder() {
+    return new Builder<>();
   }
 
   /**
@@ -58,108 +179,1154 @@ public class SimpleCache<K, V> {
    * Retrieves a value from the cache by key.
    *
    * @param key the key whose associated value is to be returned
-   * @return the value associated with the key, or null if not found
+   * @return the value associated with the key, or null if not found or expired
    */
-  public synchronized V get(K key) {
-    CacheEntry<V> entry = cache.get(key);
-    if (entry == null) {
-      log.info("⭕ LFU Cache: Item NOT found. Key: {}", key);
+  public V get(K key) {
+    CacheNode<K, V> node = cache.get(key);
+    if (node == null) {
+      V promoted = offHeap == null ? null : promote(key);
+      if (promoted == null) {
+        statsCounter.recordMiss();
+      } else {
+        statsCounter.recordHit();
+      }
+      return promoted;
+    }
+    long now = ticker.getAsLong();
+    if (hasExpired(node, now)) {
+      statsCounter.recordMiss();
+      bufferWrite(() -> expire(node));
+      tryMaintenance();
       return null;
     }
-    entry.frequency++;
-    log.info("❗LFU Cache: Item found. Key: {}, New Frequency: {}",
-        key, entry.frequency);
-    return entry.value;
+    if (expireAfterAccessNanos > 0L) {
+      node.accessTime = now;
+    }
+    V value = node.value;
+    if (readBuffer.offer(node)) {
+      tryMaintenance();
+    }
+    statsCounter.recordHit();
+    refreshIfNeeded(node, now);
+    return value;
   }
 
   /**
-   * Adds or updates a value in the cache.
+   * Returns the value for the key, loading it with the mapping function on a
+   * miss. Concurrent callers missing on the same key wait for a single load
+   * instead of each running the function; they all receive its result or the
+   * exception it threw. A null result is returned but not cached.
    *
-   * @param key the key with which the specified value is to be associated
-   * @param value the value to be associated with the specified key
+   * <p>If the key is written or invalidated while the load is running, the
+   * loaded value is still returned to the waiting callers but is not stored,
+   * so an invalidation can never be overwritten by data read before it.
+   *
+   * <p>With negative caching enabled, a null result is remembered as a
+   * tombstone, and further calls return null without running the function
+   * until the tombstone expires or the key is written or removed.
+   *
+   * @param key the key whose associated value is to be returned
+   * @param mappingFunction computes the value on a miss
+   * @return the cached or loaded value
    */
-  public synchronized void put(K key, V value) {
-    if (cache.containsKey(key)) {
-      CacheEntry<V> entry = cache.get(key);
-      entry.value = value;
-      entry.frequency++;
-      log.info("❗ LFU Cache: Item updated. Key: {}, New Frequency: {}",
-          key, entry.frequency);
-    } else {
-      if (cache.size() >= maxSize) {
-        evictLeastFrequentlyUsed();
+  public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+    V value = get(key);
+    if (value != null || (tombstones != null && tombstones.get(key) != null)) {
+      return value;
+    }
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+    if (inFlight != null) {
+      return join(inFlight);
+    }
+    long version = reserve(key);
+    long start = ticker.getAsLong();
+    try {
+      value = mappingFunction.apply(key);
+      statsCounter.recordLoadSuccess(ticker.getAsLong() - start);
+      if (storeIfUnwritten(key, version, value)) {
+        afterWrite();
       }
-      cache.put(key, new CacheEntry<>(value));
-      log.info("❗ LFU Cache: New item added. Key: {}", key);
+      future.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      statsCounter.recordLoadFailure(ticker.getAsLong() - start);
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      release(key);
+      loading.remove(key, future);
     }
   }
 
   /**
-   * Evicts the least frequently used item from the cache.
+   * Returns the values for the keys, loading all the missing ones with a
+   * single call of the loader, for example one {@code IN} query instead of a
+   * query per key. Keys the loader returns no value for are left out of the
+   * result and, with negative caching enabled, remembered as tombstones.
+   *
+   * <p>Unlike {@link #get(Object, Function)}, concurrent callers missing on
+   * the same keys each run their own load. As there, the value of a key that
+   * was written or invalidated while the load was running is returned but
+   * not stored.
+   *
+   * @param keys the keys whose values are to be returned
+   * @param loader loads the values of the missing keys
+   * @return the values found, in the iteration order of the keys
    */
-  private void evictLeastFrequentlyUsed() {
-    K lfuKey = null;
-    int minFrequency = Integer.MAX_VALUE;
-
-    for (Map.Entry<K, CacheEntry<V>> entry : cache.entrySet()) {
-      if (entry.getValue().frequency < minFrequency) {
-        minFrequency = entry.getValue().frequency;
-        lfuKey = entry.getKey();
+  public Map<K, V> getAll(Collection<? extends K> keys,
+      Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> loader) {
+    Map<K, V> result = new LinkedHashMap<>();
+    Set<K> missing = new LinkedHashSet<>();
+    for (K key : keys) {
+      V value = get(key);
+      if (value != null) {
+        result.put(key, value);
+      } else if (tombstones == null || tombstones.get(key) == null) {
+        missing.add(key);
       }
     }
+    if (missing.isEmpty()) {
+      return result;
+    }
+    Map<K, Long> versions = new LinkedHashMap<>();
+    Map<? extends K, ? extends V> loaded;
+    try {
+      missing.forEach(key -> versions.put(key, reserve(key)));
+      long start = ticker.getAsLong();
+      try {
+        loaded = loader.apply(Collections.unmodifiableSet(missing));
+        statsCounter.recordLoadSuccess(ticker.getAsLong() - start);
+      } catch (RuntimeException | Error e) {
+        statsCounter.recordLoadFailure(ticker.getAsLong() - start);
+        throw e;
+      }
+      boolean stored = false;
+      for (K key : missing) {
+        stored |= storeIfUnwritten(key, versions.get(key), loaded.get(key));
+      }
+      if (stored) {
+        afterWrite();
+      }
+    } finally {
+      versions.keySet().forEach(this::release);
+    }
+    Map<K, V> ordered = new LinkedHashMap<>();
+    for (K key : keys) {
+      V value = result.containsKey(key) ? result.get(key) : loaded.get(key);
+      if (value != null) {
+        ordered.put(key, value);
+      }
+    }
+    return ordered;
+  }
 
-    if (lfuKey != null) {
-      cache.remove(lfuKey);
-      log.info("🗑 LFU Cache: Evicted item. Key: {}, Frequency at removal: {}",
-          lfuKey, minFrequency);
-      if (evictionListener != null) {
-        evictionListener.accept(lfuKey);
+  /**
+   * Adds or updates a value in the cache.
+   *
+   * @param key the key with which the specified value is to be associated
+   * @param value the value to be associated with the specified key
+   */
+  public void put(K key, V value) {
+    markWritten(key);
+    write(key, value);
+    afterWrite();
+  }
+
+  /**
+   * Stores the entry and buffers its policy update without running the
+   * maintenance; dropping its tombstone and off-heap copy goes with it.
+   */
+  private void write(K key, V value) {
+    if (tombstones != null) {
+      tombstones.remove(key);
+    }
+    long now = ticker.getAsLong();
+    long weight = weigher == null ? 1L : weigher.weigh(key, value);
+    CacheNode<K, V> added = new CacheNode<>(key, value);
+    added.writeTime = now;
+    added.accessTime = now;
+    added.weight = weight;
+    CacheNode<K, V> node = cache.compute(key, (k, existing) -> {
+      if (existing == null) {
+        return added;
       }
+      existing.value = value;
+      existing.writeTime = now;
+      existing.accessTime = now;
+      existing.weight = weight;
+      existing.offHeap = false;
+      return existing;
+    });
+    if (offHeap != null) {
+      offHeap.remove(key);
+    }
+    if (node == added) {
+      bufferWrite(() -> onAdd(node));
+    } else {
+      bufferWrite(() -> onWrite(node));
     }
   }
 
   /**
    * Removes the value associated with the specified key.
    *
+   * Also drops a tombstone of the key, e.g. when another node reports that
+   * the entity was created, and the off-heap copy of the entry.
+   *
    * @param key the key whose mapping is to be removed
-   * @return the removed value, or null if no mapping existed
+   * @return the removed value, or null if no mapping existed on the heap
    */
-  public synchronized V remove(K key) {
-    CacheEntry<V> removed = cache.remove(key);
-    if (removed != null) {
-      log.info("🗑 LFU Cache: Item removed. Key: {}", key);
-      if (evictionListener != null) {
-        evictionListener.accept(key);
+  public V remove(K key) {
+    markWritten(key);
+    loading.remove(key);
+    if (tombstones != null) {
+      tombstones.remove(key);
+    }
+    if (offHeap != null) {
+      offHeap.remove(key);
+    }
+    CacheNode<K, V> removed = cache.remove(key);
+    if (removed == null) {
+      return null;
+    }
+    removed.retired = true;
+    bufferWrite(() -> unlink(removed));
+    afterWrite();
+    notifyEvicted(key);
+    return removed.value;
+  }
+
+  /**
+   * Replaces the value of a live entry with the result of the remapping
+   * function, atomically with respect to other writes of the same key. A null
+   * result removes the entry; returning the current value leaves the entry
+   * untouched. Missing and expired entries are left alone.
+   *
+   * <p>Like {@link #put(Object, Object)}, this counts as a write, so loads of
+   * the key that started before it do not store their result.
+   *
+   * <p>An entry held only by the off-heap tier is updated there, without
+   * promoting it.
+   *
+   * @param key the key of the entry to update
+   * @param remappingFunction computes the new value from the current one
+   * @return the new value, or null if the entry was missing or removed
+   */
+  public V computeIfPresent(K key,
+      BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    if (offHeap != null && !cache.containsKey(key)) {
+      return computeOffHeap(key, remappingFunction);
+    }
+    markWritten(key);
+    long now = ticker.getAsLong();
+    AtomicReference<CacheNode<K, V>> updated = new AtomicReference<>();
+    AtomicReference<CacheNode<K, V>> removed = new AtomicReference<>();
+    cache.computeIfPresent(key, (k, existing) -> {
+      if (hasExpired(existing, now)) {
+        return existing;
+      }
+      V value = remappingFunction.apply(k, existing.value);
+      if (value == existing.value) {
+        return existing;
+      }
+      if (value == null) {
+        existing.retired = true;
+        removed.set(existing);
+        return null;
       }
-      return removed.value;
+      existing.value = value;
+      existing.writeTime = now;
+      existing.accessTime = now;
+      existing.weight = weigher == null ? 1L : weigher.weigh(k, value);
+      existing.offHeap = false;
+      updated.set(existing);
+      return existing;
+    });
+    if (offHeap != null && (removed.get() != null || updated.get() != null)) {
+      offHeap.remove(key);
+    }
+    if (removed.get() != null) {
+      CacheNode<K, V> retired = removed.get();
+      bufferWrite(() -> unlink(retired));
+      afterWrite();
+      notifyEvicted(key);
+      return null;
+    }
+    CacheNode<K, V> node = updated.get();
+    if (node == null) {
+      return null;
+    }
+    bufferWrite(() -> onWrite(node));
+    afterWrite();
+    return node.value;
+  }
+
+  /**
+   * Returns the value of a live entry without recording a hit or an access.
+   *
+   * @param key the key of the entry
+   * @return the value, or null if the entry is missing or expired
+   */
+  V peek(K key) {
+    CacheNode<K, V> node = cache.get(key);
+    if (node == null && offHeap != null) {
+      OffHeapStore.Stored<V> stored = readOffHeap(key, ticker.getAsLong());
+      return stored == null ? null : stored.value();
+    }
+    return node == null || hasExpired(node, ticker.getAsLong()) ? null : node.value;
+  }
+
+  /**
+   * Returns the live entries with their frequencies, from the least to the
+   * most frequently used.
+   *
+   * @return a snapshot of the entries
+   */
+  List<CacheSnapshotStore.Entry<K, V>> entries() {
+    List<CacheSnapshotStore.Entry<K, V>> entries = new ArrayList<>(cache.size());
+    long now = ticker.getAsLong();
+    evictionLock.lock();
+    try {
+      drainBuffers();
+      frequencies.forEach(node -> {
+        if (!node.retired && !hasExpired(node, now)) {
+          entries.add(new CacheSnapshotStore.Entry<>(node.key, node.value, node.frequency));
+        }
+      });
+    } finally {
+      evictionLock.unlock();
+    }
+    return entries;
+  }
+
+  /**
+   * Returns the loader used for background refreshes.
+   *
+   * @return the loader, or null if the cache does not refresh
+   */
+  Function<? super K, ? extends V> loader() {
+    return loader;
+  }
+
+  /**
+   * Inserts a restored entry with its previous frequency unless the key is
+   * already present. Nothing is inserted if the key has been written or
+   * invalidated since it was reserved, because the restored value may then
+   * be outdated; writes of other keys do not matter.
+   *
+   * @param key the key of the entry, reserved with {@link #reserve(Object)}
+   * @param value the restored value
+   * @param frequency the restored frequency, at least one
+   * @param version the write version returned when the key was reserved
+   * @return whether the entry was inserted
+   */
+  boolean restore(K key, V value, int frequency, long version) {
+    long now = ticker.getAsLong();
+    CacheNode<K, V> added = new CacheNode<>(key, value);
+    added.writeTime = now;
+    added.accessTime = now;
+    added.weight = weigher == null ? 1L : weigher.weigh(key, value);
+    return insertIfUnwritten(key, version, added,
+        () -> onRestore(added, Math.max(1, frequency)));
+  }
+
+  /**
+   * Returns a live view of the keys in the cache. Iteration is weakly
+   * consistent and may include expired entries that have not been cleaned up.
+   * With an off-heap tier, a snapshot of the keys of both tiers is returned
+   * instead.
+   *
+   * @return an unmodifiable view of the keys
+   */
+  public Set<K> keys() {
+    if (offHeap == null) {
+      return Collections.unmodifiableSet(cache.keySet());
     }
-    return null;
+    Set<K> keys = new HashSet<>(cache.keySet());
+    keys.addAll(offHeap.keys());
+    return Collections.unmodifiableSet(keys);
   }
 
   /**
    * Clears all entries from the cache.
    */
-  public synchronized void clear() {
-    cache.clear();
-    log.info("🗑 LFU Cache: Cache cleared.");
+  public void clear() {
+    writeStamps.keySet().forEach(this::markWritten);
+    loading.clear();
+    if (tombstones != null) {
+      tombstones.clear();
+    }
+    if (offHeap != null) {
+      offHeap.clear();
+    }
+    evictionLock.lock();
+    try {
+      drainBuffers();
+      for (CacheNode<K, V> node : cache.values()) {
+        if (cache.remove(node.key, node)) {
+          node.retired = true;
+          frequencies.remove(node);
+        }
+      }
+      timerWheel.clear();
+      lastAdded = null;
+      weightedSize = 0L;
+    } finally {
+      evictionLock.unlock();
+    }
   }
 
   /**
-   * Returns the number of entries in the cache.
+   * Returns the name the cache was built with.
+   *
+   * @return the name of the cache, or null if it is unnamed
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the off-heap tier of the cache.
+   *
+   * @return the off-heap store, or null if the cache has none
+   */
+  public OffHeapStore<K, V> offHeap() {
+    return offHeap;
+  }
+
+  /**
+   * Returns a snapshot of the cache statistics.
+   *
+   * @return the current statistics
+   */
+  public CacheStats stats() {
+    return statsCounter.snapshot();
+  }
+
+  /**
+   * Returns the number of entries in the cache. Expired entries that have not
+   * been cleaned up yet are included.
    *
    * @return the number of entries in the cache
    */
-  public synchronized int size() {
+  public int size() {
     return cache.size();
   }
 
+  /**
+   * Returns the total weight of the entries in the cache, or their count if no
+   * weigher is configured. Writes that are still buffered are not included.
+   *
+   * @return the weighted size of the cache
+   */
+  public long weightedSize() {
+    evictionLock.lock();
+    try {
+      return weightedSize;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
   /**
    * Returns a string representation of the cache contents.
    *
    * @return a string representation of the cache
    */
   @Override
-  public synchronized String toString() {
+  public String toString() {
     return cache.toString();
   }
-}
\ No newline at end of file
+
+  /**
+   * Starts tracking writes of the key for a load (or a snapshot restore)
+   * that is about to read it. Every call must be paired with
+   * {@link #release(Object)}.
+   *
+   * @param key the key about to be read
+   * @return the current write version of the key
+   */
+  long reserve(K key) {
+    long[] version = new long[1];
+    writeStamps.compute(key, (k, stamp) -> {
+      WriteStamp reserved = stamp == null ? new WriteStamp() : stamp;
+      reserved.holders++;
+      version[0] = reserved.version;
+      return reserved;
+    });
+    return version[0];
+  }
+
+  /**
+   * Stops tracking writes of the key for one load.
+   *
+   * @param key the key passed to {@link #reserve(Object)}
+   */
+  void release(K key) {
+    writeStamps.computeIfPresent(key, (k, stamp) -> --stamp.holders == 0 ? null : stamp);
+  }
+
+  /**
+   * Bumps the write version of the key if a load is tracking it. Only keys
+   * being loaded have a version, so writes of other keys cost a lookup.
+   */
+  private void markWritten(K key) {
+    writeStamps.computeIfPresent(key, (k, stamp) -> {
+      stamp.version++;
+      return stamp;
+    });
+  }
+
+  /**
+   * Stores a loaded value, or a tombstone for a null one, unless the key was
+   * written since the given version. The check and the store happen under
+   * the lock of the key's stamp, so a write cannot slip in between.
+   *
+   * @return whether a value was stored and maintenance is due
+   */
+  private boolean storeIfUnwritten(K key, long version, V value) {
+    boolean[] stored = new boolean[1];
+    writeStamps.computeIfPresent(key, (k, stamp) -> {
+      if (stamp.version == version) {
+        if (value != null) {
+          write(key, value);
+          stored[0] = true;
+        } else if (tombstones != null) {
+          tombstones.put(key, Boolean.TRUE);
+        }
+      }
+      return stamp;
+    });
+    return stored[0];
+  }
+
+  private static <V> V join(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private boolean expires() {
+    return expireAfterWriteNanos > 0L || expireAfterAccessNanos > 0L;
+  }
+
+  private boolean hasExpired(CacheNode<K, V> node, long now) {
+    return (expireAfterWriteNanos > 0L && now - node.writeTime >= expireAfterWriteNanos)
+        || (expireAfterAccessNanos > 0L && now - node.accessTime >= expireAfterAccessNanos);
+  }
+
+  private void schedule(CacheNode<K, V> node) {
+    if (!expires()) {
+      return;
+    }
+    long deadline = Long.MAX_VALUE;
+    if (expireAfterWriteNanos > 0L) {
+      deadline = node.writeTime + expireAfterWriteNanos;
+    }
+    if (expireAfterAccessNanos > 0L) {
+      long accessDeadline = node.accessTime + expireAfterAccessNanos;
+      deadline = deadline == Long.MAX_VALUE ? accessDeadline : Math.min(deadline, accessDeadline);
+    }
+    node.expiresAt = deadline;
+    timerWheel.schedule(node);
+  }
+
+  private void onAdd(CacheNode<K, V> node) {
+    if (!node.retired && node.bucket == null) {
+      record(node.key);
+      frequencies.add(node);
+      node.policyWeight = node.weight;
+      weightedSize += node.policyWeight;
+      schedule(node);
+      lastAdded = node;
+    }
+  }
+
+  private void onRestore(CacheNode<K, V> node, int frequency) {
+    if (!node.retired && node.bucket == null) {
+      for (int i = Math.min(frequency, 15); i > 0; i--) {
+        record(node.key);
+      }
+      frequencies.add(node, frequency);
+      node.policyWeight = node.weight;
+      weightedSize += node.policyWeight;
+      schedule(node);
+      lastAdded = node;
+    }
+  }
+
+  private void onWrite(CacheNode<K, V> node) {
+    if (!node.retired && node.bucket != null) {
+      record(node.key);
+      frequencies.touch(node);
+      long weight = node.weight;
+      weightedSize += weight - node.policyWeight;
+      node.policyWeight = weight;
+      schedule(node);
+    }
+  }
+
+  private void onAccess(CacheNode<K, V> node) {
+    if (!node.retired && node.bucket != null) {
+      record(node.key);
+      frequencies.touch(node);
+      if (expireAfterAccessNanos > 0L) {
+        schedule(node);
+      }
+    }
+  }
+
+  /**
+   * Records a use of the key in the sketch. When the sketch ages its
+   * counters, the LFU frequencies are halved as well.
+   */
+  private void record(K key) {
+    if (sketch.increment(key)) {
+      frequencies.halve();
+    }
+  }
+
+  private void unlink(CacheNode<K, V> node) {
+    if (node.bucket != null) {
+      weightedSize -= node.policyWeight;
+    }
+    frequencies.remove(node);
+    timerWheel.deschedule(node);
+  }
+
+  /**
+   * Removes the node if it has expired. The wheel may fire early for a node
+   * whose access was not recorded in time (the read buffer drops accesses
+   * under contention); such a node is put back at its current deadline
+   * instead of being left unscheduled.
+   */
+  private void expire(CacheNode<K, V> node) {
+    if (node.retired) {
+      return;
+    }
+    if (!hasExpired(node, ticker.getAsLong())) {
+      if (node.bucket != null) {
+        schedule(node);
+      }
+      return;
+    }
+    long weight = node.policyWeight;
+    unlink(node);
+    if (cache.remove(node.key, node)) {
+      node.retired = true;
+      if (offHeap != null) {
+        offHeap.remove(node.key);
+      }
+      statsCounter.recordEviction(weight);
+      notifyEvicted(node.key);
+    }
+  }
+
+  /**
+   * Moves an entry of the off-heap tier back to the heap, keeping its
+   * original write time. As with loads, nothing is inserted if the key was
+   * written while the entry was being read.
+   */
+  private V promote(K key) {
+    if (!offHeap.contains(key)) {
+      return null;
+    }
+    long version = reserve(key);
+    try {
+      long now = ticker.getAsLong();
+      OffHeapStore.Stored<V> stored = readOffHeap(key, now);
+      if (stored == null) {
+        return null;
+      }
+      CacheNode<K, V> added = new CacheNode<>(key, stored.value());
+      added.writeTime = stored.writeTime();
+      added.accessTime = now;
+      added.weight = weigher == null ? 1L : weigher.weigh(key, stored.value());
+      added.offHeap = true;
+      insertIfUnwritten(key, version, added, () -> onAdd(added));
+      return stored.value();
+    } finally {
+      release(key);
+    }
+  }
+
+  /**
+   * Inserts a node for a key that is not cached on the heap, unless the key
+   * was written since the given version.
+   *
+   * @return whether the node was inserted
+   */
+  private boolean insertIfUnwritten(K key, long version, CacheNode<K, V> added,
+      Runnable policyUpdate) {
+    boolean[] inserted = new boolean[1];
+    writeStamps.computeIfPresent(key, (k, stamp) -> {
+      if (stamp.version == version && cache.putIfAbsent(key, added) == null) {
+        bufferWrite(policyUpdate);
+        inserted[0] = true;
+      }
+      return stamp;
+    });
+    if (inserted[0]) {
+      afterWrite();
+    }
+    return inserted[0];
+  }
+
+  /**
+   * Applies the remapping function to an entry held only by the off-heap
+   * tier.
+   */
+  private V computeOffHeap(K key,
+      BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    markWritten(key);
+    long now = ticker.getAsLong();
+    OffHeapStore.Stored<V> stored = readOffHeap(key, now);
+    if (stored == null) {
+      return null;
+    }
+    V value = remappingFunction.apply(key, stored.value());
+    if (value == stored.value()) {
+      return value;
+    }
+    if (value == null) {
+      offHeap.remove(key);
+      notifyEvicted(key);
+      return null;
+    }
+    offHeap.put(key, value, now);
+    return value;
+  }
+
+  /**
+   * Reads an entry of the off-heap tier. Entries that have expired or cannot
+   * be decoded are removed.
+   */
+  private OffHeapStore.Stored<V> readOffHeap(K key, long now) {
+    OffHeapStore.Stored<V> stored;
+    try {
+      stored = offHeap.get(key);
+    } catch (RuntimeException e) {
+      log.warn("LFU Cache: Off-heap entry could not be read. Key: {}", key, e);
+      offHeap.remove(key);
+      return null;
+    }
+    if (stored != null && expireAfterWriteNanos > 0L
+        && now - stored.writeTime() >= expireAfterWriteNanos) {
+      offHeap.remove(key);
+      return null;
+    }
+    return stored;
+  }
+
+  /**
+   * Serializes an entry evicted for space into the off-heap tier, unless an
+   * unchanged copy is already there. An entry heavier than the maximum weight
+   * is dropped instead: it is evicted again as soon as it is promoted, so
+   * every read would decode it without it ever staying on the heap.
+   */
+  private void demote(CacheNode<K, V> node) {
+    if (offHeap == null || (node.offHeap && offHeap.contains(node.key))) {
+      return;
+    }
+    if (node.policyWeight > maxWeight) {
+      log.debug("LFU Cache: Entry heavier than the maximum weight not moved off-heap. Key: {}",
+          node.key);
+      return;
+    }
+    try {
+      offHeap.put(node.key, node.value, node.writeTime);
+    } catch (RuntimeException e) {
+      log.warn("LFU Cache: Entry could not be moved off-heap. Key: {}", node.key, e);
+    }
+  }
+
+  /**
+   * Starts a background reload of the entry if it is older than the refresh
+   * interval. The current value keeps being served until the reload completes;
+   * a reload that fails leaves it in place, one that returns null removes it.
+   * A reload the executor rejects is tried again on a later read.
+   */
+  private void refreshIfNeeded(CacheNode<K, V> node, long now) {
+    if (refreshAfterWriteNanos <= 0L || now - node.writeTime < refreshAfterWriteNanos) {
+      return;
+    }
+    K key = node.key;
+    if (!refreshing.add(key)) {
+      return;
+    }
+    long writeTime = node.writeTime;
+    long start = ticker.getAsLong();
+    CompletableFuture<V> refresh;
+    try {
+      refresh = CompletableFuture.supplyAsync(() -> loader.apply(key), executor);
+    } catch (RejectedExecutionException e) {
+      refreshing.remove(key);
+      log.warn("LFU Cache: Refresh rejected by the executor. Key: {}", key);
+      return;
+    }
+    refresh.whenComplete((value, error) -> {
+      try {
+        if (error != null) {
+          statsCounter.recordLoadFailure(ticker.getAsLong() - start);
+          log.warn("LFU Cache: Refresh failed. Key: {}", key, error);
+          return;
+        }
+        statsCounter.recordLoadSuccess(ticker.getAsLong() - start);
+        if (node.writeTime == writeTime && !node.retired) {
+          if (value == null) {
+            remove(key);
+          } else {
+            put(key, value);
+          }
+        }
+      } finally {
+        refreshing.remove(key);
+      }
+    });
+  }
+
+  private void bufferWrite(Runnable task) {
+    writeBuffer.add(task);
+    pendingWrites.incrementAndGet();
+  }
+
+  /**
+   * Runs the maintenance after a write, waiting for the lock only if the
+   * write buffer is full.
+   */
+  private void afterWrite() {
+    if (pendingWrites.get() >= WRITE_BUFFER_LIMIT) {
+      maintenance();
+    } else {
+      tryMaintenance();
+    }
+  }
+
+  /**
+   * Applies pending writes and evicts entries while the cache is over its
+   * limit, waiting for the lock.
+   */
+  private void maintenance() {
+    evictionLock.lock();
+    try {
+      runMaintenance();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Drains the buffers if no other thread is already doing so. A write
+   * buffered while the holder was releasing the lock is picked up by the
+   * holder's second pass rather than left for the next operation.
+   */
+  private void tryMaintenance() {
+    do {
+      if (!evictionLock.tryLock()) {
+        return;
+      }
+      try {
+        runMaintenance();
+      } finally {
+        evictionLock.unlock();
+      }
+    } while (!writeBuffer.isEmpty());
+  }
+
+  private void runMaintenance() {
+    drainBuffers();
+    if (expires()) {
+      timerWheel.advance(ticker.getAsLong(), this::expire);
+    }
+    evictIfNeeded();
+  }
+
+  private void drainBuffers() {
+    readBuffer.drainTo(this::onAccess);
+    Runnable task;
+    while ((task = writeBuffer.poll()) != null) {
+      pendingWrites.decrementAndGet();
+      task.run();
+    }
+  }
+
+  /**
+   * Evicts entries while the cache is over its bounds. The most recently
+   * added entry is a candidate that has to earn its place: it displaces the
+   * LFU victim only if the sketch estimates it to be used more often,
+   * otherwise the candidate itself is evicted. This keeps one-off lookups
+   * from flushing entries that are used repeatedly.
+   */
+  private void evictIfNeeded() {
+    if (maxSize == Integer.MAX_VALUE) {
+      sketch.ensureCapacity(cache.size());
+    }
+    while (cache.size() > maxSize || weightedSize > maxWeight) {
+      CacheNode<K, V> candidate = lastAdded != null && !lastAdded.retired ? lastAdded : null;
+      CacheNode<K, V> victim = frequencies.victim(candidate);
+      if (victim == null) {
+        return;
+      }
+      if (candidate != null && victim != candidate
+          && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+        victim = candidate;
+      }
+      if (victim == candidate) {
+        lastAdded = null;
+      }
+      long weight = victim.policyWeight;
+      unlink(victim);
+      if (cache.remove(victim.key, victim)) {
+        victim.retired = true;
+        demote(victim);
+        statsCounter.recordEviction(weight);
+        notifyEvicted(victim.key);
+      }
+    }
+  }
+
+  private void notifyEvicted(K key) {
+    Consumer<K> listener = evictionListener;
+    if (listener != null) {
+      listener.accept(key);
+    }
+  }
+
+  /**
+   * Write version of a key being loaded, shared by the loads of the key and
+   * dropped when the last of them finishes. Only accessed under the lock of
+   * its map entry.
+   */
+  private static final class WriteStamp {
+    private long version;
+    private int holders;
+  }
+
+  /**
+   * Builder for {@link SimpleCache} instances.
+   *
+   * @param <K> the type of keys maintained by the cache
+   * @param <V> the type of mapped values
+   */
+  public static final class Builder<K, V> {
+    private String name;
+    private StatsCounter statsCounter;
+    private int maxSize;
+    private long maxWeight;
+    private Weigher<? super K, ? super V> weigher;
+    private long expireAfterWriteNanos;
+    private long expireAfterAccessNanos;
+    private long refreshAfterWriteNanos;
+    private Function<? super K, ? extends V> loader;
+    private Executor executor = ForkJoinPool.commonPool();
+    private long negativeTtlNanos;
+    private int negativeMaxSize;
+    private OffHeapStore<K, V> offHeap;
+    private LongSupplier ticker = System::nanoTime;
+
+    private Builder() {
+    }
+
+    /**
+     * Names the cache, which is required to register it in a
+     * {@link SimpleCacheRegistry}.
+     *
+     * @param name the name of the cache
+     * @return this builder
+     */
+    public Builder<K, V> name(String name) {
+      this.name = name;
+      return this;
+    }
+
+    /**
+     * Sets the counter receiving the cache statistics, a
+     * {@link ConcurrentStatsCounter} by default.
+     *
+     * @param statsCounter the statistics counter
+     * @return this builder
+     */
+    public Builder<K, V> recordStats(StatsCounter statsCounter) {
+      if (statsCounter == null) {
+        throw new IllegalArgumentException("Stats counter must not be null");
+      }
+      this.statsCounter = statsCounter;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entries the cache can hold.
+     *
+     * @param maxSize the maximum number of entries
+     * @return this builder
+     */
+    public Builder<K, V> maximumSize(int maxSize) {
+      this.maxSize = maxSize;
+      return this;
+    }
+
+    /**
+     * Bounds the cache by the total weight of its entries instead of (or in
+     * addition to) their count. Requires a {@link #weigher(Weigher)}.
+     *
+     * @param maxWeight the maximum total weight
+     * @return this builder
+     */
+    public Builder<K, V> maximumWeight(long maxWeight) {
+      if (maxWeight <= 0L) {
+        throw new IllegalArgumentException("Max weight must be greater than 0");
+      }
+      this.maxWeight = maxWeight;
+      return this;
+    }
+
+    /**
+     * Sets the function computing the weight of each entry.
+     *
+     * @param weigher the weigher
+     * @return this builder
+     */
+    public Builder<K, V> weigher(Weigher<? super K, ? super V> weigher) {
+      if (weigher == null) {
+        throw new IllegalArgumentException("Weigher must not be null");
+      }
+      this.weigher = weigher;
+      return this;
+    }
+
+    /**
+     * Expires entries once the given time has passed since they were written.
+     *
+     * @param duration the time to live after a write
+     * @return this builder
+     */
+    public Builder<K, V> expireAfterWrite(Duration duration) {
+      this.expireAfterWriteNanos = requirePositive(duration);
+      return this;
+    }
+
+    /**
+     * Expires entries once the given time has passed since they were last
+     * written or read.
+     *
+     * @param duration the time to live after the last access
+     * @return this builder
+     */
+    public Builder<K, V> expireAfterAccess(Duration duration) {
+      this.expireAfterAccessNanos = requirePositive(duration);
+      return this;
+    }
+
+    /**
+     * Reloads entries in the background once the given time has passed since
+     * they were written. Readers keep getting the old value until the reload
+     * finishes.
+     *
+     * @param duration the age after which an entry is refreshed
+     * @param loader computes the fresh value for a key; returning null removes
+     *     the entry
+     * @return this builder
+     */
+    public Builder<K, V> refreshAfterWrite(Duration duration,
+        Function<? super K, ? extends V> loader) {
+      if (loader == null) {
+        throw new IllegalArgumentException("Refresh loader must not be null");
+      }
+      this.refreshAfterWriteNanos = requirePositive(duration);
+      this.loader = loader;
+      return this;
+    }
+
+    /**
+     * Remembers keys for which {@link SimpleCache#get(Object, Function)}
+     * loaded nothing, so repeated lookups of missing keys do not reach the
+     * data source. Tombstones live in a separate structure with its own size
+     * bound and expire after a short time; writing or removing the key drops
+     * its tombstone.
+     *
+     * @param duration how long a missing key is remembered
+     * @param maxSize the maximum number of remembered missing keys
+     * @return this builder
+     */
+    public Builder<K, V> negativeCaching(Duration duration, int maxSize) {
+      if (maxSize <= 0) {
+        throw new IllegalArgumentException("Max size must be greater than 0");
+      }
+      this.negativeTtlNanos = requirePositive(duration);
+      this.negativeMaxSize = maxSize;
+      return this;
+    }
+
+    /**
+     * Attaches an off-heap second tier receiving the entries evicted for
+     * space. The store must not be shared with another cache.
+     *
+     * @param offHeap the off-heap store
+     * @return this builder
+     */
+    public Builder<K, V> offHeap(OffHeapStore<K, V> offHeap) {
+      if (offHeap == null) {
+        throw new IllegalArgumentException("Off-heap store must not be null");
+      }
+      this.offHeap = offHeap;
+      return this;
+    }
+
+    /**
+     * Sets the executor used for background refreshes.
+     *
+     * @param executor the executor, {@link ForkJoinPool#commonPool()} by default
+     * @return this builder
+     */
+    public Builder<K, V> executor(Executor executor) {
+      if (executor == null) {
+        throw new IllegalArgumentException("Executor must not be null");
+      }
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Sets the time source in nanoseconds, {@link System#nanoTime()} by
+     * default. Tests replace it to expire and refresh entries without
+     * waiting.
+     *
+     * @param ticker the time source
+     * @return this builder
+     */
+    Builder<K, V> ticker(LongSupplier ticker) {
+      if (ticker == null) {
+        throw new IllegalArgumentException("Ticker must not be null");
+      }
+      this.ticker = ticker;
+      return this;
+    }
+
+    /**
+     * Creates the cache.
+     *
+     * @return a new cache with this builder's settings
+     * @throws IllegalArgumentException if neither a positive maximum size nor a
+     *     maximum weight with a weigher is configured
+     */
+    public SimpleCache<K, V> build() {
+      return new SimpleCache<>(this);
+    }
+
+    private static long requirePositive(Duration duration) {
+      if (duration == null || duration.isNegative() || duration.isZero()) {
+        throw new IllegalArgumentException("Duration must be positive");
+      }
+      return duration.toNanos();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Spring {@link CacheManager} serving {@link SimpleCache} instances.
+ *
+ * <p>A name that belongs to a cache in the {@link SimpleCacheRegistry}
+ * resolves to that cache, so {@code @CacheEvict} also works on the caches the
+ * services use directly. Other names get a new cache from the factory on
+ * first use, which is registered as well and so shows up in the metrics and
+ * the actuator endpoint.
+ */
+public class SimpleCacheCacheManager implements CacheManager {
+  private final SimpleCacheRegistry cacheRegistry;
+  private final Function<String, SimpleCache<Object, Object>> cacheFactory;
+  private final boolean allowNullValues;
+  private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the manager.
+   *
+   * @param cacheRegistry registry of the existing caches, receiving new ones
+   * @param cacheFactory creates a named cache for a name not in the registry
+   * @param allowNullValues whether null results of cached methods are cached
+   */
+  public SimpleCacheCacheManager(SimpleCacheRegistry cacheRegistry,
+      Function<String, SimpleCache<Object, Object>> cacheFactory, boolean allowNullValues) {
+    this.cacheRegistry = cacheRegistry;
+    this.cacheFactory = cacheFactory;
+    this.allowNullValues = allowNullValues;
+  }
+
+  @Override
+  public Cache getCache(String name) {
+    return caches.computeIfAbsent(name, this::createCache);
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    return Collections.unmodifiableSet(caches.keySet());
+  }
+
+  @SuppressWarnings("unchecked")
+  private Cache createCache(String name) {
+    SimpleCache<Object, Object> cache = (SimpleCache<Object, Object>) cacheRegistry.get(name);
+    if (cache == null) {
+      cache = cacheFactory.apply(name);
+      cacheRegistry.register(cache);
+    }
+    return new SpringSimpleCache(cache, allowNullValues);
+  }
+}
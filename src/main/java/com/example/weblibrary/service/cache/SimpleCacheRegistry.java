@@ -0,0 +1,70 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of every named {@link SimpleCache} in the application so they
+ * can be inspected and monitored in one place.
+ */
+public class SimpleCacheRegistry {
+  private final Map<String, SimpleCache<?, ?>> caches = new ConcurrentSkipListMap<>();
+  private final List<Consumer<SimpleCache<?, ?>>> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Registers a cache under its name.
+   *
+   * @param cache the cache to register
+   * @throws IllegalArgumentException if the cache has no name or another cache
+   *     is already registered under the same name
+   */
+  public synchronized void register(SimpleCache<?, ?> cache) {
+    String name = cache.getName();
+    if (name == null) {
+      throw new IllegalArgumentException("Only named caches can be registered");
+    }
+    SimpleCache<?, ?> existing = caches.putIfAbsent(name, cache);
+    if (existing != null && existing != cache) {
+      throw new IllegalArgumentException("Cache already registered: " + name);
+    }
+    if (existing == null) {
+      listeners.forEach(listener -> listener.accept(cache));
+    }
+  }
+
+  /**
+   * Calls the listener for every registered cache and for every cache
+   * registered later, e.g. created on demand by the
+   * {@link SimpleCacheCacheManager}.
+   *
+   * @param listener the listener
+   */
+  public synchronized void onRegister(Consumer<SimpleCache<?, ?>> listener) {
+    caches.values().forEach(listener);
+    listeners.add(listener);
+  }
+
+  /**
+   * Returns the cache registered under the given name.
+   *
+   * @param name the name of the cache
+   * @return the cache, or null if none is registered under that name
+   */
+  public SimpleCache<?, ?> get(String name) {
+    return caches.get(name);
+  }
+
+  /**
+   * Returns all registered caches, ordered by name.
+   *
+   * @return an unmodifiable view of the registered caches
+   */
+  public Collection<SimpleCache<?, ?>> getAll() {
+    return Collections.unmodifiableCollection(caches.values());
+  }
+}
@@ -0,0 +1,196 @@
+package com.example.weblibrary.service.cache;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimates the retained heap size of cached DTO graphs.
+ *
+ * <p>The estimate assumes a 64-bit JVM with compressed class pointers and
+ * oops (12-byte object headers, 4-byte references, 8-byte alignment), which
+ * is the HotSpot default for heaps below 32 GB. Strings are counted with the
+ * compact LATIN1 encoding unless they contain other characters (e.g.
+ * Cyrillic titles), in which case two bytes per character are counted.
+ * Objects reachable more than once from the same value are counted once, and
+ * enum constants are not counted since they are shared.
+ *
+ * <p>DTO records and plain DTO classes are measured by walking their instance
+ * fields; the field layout of every class is computed once and cached.
+ */
+public final class SizeEstimator {
+  private static final int HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+
+  private static final ClassValue<Layout> LAYOUTS = new ClassValue<>() {
+    @Override
+    protected Layout computeValue(Class<?> type) {
+      return Layout.of(type);
+    }
+  };
+
+  private SizeEstimator() {
+  }
+
+  /**
+   * Returns a weigher that charges every entry with the estimated retained
+   * size of its key and value in bytes.
+   *
+   * @param <K> the type of the key
+   * @param <V> the type of the cached value
+   * @return the weigher
+   */
+  public static <K, V> Weigher<K, V> weigher() {
+    return (key, value) -> {
+      Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+      return estimate(key, visited) + estimate(value, visited);
+    };
+  }
+
+  /**
+   * Estimates the retained size of the object graph in bytes.
+   *
+   * @param object the root of the graph, may be null
+   * @return the estimated size in bytes
+   */
+  public static long estimate(Object object) {
+    return estimate(object, Collections.newSetFromMap(new IdentityHashMap<>()));
+  }
+
+  private static long estimate(Object object, Set<Object> visited) {
+    if (object == null || object instanceof Enum<?> || !visited.add(object)) {
+      return 0L;
+    }
+    if (object instanceof String string) {
+      return stringSize(string);
+    }
+    if (object instanceof Long || object instanceof Double
+        || object instanceof Integer || object instanceof Boolean) {
+      return 16L;
+    }
+    if (object instanceof LocalDate) {
+      return 24L;
+    }
+    if (object instanceof LocalTime) {
+      return 24L;
+    }
+    if (object instanceof LocalDateTime) {
+      return 24L + 24L + 24L;
+    }
+    if (object instanceof IndexedList<?> list) {
+      return list.estimatedSize();
+    }
+    if (object instanceof Collection<?> collection) {
+      long size = collectionSize(collection);
+      for (Object element : collection) {
+        size += estimate(element, visited);
+      }
+      return size;
+    }
+    if (object instanceof Map<?, ?> map) {
+      long size = 48L + align(ARRAY_HEADER + (long) REFERENCE * tableSize(map.size()))
+          + 32L * map.size();
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        size += estimate(entry.getKey(), visited) + estimate(entry.getValue(), visited);
+      }
+      return size;
+    }
+    Layout layout = LAYOUTS.get(object.getClass());
+    long size = layout.shallowSize;
+    for (Field field : layout.references) {
+      try {
+        size += estimate(field.get(object), visited);
+      } catch (IllegalAccessException e) {
+        // Inaccessible fields are only counted as references.
+      }
+    }
+    return size;
+  }
+
+  private static long stringSize(String string) {
+    int length = string.length();
+    boolean latin1 = true;
+    for (int i = 0; i < length && latin1; i++) {
+      latin1 = string.charAt(i) < 256;
+    }
+    return 24L + align(ARRAY_HEADER + (long) (latin1 ? length : length * 2));
+  }
+
+  private static long collectionSize(Collection<?> collection) {
+    if (collection instanceof ArrayList<?>) {
+      return 24L + align(ARRAY_HEADER + (long) REFERENCE * collection.size());
+    }
+    if (collection instanceof List<?>) {
+      return 16L + align(ARRAY_HEADER + (long) REFERENCE * collection.size());
+    }
+    return 48L + align(ARRAY_HEADER + (long) REFERENCE * tableSize(collection.size()))
+        + 32L * collection.size();
+  }
+
+  private static int tableSize(int entries) {
+    return Integer.highestOneBit(Math.max(1, (int) (entries / 0.75f)) * 2 - 1);
+  }
+
+  private static long align(long size) {
+    return (size + 7L) & ~7L;
+  }
+
+  /**
+   * Cached field layout of a class.
+   */
+  private static final class Layout {
+    final long shallowSize;
+    final Field[] references;
+
+    private Layout(long shallowSize, Field[] references) {
+      this.shallowSize = shallowSize;
+      this.references = references;
+    }
+
+    static Layout of(Class<?> type) {
+      long size = HEADER;
+      List<Field> references = new ArrayList<>();
+      for (Class<?> current = type; current != null && current != Object.class;
+           current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          Class<?> fieldType = field.getType();
+          if (fieldType.isPrimitive()) {
+            size += primitiveSize(fieldType);
+          } else {
+            size += REFERENCE;
+            if (field.trySetAccessible()) {
+              references.add(field);
+            }
+          }
+        }
+      }
+      return new Layout(align(size), references.toArray(new Field[0]));
+    }
+
+    private static int primitiveSize(Class<?> type) {
+      if (type == long.class || type == double.class) {
+        return 8;
+      }
+      if (type == int.class || type == float.class) {
+        return 4;
+      }
+      if (type == short.class || type == char.class) {
+        return 2;
+      }
+      return 1;
+    }
+  }
+}
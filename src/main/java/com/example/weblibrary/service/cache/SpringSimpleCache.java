@@ -0,0 +1,69 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.concurrent.Callable;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+/**
+ * Spring {@link org.springframework.cache.Cache} view of a {@link SimpleCache},
+ * used by {@code @Cacheable}, {@code @CachePut} and {@code @CacheEvict}.
+ *
+ * <p>{@code @Cacheable(sync = true)} loads through
+ * {@link SimpleCache#get(Object, java.util.function.Function)}, so concurrent
+ * misses for a key share one invocation of the annotated method.
+ */
+public class SpringSimpleCache extends AbstractValueAdaptingCache {
+  private final SimpleCache<Object, Object> cache;
+
+  /**
+   * Wraps a cache.
+   *
+   * @param cache the cache
+   * @param allowNullValues whether null results are cached
+   */
+  public SpringSimpleCache(SimpleCache<Object, Object> cache, boolean allowNullValues) {
+    super(allowNullValues);
+    this.cache = cache;
+  }
+
+  @Override
+  public String getName() {
+    return cache.getName();
+  }
+
+  @Override
+  public SimpleCache<Object, Object> getNativeCache() {
+    return cache;
+  }
+
+  @Override
+  protected Object lookup(Object key) {
+    return cache.get(key);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    return (T) fromStoreValue(cache.get(key, k -> {
+      try {
+        return toStoreValue(valueLoader.call());
+      } catch (Exception e) {
+        throw new ValueRetrievalException(k, valueLoader, e);
+      }
+    }));
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    cache.put(key, toStoreValue(value));
+  }
+
+  @Override
+  public void evict(Object key) {
+    cache.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+  }
+}
@@ -0,0 +1,47 @@
+package com.example.weblibrary.service.cache;
+
+/**
+ * Receives the events a {@link SimpleCache} records for its statistics.
+ * Implementations must be thread-safe and cheap, since they are called on
+ * every lookup.
+ */
+public interface StatsCounter {
+
+  /**
+   * Records a lookup that found a live entry.
+   */
+  void recordHit();
+
+  /**
+   * Records a lookup that found no entry or an expired one.
+   */
+  void recordMiss();
+
+  /**
+   * Records a load or refresh that produced a value.
+   *
+   * @param loadTime the time spent loading, in nanoseconds
+   */
+  void recordLoadSuccess(long loadTime);
+
+  /**
+   * Records a load or refresh that threw an exception.
+   *
+   * @param loadTime the time spent before the failure, in nanoseconds
+   */
+  void recordLoadFailure(long loadTime);
+
+  /**
+   * Records an entry removed by the size or weight bound or by expiration.
+   *
+   * @param weight the weight of the evicted entry
+   */
+  void recordEviction(long weight);
+
+  /**
+   * Returns a snapshot of the recorded statistics.
+   *
+   * @return the current statistics
+   */
+  CacheStats snapshot();
+}
@@ -0,0 +1,171 @@
+package com.example.weblibrary.service.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel that tracks when cache entries expire.
+ *
+ * <p>Each level is a ring of buckets covering a power-of-two time span
+ * (roughly a second, a minute, an hour and a day). An entry is placed in the
+ * coarsest bucket that still resolves its deadline, and advancing the wheel
+ * only visits the buckets whose span has elapsed since the last advance.
+ * Entries from coarse buckets that are not due yet are cascaded into finer
+ * ones, so scheduling, rescheduling and expiring are all amortized O(1) and
+ * the cache never has to scan its contents to find stale entries.
+ *
+ * <p>This class is not thread-safe; callers must hold the eviction lock.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the cached value
+ */
+final class TimerWheel<K, V> {
+  private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+  private static final long[] SPANS = {
+      1L << 30, // 1.07 seconds
+      1L << 36, // 1.14 minutes
+      1L << 42, // 1.22 hours
+      1L << 47, // 1.63 days
+      1L << 49, // 6.5 days
+      1L << 49
+  };
+  private static final long[] SHIFT = {
+      Long.numberOfTrailingZeros(SPANS[0]),
+      Long.numberOfTrailingZeros(SPANS[1]),
+      Long.numberOfTrailingZeros(SPANS[2]),
+      Long.numberOfTrailingZeros(SPANS[3]),
+      Long.numberOfTrailingZeros(SPANS[4])
+  };
+
+  private final CacheNode<K, V>[][] wheel;
+  private long nanos;
+
+  @SuppressWarnings("unchecked")
+  TimerWheel(long now) {
+    this.nanos = now;
+    wheel = new CacheNode[BUCKETS.length][];
+    for (int i = 0; i < BUCKETS.length; i++) {
+      wheel[i] = new CacheNode[BUCKETS[i]];
+      for (int j = 0; j < BUCKETS[i]; j++) {
+        wheel[i][j] = sentinel();
+      }
+    }
+  }
+
+  /**
+   * Places the node into the bucket matching its expiration time, removing it
+   * from its previous bucket first.
+   *
+   * @param node the node to (re)schedule
+   */
+  void schedule(CacheNode<K, V> node) {
+    deschedule(node);
+    link(findBucket(node.expiresAt), node);
+  }
+
+  /**
+   * Removes the node from the wheel if it is scheduled.
+   *
+   * @param node the node to remove
+   */
+  void deschedule(CacheNode<K, V> node) {
+    if (node.timerNext != null) {
+      node.timerPrev.timerNext = node.timerNext;
+      node.timerNext.timerPrev = node.timerPrev;
+      node.timerNext = null;
+      node.timerPrev = null;
+    }
+  }
+
+  /**
+   * Moves the wheel forward to the current time, handing every node whose
+   * deadline has passed to the expirer. Nodes that are not due yet (because
+   * they were accessed after scheduling, or were in a coarse bucket) are
+   * rescheduled.
+   *
+   * @param now the current time in nanoseconds
+   * @param expirer removes an expired node from the cache
+   */
+  void advance(long now, Consumer<CacheNode<K, V>> expirer) {
+    long previous = nanos;
+    nanos = now;
+    for (int i = 0; i < SHIFT.length; i++) {
+      long previousTicks = previous >>> SHIFT[i];
+      long currentTicks = now >>> SHIFT[i];
+      long delta = currentTicks - previousTicks;
+      if (delta <= 0L) {
+        break;
+      }
+      expireLevel(i, previousTicks, delta, expirer);
+    }
+  }
+
+  /**
+   * Drops all scheduled nodes.
+   */
+  void clear() {
+    for (CacheNode<K, V>[] level : wheel) {
+      for (CacheNode<K, V> sentinel : level) {
+        for (CacheNode<K, V> node = sentinel.timerNext; node != sentinel; ) {
+          CacheNode<K, V> next = node.timerNext;
+          node.timerPrev = null;
+          node.timerNext = null;
+          node = next;
+        }
+        sentinel.timerPrev = sentinel;
+        sentinel.timerNext = sentinel;
+      }
+    }
+  }
+
+  private void expireLevel(int level, long previousTicks, long delta,
+      Consumer<CacheNode<K, V>> expirer) {
+    CacheNode<K, V>[] buckets = wheel[level];
+    int mask = buckets.length - 1;
+    int steps = (int) Math.min(delta + 1, buckets.length);
+    int start = (int) (previousTicks & mask);
+    for (int i = start; i < start + steps; i++) {
+      CacheNode<K, V> sentinel = buckets[i & mask];
+      CacheNode<K, V> node = sentinel.timerNext;
+      sentinel.timerPrev = sentinel;
+      sentinel.timerNext = sentinel;
+      while (node != sentinel) {
+        CacheNode<K, V> next = node.timerNext;
+        node.timerPrev = null;
+        node.timerNext = null;
+        if (node.expiresAt - nanos > 0L) {
+          link(findBucket(node.expiresAt), node);
+        } else {
+          expirer.accept(node);
+        }
+        node = next;
+      }
+    }
+  }
+
+  private CacheNode<K, V> findBucket(long time) {
+    long duration = time - nanos;
+    int length = wheel.length - 1;
+    for (int i = 0; i < length; i++) {
+      if (duration < SPANS[i + 1]) {
+        long ticks = time >>> SHIFT[i];
+        int index = (int) (ticks & (wheel[i].length - 1));
+        return wheel[i][index];
+      }
+    }
+    return wheel[length][0];
+  }
+
+  private void link(CacheNode<K, V> sentinel, CacheNode<K, V> node) {
+    node.timerPrev = sentinel.timerPrev;
+    node.timerNext = sentinel;
+    sentinel.timerPrev.timerNext = node;
+    sentinel.timerPrev = node;
+  }
+
+  private static <K, V> CacheNode<K, V> sentinel() {
+    CacheNode<K, V> sentinel = new CacheNode<>(null, null);
+    sentinel.timerPrev = sentinel;
+    sentinel.timerNext = sentinel;
+    return sentinel;
+  }
+}
@@ -0,0 +1,23 @@
+package com.example.weblibrary.service.cache;
+
+/**
+ * Calculates the weight of a cache entry, used together with
+ * {@link SimpleCache.Builder#maximumWeight(long)} to bound a cache by the
+ * total weight of its entries rather than their count.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the cached value
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+  /**
+   * Returns the weight of the entry. The weight is computed once when the
+   * entry is written and must not be negative.
+   *
+   * @param key the key of the entry
+   * @param value the value of the entry
+   * @return the weight of the entry
+   */
+  long weigh(K key, V value);
+}
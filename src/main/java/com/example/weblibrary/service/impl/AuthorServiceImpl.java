@@ -4,9 +4,15 @@ import com.example.weblibrary.mapper.AuthorMapperImpl;
 import com.example.weblibrary.model.Author;
 import com.example.weblibrary.model.dto.AuthorDtoRequest;
 import com.example.weblibrary.model.dto.AuthorDtoResponse;
+import com.example.weblibrary.model.dto.CursorPage;
 import com.example.weblibrary.repository.AuthorRepository;
+import com.example.weblibrary.repository.BookRepository;
 import com.example.weblibrary.service.CrudService;
+import com.example.weblibrary.service.KeysetPager;
+import com.example.weblibrary.service.cache.InvalidationBus;
+import com.example.weblibrary.service.cache.ListCachePatcher;
 import com.example.weblibrary.service.cache.SimpleCache;
+import jakarta.annotation.PostConstruct;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,89 +30,134 @@ public class AuthorServiceImpl implements CrudService<AuthorDtoRequest, AuthorDt
   constructor.
  */
   public AuthorServiceImpl(AuthorRepository authorRepository,
-      AuthorMapperImpl authorMapper
+      AuthorMapperImpl authorMapper,
+      BookRepository bookRepository,
+      BookServiceImpl bookService,
+      SuggestServiceImpl suggestService,
+      SimpleCache<Long, AuthorDtoResponse> authorCache,
+      SimpleCache<String, List<AuthorDtoResponse>> authorListCache,
+      InvalidationBus invalidationBus,
+      KeysetPager keysetPager
   ) {
     this.authorRepository = authorRepository;
     this.authorMapper = authorMapper;
+    this.bookRepository = bookRepository;
+    this.bookService = bookService;
+    this.suggestService = suggestService;
+    this.authorCache = authorCache;
+    this.authorCache1 = authorListCache;
+    this.invalidationBus = invalidationBus;
+    this.keysetPager = keysetPager;
+  }
+
+  @PostConstruct
+  void subscribeToInvalidations() {
+    invalidationBus.subscribe(INVALIDATION_REGION, authorCache, authorCache1);
   }
 
   private static final String AUTHOR_NOT_FOUND = "Author not found with id: ";
+  private static final String INVALIDATION_REGION = "authors";
+  private static final ListCachePatcher<AuthorDtoResponse> LIST_PATCHER =
+      new ListCachePatcher<>(AuthorDtoResponse::id, (key, author) -> true, key -> true);
 
   private final AuthorRepository authorRepository;
   private final AuthorMapperImpl authorMapper;
+  private final BookRepository bookRepository;
+  private final BookServiceImpl bookService;
+  private final SuggestServiceImpl suggestService;
   private static final Logger logger = LoggerFactory.getLogger(AuthorServiceImpl.class);
 
-  private final SimpleCache<Long, AuthorDtoResponse> authorCache = new SimpleCache<>(1000);
-  private final SimpleCache<String, List<AuthorDtoResponse>> authorCache1 = new SimpleCache<>(1000);
+  private final SimpleCache<Long, AuthorDtoResponse> authorCache;
+  private final SimpleCache<String, List<AuthorDtoResponse>> authorCache1;
+  private final InvalidationBus invalidationBus;
+  private final KeysetPager keysetPager;
 
   @Override
   public List<AuthorDtoResponse> getAll() {
-    String cacheKey = "all_authors";
-
-    List<AuthorDtoResponse> cachedList = authorCache1.get(cacheKey);
-    if (cachedList != null) {
-      logger.info("Author data loaded from cache (getAll)");
-      return cachedList;
-    }
-
-    logger.info("Data for the author is loaded from the database (getAll)");
-    List<Author> list = authorRepository.findAll();
-    List<AuthorDtoResponse> responseList = authorMapper.toAuthorDtoResponse(list);
+    return authorCache1.get("all_authors", key -> {
+      logger.info("Data for the author is loaded from the database (getAll)");
+      List<Author> list = authorRepository.findAll();
+      return authorMapper.toAuthorDtoResponse(list);
+    });
+  }
 
-    authorCache1.put(cacheKey, responseList);
-    return responseList;
+  @Override
+  public CursorPage<AuthorDtoResponse> getPage(String cursor, Integer limit) {
+    return keysetPager.byId(cursor, limit, authorRepository::findByIdGreaterThanOrderByIdAsc,
+        authorMapper::toAuthorDtoResponse, AuthorDtoResponse::id);
   }
 
   @Override
   public AuthorDtoResponse getById(Long id) {
-    AuthorDtoResponse cachedAuthor = authorCache.get(id);
-    if (cachedAuthor != null) {
-      logger.info("Author with id={} retrieved from cache", id);
-      return cachedAuthor;
+    AuthorDtoResponse author = authorCache.get(id, key -> {
+      logger.info("The author with id={} is loaded from the database", key);
+      return authorRepository.findById(key).map(authorMapper::toAuthorDtoResponse).orElse(null);
+    });
+    if (author == null) {
+      throw new RuntimeException(AUTHOR_NOT_FOUND + id);
     }
-
-    logger.info("The author with id={} is loaded from the database", id);
-    Author author = authorRepository.findById(id)
-                                    .orElseThrow(() -> new RuntimeException(AUTHOR_NOT_FOUND + id));
-    AuthorDtoResponse authorDtoResponse = authorMapper.toAuthorDtoResponse(author);
-
-    authorCache.put(id, authorDtoResponse);
-    return authorDtoResponse;
+    return author;
   }
 
   @Override
+  @Transactional
   public AuthorDtoResponse create(AuthorDtoRequest authorDtoRequest) {
     Author author = authorMapper.toAuthorEntity(authorDtoRequest);
     Author savedAuthor = authorRepository.save(author);
+    suggestService.authorSaved(savedAuthor);
     AuthorDtoResponse response = authorMapper.toAuthorDtoResponse(savedAuthor);
 
-    authorCache.put(savedAuthor.getId(), response);
-    authorCache1.clear(); // Clear the cache containing all authors list
+    cacheSaved(response);
+    invalidationBus.publish(INVALIDATION_REGION, savedAuthor.getId());
     return response;
   }
 
   @Override
+  @Transactional
   public AuthorDtoResponse update(Long id, AuthorDtoRequest authorDtoRequest) {
     authorRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException(AUTHOR_NOT_FOUND + id));
     Author updatedAuthor = authorMapper.toAuthorEntity(authorDtoRequest);
     updatedAuthor.setId(id);
-    AuthorDtoResponse response = authorMapper.toAuthorDtoResponse(
-        authorRepository.save(updatedAuthor));
+    Author savedAuthor = authorRepository.save(updatedAuthor);
+    suggestService.authorSaved(savedAuthor);
+    AuthorDtoResponse response = authorMapper.toAuthorDtoResponse(savedAuthor);
+    // имя автора входит в поисковые векторы и ответы его книг
+    List<Long> bookIds = bookRepository.findIdsByAuthorId(id);
+    bookRepository.updateSearchVectors(bookIds);
+    bookService.authorChanged(bookIds);
 
-    authorCache.put(id, response);
-    authorCache1.clear(); // Clear the cache containing all authors list
+    cacheSaved(response);
+    invalidationBus.publish(INVALIDATION_REGION, id);
     return response;
   }
 
   @Override
+  @Transactional
   public void delete(Long id) {
     Author author = authorRepository.findById(id)
                                     .orElseThrow(() -> new RuntimeException(AUTHOR_NOT_FOUND + id));
 
+    List<Long> bookIds = bookRepository.findIdsByAuthorId(id);
     authorRepository.delete(author);
-    authorCache.remove(id);
-    authorCache1.clear(); // Clear the cache containing all authors list
+    bookRepository.updateSearchVectors(bookIds);
+    bookService.authorChanged(bookIds);
+    suggestService.authorDeleted(id);
+    TransactionCallbacks.afterCommit(() -> {
+      authorCache.remove(id);
+      LIST_PATCHER.delete(authorCache1, id);
+    });
+    invalidationBus.publish(INVALIDATION_REGION, id);
+  }
+
+  /**
+   * Puts a saved author into the caches once the current transaction commits.
+   */
+  private void cacheSaved(AuthorDtoResponse response) {
+    TransactionCallbacks.afterCommit(() -> {
+      authorCache.put(response.id(), response);
+      LIST_PATCHER.upsert(authorCache1, response);
+    });
   }
 
   /**
@@ -1,19 +1,45 @@
 package com.example.weblibrary.service.impl;
 
+import com.example.weblibrary.exception.InvalidPageRequestException;
+import com.example.weblibrary.exception.TooManyIdsException;
 import com.example.weblibrary.mapper.BookMapperImpl;
 import com.example.weblibrary.model.Author;
 import com.example.weblibrary.model.Book;
 import com.example.weblibrary.model.dto.BookDtoRequest;
 import com.example.weblibrary.model.dto.BookDtoResponse;
+import com.example.weblibrary.model.dto.CursorPage;
+import com.example.weblibrary.model.dto.SearchPage;
+import com.example.weblibrary.model.enums.BookSort;
 import com.example.weblibrary.repository.AuthorRepository;
 import com.example.weblibrary.repository.BookRepository;
 import com.example.weblibrary.service.CrudService;
+import com.example.weblibrary.service.KeysetCursor;
+import com.example.weblibrary.service.KeysetPager;
+import com.example.weblibrary.service.cache.InvalidationBus;
+import com.example.weblibrary.service.cache.ListCachePatcher;
 import com.example.weblibrary.service.cache.SimpleCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,44 +50,99 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 @RequiredArgsConstructor
 public class BookServiceImpl implements CrudService<BookDtoRequest, BookDtoResponse> {
+  public static final String ALL_BOOKS_CACHE_KEY = "all_books";
+  public static final String GENRE_KEY_PREFIX = "genre:";
+  public static final String TITLE_KEY_PREFIX = "title:";
   private static final String BOOK_NOT_FOUND_MESSAGE = "Книга не найдена с ID: ";
   private static final String AUTHOR_NOT_FOUND_MESSAGE = "Один или несколько авторов не найдены";
+  private static final String INVALIDATION_REGION = "books";
+  private static final String PAGE_KEY_PREFIX = "page:";
+  private static final ListCachePatcher<BookDtoResponse> LIST_PATCHER = new ListCachePatcher<>(
+      BookDtoResponse::id, BookServiceImpl::belongsTo, key -> !key.startsWith(TITLE_KEY_PREFIX));
   private final BookRepository bookRepository;
   private final BookMapperImpl bookMapper;
   private final AuthorRepository authorRepository;
   private final SimpleCache<Long, BookDtoResponse> bookCache;
   private final SimpleCache<String, List<BookDtoResponse>> bookListCache;
+  private final SimpleCache<String, CursorPage<BookDtoResponse>> bookPageCache;
+  private final InvalidationBus invalidationBus;
+  private final EntityManager entityManager;
+  private final ObjectMapper objectMapper;
+  private final SuggestServiceImpl suggestService;
+  private final FacetServiceImpl facetService;
+  private final KeysetPager keysetPager;
   private static final Logger log = LoggerFactory.getLogger(BookServiceImpl.class);
 
+  @Value("${books.batch-get.max-ids:100}")
+  private int maxBatchIds;
+
+  @PostConstruct
+  void subscribeToInvalidations() {
+    invalidationBus.subscribe(INVALIDATION_REGION, new InvalidationBus.Listener() {
+      @Override
+      public void invalidate(Set<Long> ids) {
+        reload(ids);
+      }
+
+      @Override
+      public void invalidateAll() {
+        bookCache.clear();
+        bookListCache.clear();
+        bookPageCache.clear();
+      }
+    });
+  }
+
   @Override
   @Transactional(readOnly = true)
   public List<BookDtoResponse> getAll() {
-    String cacheKey = "all_books";
-    List<BookDtoResponse> cachedList = bookListCache.get(cacheKey);
-    if (cachedList != null) {
-      log.info("Получены все книги из кэша.");
-      return cachedList;
-    }
-    log.info("Загрузка всех книг из базы данных.");
-    List<BookDtoResponse> responseList = bookMapper.toBookDtoResponse(bookRepository.findAll());
-    bookListCache.put(cacheKey, responseList);
-    return responseList;
+    return bookListCache.get(ALL_BOOKS_CACHE_KEY, key -> {
+      log.info("Загрузка всех книг из базы данных.");
+      return bookMapper.fromRows(bookRepository.findAllRows());
+    });
   }
 
   @Override
   @Transactional(readOnly = true)
   public BookDtoResponse getById(Long id) {
-    BookDtoResponse cachedBook = bookCache.get(id);
-    if (cachedBook != null) {
-      log.info("Книга с ID={} получена из кэша.", id);
-      return cachedBook;
+    BookDtoResponse book = bookCache.get(id, key -> {
+      log.info("Загрузка книги с ID={} из базы данных.", key);
+      List<BookDtoResponse> books = bookMapper.fromRows(bookRepository.findRowsById(key));
+      return books.isEmpty() ? null : books.get(0);
+    });
+    if (book == null) {
+      throw new RuntimeException(BOOK_NOT_FOUND_MESSAGE + id);
     }
-    log.info("Загрузка книги с ID={} из базы данных.", id);
-    Book book = bookRepository.findById(id)
-                              .orElseThrow(() -> new RuntimeException(BOOK_NOT_FOUND_MESSAGE + id));
-    BookDtoResponse response = bookMapper.toBookDtoResponse(book);
-    bookCache.put(id, response);
-    return response;
+    return book;
+  }
+
+  /**
+   * Returns several books at once, in the order of the requested ids.
+   * Cached books are taken from the book cache and the others are read with
+   * a single query and cached. Ids without a book are left out, and a
+   * repeated id yields the book once.
+   *
+   * @param ids the ids of the books
+   * @return the books found
+   * @throws TooManyIdsException if more than {@code books.batch-get.max-ids}
+   *     ids are requested, counting repeated ones
+   */
+  @Transactional(readOnly = true)
+  public List<BookDtoResponse> getByIds(List<Long> ids) {
+    if (ids.size() > maxBatchIds) {
+      throw new TooManyIdsException("Можно запросить не более " + maxBatchIds
+          + " книг за раз");
+    }
+    Set<Long> distinct = new LinkedHashSet<>();
+    ids.stream().filter(Objects::nonNull).forEach(distinct::add);
+    Map<Long, BookDtoResponse> books = bookCache.getAll(distinct, missing -> {
+      log.info("Загрузка {} книг из базы данных.", missing.size());
+      Map<Long, BookDtoResponse> found = new HashMap<>();
+      bookMapper.fromRows(bookRepository.findRowsByIdIn(missing))
+          .forEach(book -> found.put(book.id(), book));
+      return found;
+    });
+    return List.copyOf(books.values());
   }
 
   @Override
@@ -78,9 +159,12 @@ public class BookServiceImpl implements CrudService<BookDtoRequest, BookDtoRespo
     Book book = bookMapper.toBookEntity(bookDtoRequest);
     book.setAuthors(authors);
     Book savedBook = bookRepository.save(book);
+    bookRepository.updateSearchVectors(List.of(savedBook.getId()));
+    suggestService.booksSaved(List.of(savedBook));
+    facetService.booksSaved(List.of(savedBook));
     BookDtoResponse response = bookMapper.toBookDtoResponse(savedBook);
-    bookCache.put(savedBook.getId(), response);
-    bookListCache.clear();
+    cacheSaved(List.of(response));
+    invalidationBus.publish(INVALIDATION_REGION, savedBook.getId());
     log.info("Создана новая книга с ID={}.", savedBook.getId());
     return response;
   }
@@ -102,9 +186,12 @@ public class BookServiceImpl implements CrudService<BookDtoRequest, BookDtoRespo
     updatedBook.setId(id);
     updatedBook.setAuthors(authors);
     Book savedBook = bookRepository.save(updatedBook);
+    bookRepository.updateSearchVectors(List.of(id));
+    suggestService.booksSaved(List.of(savedBook));
+    facetService.booksSaved(List.of(savedBook));
     BookDtoResponse response = bookMapper.toBookDtoResponse(savedBook);
-    bookCache.put(id, response);
-    bookListCache.clear();
+    cacheSaved(List.of(response));
+    invalidationBus.publish(INVALIDATION_REGION, id);
     log.info("Обновлена книга с ID={}.", id);
     return response;
   }
@@ -116,55 +203,276 @@ public class BookServiceImpl implements CrudService<BookDtoRequest, BookDtoRespo
     Book book = bookRepository.findById(id)
                               .orElseThrow(() -> new RuntimeException(BOOK_NOT_FOUND_MESSAGE + id));
     bookRepository.delete(book);
-    bookCache.remove(id);
-    bookListCache.clear();
+    suggestService.bookDeleted(id);
+    facetService.bookDeleted(id);
+    TransactionCallbacks.afterCommit(() -> {
+      bookCache.remove(id);
+      LIST_PATCHER.delete(bookListCache, id);
+      bookPageCache.clear();
+    });
+    invalidationBus.publish(INVALIDATION_REGION, id);
     log.warn("Удалена книга с ID={}.", id);
   }
 
+  /**
+   * Drops the cached books of an author that was updated or deleted, since
+   * every book response embeds its authors. The caches are updated once the
+   * current transaction commits and the other nodes are told to do the same.
+   *
+   * @param bookIds the ids of the author's books
+   */
+  public void authorChanged(List<Long> bookIds) {
+    if (bookIds.isEmpty()) {
+      return;
+    }
+    TransactionCallbacks.afterCommit(() -> {
+      bookIds.forEach(bookCache::remove);
+      LIST_PATCHER.invalidate(bookListCache, bookIds);
+      bookPageCache.clear();
+    });
+    invalidationBus.publish(INVALIDATION_REGION, bookIds);
+  }
+
+  @Override
   @Transactional(readOnly = true)
-  public List<BookDtoResponse> getByGenre(String genre) {
-    log.info("Поиск книг по жанру: {}", genre);
-    List<Book> books = bookRepository.findByGenre(genre);
-    if (books.isEmpty()) {
-      log.info("Книги с жанром {} не найдены.", genre);
-      return Collections.emptyList();
+  public CursorPage<BookDtoResponse> getPage(String cursor, Integer limit) {
+    return getPage(null, null, cursor, limit);
+  }
+
+  /**
+   * Returns a page of the catalog using keyset pagination: the page starts
+   * right after the position encoded in the cursor, so the database seeks to
+   * it through an index instead of scanning skipped rows. Pages are cached
+   * and dropped on every book write, since a write can shift any page.
+   *
+   * @param sort sort key ({@code id}, {@code title}, {@code rating} or
+   *     {@code publishDate}); ignored when a cursor is given
+   * @param direction {@code asc} or {@code desc}; ignored when a cursor is given
+   * @param cursor cursor returned with the previous page, or null for the first page
+   * @param limit page size, at most {@code pagination.max-size}
+   * @return the page with the cursor of the next one
+   * @throws InvalidPageRequestException if a parameter is invalid
+   */
+  @Transactional(readOnly = true)
+  public CursorPage<BookDtoResponse> getPage(String sort, String direction, String cursor,
+      Integer limit) {
+    int size = keysetPager.pageSize(limit);
+    KeysetCursor position = cursor == null ? null : KeysetCursor.decode(cursor);
+    BookSort order = BookSort.fromParameter(position == null ? sort : position.sort());
+    boolean descending = position == null ? isDescending(direction) : position.descending();
+    String key = PAGE_KEY_PREFIX + order.getParameter() + ":" + (descending ? "desc" : "asc")
+        + ":" + size + ":" + (cursor == null ? "" : cursor);
+    return bookPageCache.get(key, k -> {
+      log.info("Загрузка страницы книг: {}", k);
+      List<Book> books = bookRepository.findPage(order, descending,
+          position == null ? null : order.parse(position.value()),
+          position == null ? null : position.id(), size + 1);
+      boolean hasNext = books.size() > size;
+      List<BookDtoResponse> items =
+          bookMapper.toBookDtoResponse(hasNext ? books.subList(0, size) : books);
+      String next = null;
+      if (hasNext) {
+        BookDtoResponse last = items.get(items.size() - 1);
+        next = new KeysetCursor(order.getParameter(), descending, last.id(),
+            order.format(order.valueOf(last))).encode();
+      }
+      return new CursorPage<>(items, next);
+    });
+  }
+
+  /**
+   * Writes the whole catalog as NDJSON, one book per line, in id order.
+   * Books are read from a database cursor one fetched batch at a time; the
+   * authors of a batch are loaded together by the batch fetch of
+   * {@code Book.authors}, and the batch is detached once written, so memory
+   * use does not depend on the size of the catalog.
+   *
+   * @param out the stream to write to; it is flushed but not closed
+   * @throws IOException if writing fails
+   */
+  @Transactional(readOnly = true)
+  public void exportCatalog(OutputStream out) throws IOException {
+    int batchSize = Integer.parseInt(BookRepository.EXPORT_FETCH_SIZE);
+    long count = 0;
+    try (Stream<Book> books = bookRepository.streamAllByOrderById();
+         JsonGenerator generator = objectMapper.createGenerator(out)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      List<Book> batch = new ArrayList<>(batchSize);
+      Iterator<Book> iterator = books.iterator();
+      while (iterator.hasNext()) {
+        batch.add(iterator.next());
+        if (batch.size() == batchSize || !iterator.hasNext()) {
+          for (Book book : batch) {
+            generator.writeObject(bookMapper.toBookDtoResponse(book));
+            generator.writeRaw('\n');
+          }
+          count += batch.size();
+          batch.clear();
+          entityManager.clear();
+        }
+      }
     }
-    return bookMapper.toBookDtoResponse(books);
+    log.info("Выгружено книг: {}", count);
   }
 
+  /**
+   * Searches the catalog by title, author names, publisher and description,
+   * most relevant books first. Words are matched with the stemming of every
+   * supported language, so inflected forms are found as well.
+   *
+   * @param query the search query in web search syntax: words, "quoted
+   *     phrases", {@code or} and {@code -excluded} words
+   * @param page zero-based page number, 0 when null
+   * @param limit page size, at most {@code pagination.max-size}
+   * @return the page of results
+   * @throws InvalidPageRequestException if the query is blank or the page is invalid
+   */
   @Transactional(readOnly = true)
-  public List<BookDtoResponse> getBookByTitle(String title) {
-    log.info("Поиск книг по названию: {}", title);
-    List<Book> books = bookRepository.findByTitleContainingIgnoreCase(title);
-    if (books.isEmpty()) {
-      log.info("Книги с названием {} не найдены.", title);
-      return Collections.emptyList();
+  public SearchPage<BookDtoResponse> search(String query, Integer page, Integer limit) {
+    if (query == null || query.isBlank()) {
+      throw new InvalidPageRequestException("Поисковый запрос не должен быть пустым");
     }
-    log.info("Найдено {} книг.", books.size());
-    return bookMapper.toBookDtoResponse(books);
+    int size = keysetPager.pageSize(limit);
+    int number = page == null ? 0 : page;
+    if (number < 0) {
+      throw new InvalidPageRequestException("Номер страницы не может быть отрицательным");
+    }
+    log.info("Полнотекстовый поиск книг: {}", query);
+    List<Long> ids = bookRepository.search(query, (long) number * size, size + 1);
+    boolean hasNext = ids.size() > size;
+    List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+    Map<Long, BookDtoResponse> found = new HashMap<>();
+    if (!pageIds.isEmpty()) {
+      bookMapper.fromRows(bookRepository.findRowsByIdIn(pageIds))
+          .forEach(book -> found.put(book.id(), book));
+    }
+    List<BookDtoResponse> items = pageIds.stream()
+        .map(found::get)
+        .filter(Objects::nonNull)
+        .toList();
+    return new SearchPage<>(items, number, size, hasNext);
+  }
+
+  @Transactional(readOnly = true)
+  public List<BookDtoResponse> getByGenre(String genre) {
+    return bookListCache.get(GENRE_KEY_PREFIX + genre, key -> {
+      log.info("Поиск книг по жанру: {}", genre);
+      List<BookDtoResponse> books = bookMapper.fromRows(bookRepository.findRowsByGenre(genre));
+      if (books.isEmpty()) {
+        log.info("Книги с жанром {} не найдены.", genre);
+        return Collections.emptyList();
+      }
+      return books;
+    });
+  }
+
+  @Transactional(readOnly = true)
+  public List<BookDtoResponse> getBookByTitle(String title) {
+    return bookListCache.get(TITLE_KEY_PREFIX + title.toLowerCase(Locale.ROOT), key -> {
+      log.info("Поиск книг по названию: {}", title);
+      List<BookDtoResponse> books =
+          bookMapper.fromRows(bookRepository.findRowsByTitleContaining(title));
+      if (books.isEmpty()) {
+        log.info("Книги с названием {} не найдены.", title);
+        return Collections.emptyList();
+      }
+      log.info("Найдено {} книг.", books.size());
+      return books;
+    });
   }
 
   @Transactional
   public List<BookDtoResponse> createBooksBulk(List<BookDtoRequest> requests) {
     log.info("Создание {} книг (bulk-операция).", requests.size());
-    List<Book> books = requests.stream().map(request -> {
+    Set<Long> authorIds = new HashSet<>();
+    for (BookDtoRequest request : requests) {
       if (request.authorIds() == null || request.authorIds().isEmpty()) {
         throw new IllegalArgumentException("Необходимо указать хотя бы одного автора");
       }
-      List<Author> authors = authorRepository.findAllById(request.authorIds());
+      authorIds.addAll(request.authorIds());
+    }
+    Map<Long, Author> authorsById = new HashMap<>();
+    authorRepository.findAllById(authorIds)
+        .forEach(author -> authorsById.put(author.getId(), author));
+    List<Book> books = requests.stream().map(request -> {
+      List<Author> authors = request.authorIds().stream()
+          .distinct()
+          .map(authorsById::get)
+          .filter(Objects::nonNull)
+          .toList();
       if (authors.size() != request.authorIds().size()) {
         throw new RuntimeException(AUTHOR_NOT_FOUND_MESSAGE);
       }
       Book book = bookMapper.toBookEntity(request);
-      book.setAuthors(authors);
+      book.setAuthors(new ArrayList<>(authors));
       return book;
     }).toList();
     List<Book> savedBooks = bookRepository.saveAll(books);
+    bookRepository.updateSearchVectors(savedBooks.stream().map(Book::getId).toList());
+    suggestService.booksSaved(savedBooks);
+    facetService.booksSaved(savedBooks);
     List<BookDtoResponse> responses = bookMapper.toBookDtoResponse(savedBooks);
-    savedBooks.forEach(book ->
-        bookCache.put(book.getId(), bookMapper.toBookDtoResponse(book)));
-    bookListCache.clear();
+    cacheSaved(responses);
+    invalidationBus.publish(INVALIDATION_REGION,
+        savedBooks.stream().map(Book::getId).toList());
     log.info("Успешно создано {} книг.", savedBooks.size());
     return responses;
   }
-}
\ No newline at end of file
+
+  /**
+   * Puts saved books into the book cache and the cached lists once the
+   * current transaction commits, so that no reader gets a book that may
+   * still be rolled back. Pages are dropped, since a write can shift any of
+   * them.
+   */
+  private void cacheSaved(List<BookDtoResponse> responses) {
+    TransactionCallbacks.afterCommit(() -> {
+      responses.forEach(response -> bookCache.put(response.id(), response));
+      LIST_PATCHER.upsert(bookListCache, responses);
+      bookPageCache.clear();
+    });
+  }
+
+  /**
+   * Applies books written on another node the way local writes are applied:
+   * they are dropped from the book cache and read again to patch the cached
+   * lists, so a write on one node does not empty the lists of the others.
+   * Books that are no longer found were deleted.
+   */
+  private void reload(Set<Long> ids) {
+    ids.forEach(bookCache::remove);
+    List<BookDtoResponse> found = bookMapper.fromRows(bookRepository.findRowsByIdIn(ids));
+    Set<Long> missing = new HashSet<>(ids);
+    found.forEach(book -> missing.remove(book.id()));
+    LIST_PATCHER.upsert(bookListCache, found);
+    LIST_PATCHER.delete(bookListCache, missing);
+    bookPageCache.clear();
+  }
+
+  private static boolean isDescending(String direction) {
+    if (direction == null || direction.equalsIgnoreCase("asc")) {
+      return false;
+    }
+    if (direction.equalsIgnoreCase("desc")) {
+      return true;
+    }
+    throw new InvalidPageRequestException("Направление сортировки должно быть asc или desc");
+  }
+
+  /**
+   * Tells whether a book belongs to the cached list stored under the key.
+   * Title lists are only approximated, since the database folds case
+   * differently, and are invalidated rather than patched.
+   */
+  private static boolean belongsTo(String key, BookDtoResponse book) {
+    if (key.startsWith(GENRE_KEY_PREFIX)) {
+      return key.substring(GENRE_KEY_PREFIX.length()).equals(book.genre());
+    }
+    if (key.startsWith(TITLE_KEY_PREFIX)) {
+      return book.title() != null && book.title().toLowerCase(Locale.ROOT)
+          .contains(key.substring(TITLE_KEY_PREFIX.length()));
+    }
+    return ALL_BOOKS_CACHE_KEY.equals(key);
+  }
+}
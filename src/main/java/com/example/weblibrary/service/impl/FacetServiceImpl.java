@@ -0,0 +1,161 @@
+package com.example.weblibrary.service.impl;
+
+import com.example.weblibrary.exception.InvalidPageRequestException;
+import com.example.weblibrary.mapper.BookMapperImpl;
+import com.example.weblibrary.model.Book;
+import com.example.weblibrary.model.dto.BookDtoResponse;
+import com.example.weblibrary.model.dto.BookFacets;
+import com.example.weblibrary.model.dto.FacetFilter;
+import com.example.weblibrary.model.dto.FacetPage;
+import com.example.weblibrary.repository.BookRepository;
+import com.example.weblibrary.service.FacetIndex;
+import com.example.weblibrary.service.KeysetPager;
+import com.example.weblibrary.service.cache.InvalidationBus;
+import jakarta.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Faceted browsing of the catalog: filtering by genre, language, publisher,
+ * publication year and rating with the number of books per value, answered
+ * by a {@link FacetIndex} instead of GROUP BY queries.
+ *
+ * <p>The index is loaded when the application starts and kept up to date
+ * by the book service, whose writes are applied once the transaction
+ * commits; writes on other nodes arrive through the invalidation bus and
+ * are reloaded from the database. Only the books of the requested page are
+ * read from the database.
+ */
+@Slf4j
+@Service
+public class FacetServiceImpl {
+  private static final String BOOKS_REGION = "books";
+
+  private final BookRepository bookRepository;
+  private final BookMapperImpl bookMapper;
+  private final InvalidationBus invalidationBus;
+  private final KeysetPager keysetPager;
+  private final FacetIndex index;
+
+  /**
+   * Creates the service.
+   *
+   * @param bookRepository repository of books
+   * @param bookMapper mapper of books to responses
+   * @param invalidationBus bus delivering writes made on other nodes
+   * @param keysetPager page size limits
+   * @param maxValues the largest number of values returned for the genre,
+   *     language and publisher facets
+   */
+  public FacetServiceImpl(BookRepository bookRepository, BookMapperImpl bookMapper,
+      InvalidationBus invalidationBus, KeysetPager keysetPager,
+      @Value("${facets.max-values:50}") int maxValues) {
+    this.bookRepository = bookRepository;
+    this.bookMapper = bookMapper;
+    this.invalidationBus = invalidationBus;
+    this.keysetPager = keysetPager;
+    this.index = new FacetIndex(maxValues);
+  }
+
+  @PostConstruct
+  void subscribeToInvalidations() {
+    invalidationBus.subscribe(BOOKS_REGION, new InvalidationBus.Listener() {
+      @Override
+      public void invalidate(Set<Long> ids) {
+        reload(ids);
+      }
+
+      @Override
+      public void invalidateAll() {
+        load();
+      }
+    });
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void load() {
+    index.replaceAll(bookRepository.findAllFacets());
+    log.info("Индекс фасетов загружен: {} книг", index.size());
+  }
+
+  /**
+   * Finds the books matching the filters, in id order, with the number of
+   * matching books per value of every facet.
+   *
+   * @param filter the filters
+   * @param page zero-based page number, 0 when null
+   * @param limit page size, at most {@code pagination.max-size}
+   * @return the page of books with the facet counts
+   * @throws InvalidPageRequestException if the page, the limit or a range is invalid
+   */
+  @Transactional(readOnly = true)
+  public FacetPage<BookDtoResponse> search(FacetFilter filter, Integer page, Integer limit) {
+    int size = keysetPager.pageSize(limit);
+    int number = page == null ? 0 : page;
+    if (number < 0) {
+      throw new InvalidPageRequestException("Номер страницы не может быть отрицательным");
+    }
+    if (filter.yearFrom() != null && filter.yearTo() != null
+        && filter.yearFrom() > filter.yearTo()) {
+      throw new InvalidPageRequestException("Начальный год не может быть больше конечного");
+    }
+    if (filter.ratingFrom() != null && filter.ratingTo() != null
+        && filter.ratingFrom() > filter.ratingTo()) {
+      throw new InvalidPageRequestException(
+          "Минимальный рейтинг не может быть больше максимального");
+    }
+    FacetPage<Long> ids = index.search(filter, number, size);
+    Map<Long, BookDtoResponse> found = new HashMap<>();
+    if (!ids.items().isEmpty()) {
+      bookMapper.fromRows(bookRepository.findRowsByIdIn(ids.items()))
+          .forEach(book -> found.put(book.id(), book));
+    }
+    List<BookDtoResponse> items = ids.items().stream()
+        .map(found::get)
+        .filter(Objects::nonNull)
+        .toList();
+    return new FacetPage<>(items, ids.page(), ids.size(), ids.hasNext(), ids.total(),
+        ids.facets());
+  }
+
+  /**
+   * Indexes saved books once the current transaction commits.
+   *
+   * @param books the saved books
+   */
+  public void booksSaved(Collection<Book> books) {
+    List<BookFacets> facets = books.stream()
+        .map(book -> new BookFacets(book.getId(), book.getGenre(), book.getLanguage(),
+            book.getPublisher(), book.getPublishDate(), book.getRating()))
+        .toList();
+    TransactionCallbacks.afterCommit(() -> index.putAll(facets));
+  }
+
+  /**
+   * Removes a deleted book from the index once the current transaction commits.
+   *
+   * @param id the id of the book
+   */
+  public void bookDeleted(Long id) {
+    TransactionCallbacks.afterCommit(() -> index.removeAll(List.of(id)));
+  }
+
+  private void reload(Set<Long> ids) {
+    List<BookFacets> found = bookRepository.findFacetsByIdIn(ids);
+    Set<Long> missing = new HashSet<>(ids);
+    found.forEach(book -> missing.remove(book.id()));
+    index.removeAll(missing);
+    index.putAll(found);
+  }
+}
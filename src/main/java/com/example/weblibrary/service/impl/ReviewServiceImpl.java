@@ -4,13 +4,18 @@ import com.example.weblibrary.mapper.ReviewMapperImpl;
 import com.example.weblibrary.model.Book;
 import com.example.weblibrary.model.Log;
 import com.example.weblibrary.model.User;
+import com.example.weblibrary.model.dto.CursorPage;
 import com.example.weblibrary.model.dto.ReviewDtoRequest;
 import com.example.weblibrary.model.dto.ReviewDtoResponse;
 import com.example.weblibrary.repository.BookRepository;
 import com.example.weblibrary.repository.ReviewRepository;
 import com.example.weblibrary.repository.UserRepository;
 import com.example.weblibrary.service.CrudService;
+import com.example.weblibrary.service.KeysetPager;
+import com.example.weblibrary.service.cache.InvalidationBus;
+import com.example.weblibrary.service.cache.ListCachePatcher;
 import com.example.weblibrary.service.cache.SimpleCache;
+import jakarta.annotation.PostConstruct;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -26,53 +31,51 @@ public class ReviewServiceImpl implements CrudService<ReviewDtoRequest,
     ReviewDtoResponse> {
   private static final String ALL_REVIEWS_CACHE_KEY = "all_reviews";
   private static final String REVIEW_NOT_FOUND_MESSAGE = "Review not found with id: ";
+  private static final String INVALIDATION_REGION = "reviews";
+  private static final ListCachePatcher<ReviewDtoResponse> LIST_PATCHER =
+      new ListCachePatcher<>(ReviewDtoResponse::id, (key, review) -> true, key -> true);
 
   private final ReviewRepository reviewRepository;
   private final ReviewMapperImpl reviewMapper;
   private final BookRepository bookRepository;
   private final UserRepository userRepository;
 
-  private final SimpleCache<Long, ReviewDtoResponse> reviewCache =
-      new SimpleCache<>(
-      1000);
-  private final SimpleCache<String, List<ReviewDtoResponse>> reviewListCache
-      = new SimpleCache<>(
-      1000);
+  private final SimpleCache<Long, ReviewDtoResponse> reviewCache;
+  private final SimpleCache<String, List<ReviewDtoResponse>> reviewListCache;
+  private final InvalidationBus invalidationBus;
+  private final KeysetPager keysetPager;
   private static final Logger log = LoggerFactory.getLogger(
       ReviewServiceImpl.class);
 
+  @PostConstruct
+  void subscribeToInvalidations() {
+    invalidationBus.subscribe(INVALIDATION_REGION, reviewCache, reviewListCache);
+  }
+
   @Override
   public List<ReviewDtoResponse> getAll() {
-    String cacheKey = ALL_REVIEWS_CACHE_KEY;
-
-    List<ReviewDtoResponse> cachedList = reviewListCache.get(cacheKey);
-    if (cachedList != null) {
-      log.debug("Data on all reviews is obtained from the cache");
-      return cachedList;
-    }
+    return reviewListCache.get(ALL_REVIEWS_CACHE_KEY, key -> {
+      log.debug("Data on all reviews is downloaded from the database");
+      return reviewMapper.toReviewDtoResponse(reviewRepository.findAll());
+    });
+  }
 
-    log.debug("Data on all reviews is downloaded from the database");
-    List<ReviewDtoResponse> responseList = reviewMapper.toReviewDtoResponse(
-        reviewRepository.findAll());
-    reviewListCache.put(cacheKey, responseList);
-    return responseList;
+  @Override
+  public CursorPage<ReviewDtoResponse> getPage(String cursor, Integer limit) {
+    return keysetPager.byId(cursor, limit, reviewRepository::findByIdGreaterThanOrderByIdAsc,
+        reviewMapper::toReviewDtoResponse, ReviewDtoResponse::id);
   }
 
   @Override
   public ReviewDtoResponse getById(Long id) {
-    ReviewDtoResponse cachedReview = reviewCache.get(id);
-    if (cachedReview != null) {
-      log.debug("Review with id={} retrieved from cache", id);
-      return cachedReview;
+    ReviewDtoResponse review = reviewCache.get(id, key -> {
+      log.debug("Review with id={} retrieved from the database", key);
+      return reviewRepository.findById(key).map(reviewMapper::toReviewDtoResponse).orElse(null);
+    });
+    if (review == null) {
+      throw new RuntimeException(REVIEW_NOT_FOUND_MESSAGE + id);
     }
-
-    log.debug("Review with id={} retrieved from the database", id);
-    Log.Review review = reviewRepository.findById(id).orElseThrow(
-        () -> new RuntimeException(REVIEW_NOT_FOUND_MESSAGE + id));
-
-    ReviewDtoResponse response = reviewMapper.toReviewDtoResponse(review);
-    reviewCache.put(id, response);
-    return response;
+    return review;
   }
 
   @Override
@@ -93,7 +96,8 @@ public class ReviewServiceImpl implements CrudService<ReviewDtoRequest,
     ReviewDtoResponse response = reviewMapper.toReviewDtoResponse(savedReview);
 
     reviewCache.put(savedReview.getId(), response);
-    reviewListCache.remove(ALL_REVIEWS_CACHE_KEY); // Удаляем только кэш списка
+    LIST_PATCHER.upsert(reviewListCache, response);
+    invalidationBus.publish(INVALIDATION_REGION, savedReview.getId());
 
     return response;
   }
@@ -113,7 +117,8 @@ public class ReviewServiceImpl implements CrudService<ReviewDtoRequest,
         updatedReview);
 
     reviewCache.put(id, response);
-    reviewListCache.clear(); // Очистка кэша списка отзывов
+    LIST_PATCHER.upsert(reviewListCache, response);
+    invalidationBus.publish(INVALIDATION_REGION, id);
 
     return response;
   }
@@ -125,7 +130,8 @@ public class ReviewServiceImpl implements CrudService<ReviewDtoRequest,
 
     reviewRepository.delete(review);
     reviewCache.remove(id);
-    reviewListCache.remove(ALL_REVIEWS_CACHE_KEY); // Удаляем только кэш списка
+    LIST_PATCHER.delete(reviewListCache, id);
+    invalidationBus.publish(INVALIDATION_REGION, id);
   }
 
 }
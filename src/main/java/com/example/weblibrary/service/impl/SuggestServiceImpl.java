@@ -0,0 +1,228 @@
+package com.example.weblibrary.service.impl;
+
+import com.example.weblibrary.exception.InvalidPageRequestException;
+import com.example.weblibrary.model.Author;
+import com.example.weblibrary.model.Book;
+import com.example.weblibrary.model.dto.FuzzyMatch;
+import com.example.weblibrary.model.dto.SearchPage;
+import com.example.weblibrary.model.dto.Suggestion;
+import com.example.weblibrary.repository.AuthorRepository;
+import com.example.weblibrary.repository.BookRepository;
+import com.example.weblibrary.service.KeysetPager;
+import com.example.weblibrary.service.SuggestionIndex;
+import com.example.weblibrary.service.cache.InvalidationBus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Type-ahead suggestions over book titles and author names, served from a
+ * {@link SuggestionIndex} so a keystroke costs no database query.
+ *
+ * <p>The index is loaded when the application starts. The book and author
+ * services report their writes, which are applied once the transaction
+ * commits; writes on other nodes arrive through the invalidation bus and
+ * are reloaded from the database.
+ */
+@Slf4j
+@Service
+public class SuggestServiceImpl {
+  private static final String BOOKS_REGION = "books";
+  private static final String AUTHORS_REGION = "authors";
+
+  private final BookRepository bookRepository;
+  private final AuthorRepository authorRepository;
+  private final InvalidationBus invalidationBus;
+  private final KeysetPager keysetPager;
+  private final int maxResults;
+  private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "suggestion-index-rebuild");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final SuggestionIndex index;
+
+  /**
+   * Creates the service.
+   *
+   * @param bookRepository repository of books
+   * @param authorRepository repository of authors
+   * @param invalidationBus bus delivering writes made on other nodes
+   * @param keysetPager page size limits
+   * @param maxResults the largest number of suggestions a client may request
+   */
+  public SuggestServiceImpl(BookRepository bookRepository, AuthorRepository authorRepository,
+      InvalidationBus invalidationBus, KeysetPager keysetPager,
+      @Value("${suggest.max-results:20}") int maxResults) {
+    this.bookRepository = bookRepository;
+    this.authorRepository = authorRepository;
+    this.invalidationBus = invalidationBus;
+    this.keysetPager = keysetPager;
+    this.maxResults = maxResults;
+    this.index = new SuggestionIndex(maxResults, rebuildExecutor);
+  }
+
+  @PostConstruct
+  void subscribeToInvalidations() {
+    invalidationBus.subscribe(BOOKS_REGION, listener(this::reloadBooks, this::loadBooks));
+    invalidationBus.subscribe(AUTHORS_REGION, listener(this::reloadAuthors, this::loadAuthors));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void load() {
+    loadBooks();
+    loadAuthors();
+    log.info("Индекс подсказок загружен: {} записей", index.size());
+  }
+
+  @PreDestroy
+  void shutdown() {
+    rebuildExecutor.shutdownNow();
+  }
+
+  /**
+   * Returns the best-rated books and authors with a word of the title or
+   * name starting with the typed text.
+   *
+   * @param query the typed text
+   * @param limit the number of suggestions, 10 when null
+   * @return the suggestions, best first
+   * @throws InvalidPageRequestException if the limit is out of range
+   */
+  public List<Suggestion> suggest(String query, Integer limit) {
+    int size = limit == null ? Math.min(10, maxResults) : limit;
+    if (size < 1 || size > maxResults) {
+      throw new InvalidPageRequestException("Количество подсказок должно быть от 1 до "
+          + maxResults);
+    }
+    return index.suggest(query, size);
+  }
+
+  /**
+   * Finds books and authors by title or name, tolerating typos in every word
+   * of the query.
+   *
+   * @param query the typed text
+   * @param page zero-based page number, 0 when null
+   * @param limit page size, at most {@code pagination.max-size}
+   * @return the page of matches, most relevant first
+   * @throws InvalidPageRequestException if the page or the limit is invalid
+   */
+  public SearchPage<FuzzyMatch> fuzzy(String query, Integer page, Integer limit) {
+    int size = keysetPager.pageSize(limit);
+    int number = page == null ? 0 : page;
+    if (number < 0) {
+      throw new InvalidPageRequestException("Номер страницы не может быть отрицательным");
+    }
+    List<FuzzyMatch> matches = index.fuzzy(query);
+    long from = (long) number * size;
+    if (from >= matches.size()) {
+      return new SearchPage<>(List.of(), number, size, false);
+    }
+    int to = (int) Math.min(matches.size(), from + size);
+    return new SearchPage<>(List.copyOf(matches.subList((int) from, to)), number, size,
+        to < matches.size());
+  }
+
+  /**
+   * Adds or updates the suggestions of saved books once the current
+   * transaction commits.
+   *
+   * @param books the saved books
+   */
+  public void booksSaved(Collection<Book> books) {
+    List<Suggestion> suggestions = books.stream()
+        .map(book -> new Suggestion(Suggestion.BOOK, book.getId(), book.getTitle(),
+            book.getRating()))
+        .toList();
+    TransactionCallbacks.afterCommit(() -> index.putAll(suggestions));
+  }
+
+  /**
+   * Removes the suggestion of a deleted book once the current transaction commits.
+   *
+   * @param id the id of the book
+   */
+  public void bookDeleted(Long id) {
+    TransactionCallbacks.afterCommit(() -> index.removeAll(Suggestion.BOOK, List.of(id)));
+  }
+
+  /**
+   * Adds or updates the suggestion of a saved author once the current
+   * transaction commits.
+   *
+   * @param author the saved author
+   */
+  public void authorSaved(Author author) {
+    Suggestion suggestion = toSuggestion(author);
+    TransactionCallbacks.afterCommit(() -> index.putAll(List.of(suggestion)));
+  }
+
+  /**
+   * Removes the suggestion of a deleted author once the current transaction commits.
+   *
+   * @param id the id of the author
+   */
+  public void authorDeleted(Long id) {
+    TransactionCallbacks.afterCommit(() -> index.removeAll(Suggestion.AUTHOR, List.of(id)));
+  }
+
+  private void loadBooks() {
+    index.replaceAll(Suggestion.BOOK, bookRepository.findAllSuggestions());
+  }
+
+  private void loadAuthors() {
+    index.replaceAll(Suggestion.AUTHOR,
+        authorRepository.findAll().stream().map(SuggestServiceImpl::toSuggestion).toList());
+  }
+
+  private void reloadBooks(Set<Long> ids) {
+    List<Suggestion> found = bookRepository.findSuggestionsByIdIn(ids);
+    index.removeAll(Suggestion.BOOK, missing(ids, found));
+    index.putAll(found);
+  }
+
+  private void reloadAuthors(Set<Long> ids) {
+    List<Suggestion> found = authorRepository.findAllById(ids).stream()
+        .map(SuggestServiceImpl::toSuggestion)
+        .toList();
+    index.removeAll(Suggestion.AUTHOR, missing(ids, found));
+    index.putAll(found);
+  }
+
+  private static Set<Long> missing(Set<Long> ids, List<Suggestion> found) {
+    Set<Long> missing = new HashSet<>(ids);
+    found.forEach(suggestion -> missing.remove(suggestion.id()));
+    return missing;
+  }
+
+  private static Suggestion toSuggestion(Author author) {
+    return new Suggestion(Suggestion.AUTHOR, author.getId(), author.getFullName(),
+        author.getRating());
+  }
+
+  private static InvalidationBus.Listener listener(Consumer<Set<Long>> reload, Runnable loadAll) {
+    return new InvalidationBus.Listener() {
+      @Override
+      public void invalidate(Set<Long> ids) {
+        reload.accept(ids);
+      }
+
+      @Override
+      public void invalidateAll() {
+        loadAll.run();
+      }
+    };
+  }
+}
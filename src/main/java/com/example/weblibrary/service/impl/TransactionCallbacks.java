@@ -0,0 +1,34 @@
+package com.example.weblibrary.service.impl;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers in-memory updates (caches and indexes) until the database change
+ * they reflect is committed, so readers never see data that may still be
+ * rolled back.
+ */
+final class TransactionCallbacks {
+
+  private TransactionCallbacks() {
+  }
+
+  /**
+   * Runs the action once the current transaction commits, or right away
+   * outside of a transaction. The action is dropped on rollback.
+   *
+   * @param action the action to run
+   */
+  static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+}
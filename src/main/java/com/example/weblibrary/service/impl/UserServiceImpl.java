@@ -2,11 +2,16 @@ package com.example.weblibrary.service.impl;
 
 import com.example.weblibrary.mapper.UserMapper;
 import com.example.weblibrary.model.User;
+import com.example.weblibrary.model.dto.CursorPage;
 import com.example.weblibrary.model.dto.UserDtoRequest;
 import com.example.weblibrary.model.dto.UserDtoResponse;
 import com.example.weblibrary.repository.UserRepository;
 import com.example.weblibrary.service.CrudService;
+import com.example.weblibrary.service.KeysetPager;
+import com.example.weblibrary.service.cache.InvalidationBus;
+import com.example.weblibrary.service.cache.ListCachePatcher;
 import com.example.weblibrary.service.cache.SimpleCache;
+import jakarta.annotation.PostConstruct;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -22,19 +27,25 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class UserServiceImpl implements CrudService<UserDtoRequest,
     UserDtoResponse> {
+  private static final String INVALIDATION_REGION = "users";
+  private static final ListCachePatcher<UserDtoResponse> LIST_PATCHER =
+      new ListCachePatcher<>(UserDtoResponse::getId, (key, user) -> true, key -> true);
 
   private final UserRepository userRepository;
   private final UserMapper userMapper;
 
-  private final SimpleCache<Long, UserDtoResponse> userCache =
-      new SimpleCache<>(
-      1000);
-  private final SimpleCache<String, List<UserDtoResponse>> userListCache =
-      new SimpleCache<>(
-      1000);
+  private final SimpleCache<Long, UserDtoResponse> userCache;
+  private final SimpleCache<String, List<UserDtoResponse>> userListCache;
+  private final InvalidationBus invalidationBus;
+  private final KeysetPager keysetPager;
   private static final Logger log = LoggerFactory.getLogger(
       UserServiceImpl.class);
 
+  @PostConstruct
+  void subscribeToInvalidations() {
+    invalidationBus.subscribe(INVALIDATION_REGION, userCache, userListCache);
+  }
+
   /**
    * Retrieves all users.
    *
@@ -42,19 +53,25 @@ public class UserServiceImpl implements CrudService<UserDtoRequest,
    */
   @Override
   public List<UserDtoResponse> getAll() {
-    String cacheKey = "all_users";
-
-    List<UserDtoResponse> cachedList = userListCache.get(cacheKey);
-    if (cachedList != null) {
-      log.info("Data for the user is obtained from the cache (getAll)");
-      return cachedList;
-    }
+    return userListCache.get("all_users", key -> {
+      log.info("Data for the user is loaded from the database (getAll)");
+      return userMapper.toUserDtoResponse(userRepository.findAll());
+    });
+  }
 
-    log.info("Data for the user is loaded from the database (getAll)");
-    List<UserDtoResponse> responseList = userMapper.toUserDtoResponse(
-        userRepository.findAll());
-    userListCache.put(cacheKey, responseList);
-    return responseList;
+  /**
+   * Retrieves a page of users in ID order.
+   *
+   * @param cursor
+   *     The cursor returned with the previous page, or null for the first page.
+   * @param limit
+   *     The page size, or null for the default size.
+   * @return The page of {@link UserDtoResponse} objects.
+   */
+  @Override
+  public CursorPage<UserDtoResponse> getPage(String cursor, Integer limit) {
+    return keysetPager.byId(cursor, limit, userRepository::findByIdGreaterThanOrderByIdAsc,
+        userMapper::toUserDtoResponse, UserDtoResponse::getId);
   }
 
   /**
@@ -66,19 +83,14 @@ public class UserServiceImpl implements CrudService<UserDtoRequest,
    */
   @Override
   public UserDtoResponse getById(Long id) {
-    UserDtoResponse cachedUser = userCache.get(id);
-    if (cachedUser != null) {
-      log.info("User with id={} retrieved from cache", id);
-      return cachedUser;
+    UserDtoResponse user = userCache.get(id, key -> {
+      log.info("User with id={} is loaded from the database", key);
+      return userRepository.findById(key).map(userMapper::toUserDtoResponse).orElse(null);
+    });
+    if (user == null) {
+      throw new RuntimeException("User not found with id: " + id);
     }
-
-    log.info("User with id={} is loaded from the database", id);
-    User user = userRepository.findById(id).orElseThrow(
-        () -> new RuntimeException("User not found with id: " + id));
-
-    UserDtoResponse response = userMapper.toUserDtoResponse(user);
-    userCache.put(id, response);
-    return response;
+    return user;
   }
 
   /**
@@ -95,7 +107,8 @@ public class UserServiceImpl implements CrudService<UserDtoRequest,
     UserDtoResponse response = userMapper.toUserDtoResponse(savedUser);
 
     userCache.put(savedUser.getId(), response);
-    userListCache.clear(); // Очистка кэша списка пользователей
+    LIST_PATCHER.upsert(userListCache, response);
+    invalidationBus.publish(INVALIDATION_REGION, savedUser.getId());
 
     return response;
   }
@@ -118,7 +131,8 @@ public class UserServiceImpl implements CrudService<UserDtoRequest,
         userRepository.save(updatedUser));
 
     userCache.put(id, response);
-    userListCache.clear(); // Очистка кэша списка пользователей
+    LIST_PATCHER.upsert(userListCache, response);
+    invalidationBus.publish(INVALIDATION_REGION, id);
 
     return response;
   }
@@ -136,6 +150,7 @@ public class UserServiceImpl implements CrudService<UserDtoRequest,
 
     userRepository.delete(user);
     userCache.remove(id);
-    userListCache.clear(); // Очистка кэша списка пользователей
+    LIST_PATCHER.delete(userListCache, id);
+    invalidationBus.publish(INVALIDATION_REGION, id);
   }
 }
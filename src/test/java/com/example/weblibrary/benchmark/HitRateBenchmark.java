@@ -0,0 +1,167 @@
+package com.example.weblibrary.benchmark;
+
+import com.example.weblibrary.service.cache.SimpleCache;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongPredicate;
+
+/**
+ * Replays access traces against {@link SimpleCache} (LFU with TinyLFU
+ * admission) and against plain LFU, the policy it replaced, and prints the
+ * hit rates side by side.
+ *
+ * <p>Without arguments three synthetic traces of 2,000,000 book lookups over
+ * a catalog of 20,000 books are replayed with 1,000 entries:
+ * <ul>
+ *   <li>{@code zipf}: Zipf-distributed popularity (exponent 0.9);</li>
+ *   <li>{@code crawl}: the same with a crawler requesting 5,000 books that
+ *       are never requested again in every 50,000 lookups;</li>
+ *   <li>{@code shift}: the popular books change halfway through.</li>
+ * </ul>
+ * A recorded trace, e.g. book ids extracted from an access log, one per
+ * line, can be replayed instead by passing its path and optionally the
+ * cache size:
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.weblibrary.benchmark.HitRateBenchmark \
+ *     -Dexec.args="ids.txt 1000"
+ * </pre>
+ */
+public final class HitRateBenchmark {
+  private static final int CATALOG_SIZE = 20_000;
+  private static final int TRACE_LENGTH = 2_000_000;
+  private static final int CACHE_SIZE = 1_000;
+
+  private HitRateBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args an optional trace file and an optional cache size
+   * @throws IOException if the trace file cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+    Map<String, long[]> traces = new LinkedHashMap<>();
+    int cacheSize = CACHE_SIZE;
+    if (args.length > 0) {
+      traces.put(args[0], read(Path.of(args[0])));
+      if (args.length > 1) {
+        cacheSize = Integer.parseInt(args[1]);
+      }
+    } else {
+      traces.put("zipf", zipf(false, false));
+      traces.put("crawl", zipf(true, false));
+      traces.put("shift", zipf(false, true));
+    }
+    System.out.printf("%-12s %10s %10s%n", "trace", "LFU", "TinyLFU");
+    for (Map.Entry<String, long[]> trace : traces.entrySet()) {
+      double lfu = hitRate(trace.getValue(), new LfuCache(cacheSize)::access);
+      double tinyLfu = hitRate(trace.getValue(), simpleCache(cacheSize));
+      System.out.printf("%-12s %9.2f%% %9.2f%%%n", trace.getKey(), lfu * 100, tinyLfu * 100);
+    }
+  }
+
+  private static LongPredicate simpleCache(int cacheSize) {
+    SimpleCache<Long, Long> cache = new SimpleCache<>(cacheSize);
+    return key -> {
+      if (cache.get(key) != null) {
+        return true;
+      }
+      cache.put(key, key);
+      return false;
+    };
+  }
+
+  private static double hitRate(long[] trace, LongPredicate cache) {
+    long hits = 0;
+    for (long key : trace) {
+      if (cache.test(key)) {
+        hits++;
+      }
+    }
+    return (double) hits / trace.length;
+  }
+
+  private static long[] zipf(boolean crawl, boolean shift) {
+    double[] cumulative = new double[CATALOG_SIZE];
+    double sum = 0;
+    for (int i = 0; i < CATALOG_SIZE; i++) {
+      sum += 1 / Math.pow(i + 1, 0.9);
+      cumulative[i] = sum;
+    }
+    Random random = new Random(42);
+    long[] trace = new long[TRACE_LENGTH];
+    long crawled = CATALOG_SIZE;
+    for (int i = 0; i < TRACE_LENGTH; i++) {
+      if (crawl && i % 50_000 < 5_000) {
+        trace[i] = crawled++;
+        continue;
+      }
+      int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+      rank = rank < 0 ? -rank - 1 : rank;
+      trace[i] = shift && i >= TRACE_LENGTH / 2 ? (rank + 7_919L) % CATALOG_SIZE : rank;
+    }
+    return trace;
+  }
+
+  private static long[] read(Path file) throws IOException {
+    List<String> lines = Files.readAllLines(file);
+    List<Long> keys = new ArrayList<>(lines.size());
+    for (String line : lines) {
+      if (!line.isBlank()) {
+        keys.add(Long.parseLong(line.trim()));
+      }
+    }
+    return keys.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * Plain LFU without admission: every miss is inserted and the least
+   * frequently used entry, the oldest among equals, is evicted.
+   */
+  private static final class LfuCache {
+    private final int maximumSize;
+    private final Map<Long, Integer> frequencies = new HashMap<>();
+    private final Map<Integer, LinkedHashSet<Long>> buckets = new HashMap<>();
+    private int minimumFrequency;
+
+    LfuCache(int maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    boolean access(long key) {
+      Integer frequency = frequencies.get(key);
+      if (frequency != null) {
+        LinkedHashSet<Long> bucket = buckets.get(frequency);
+        bucket.remove(key);
+        if (bucket.isEmpty() && frequency == minimumFrequency) {
+          minimumFrequency++;
+        }
+        frequencies.put(key, frequency + 1);
+        buckets.computeIfAbsent(frequency + 1, f -> new LinkedHashSet<>()).add(key);
+        return true;
+      }
+      if (frequencies.size() == maximumSize) {
+        LinkedHashSet<Long> bucket = buckets.get(minimumFrequency);
+        Long victim = bucket.iterator().next();
+        bucket.remove(victim);
+        frequencies.remove(victim);
+      }
+      frequencies.put(key, 1);
+      buckets.computeIfAbsent(1, f -> new LinkedHashSet<>()).add(key);
+      minimumFrequency = 1;
+      return false;
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package com.example.weblibrary.benchmark;
+
+import com.example.weblibrary.mapper.AuthorMapperImpl;
+import com.example.weblibrary.mapper.BookMapperImpl;
+import com.example.weblibrary.model.Author;
+import com.example.weblibrary.model.Book;
+import com.example.weblibrary.model.dto.BookDtoRequest;
+import com.example.weblibrary.model.dto.BookDtoResponse;
+import com.example.weblibrary.model.dto.CursorPage;
+import com.example.weblibrary.repository.AuthorRepository;
+import com.example.weblibrary.repository.BookRepository;
+import com.example.weblibrary.service.KeysetPager;
+import com.example.weblibrary.service.cache.InProcessInvalidationBus;
+import com.example.weblibrary.service.cache.InvalidationBus;
+import com.example.weblibrary.service.cache.SimpleCache;
+import com.example.weblibrary.service.cache.SizeEstimator;
+import com.example.weblibrary.service.impl.BookServiceImpl;
+import com.example.weblibrary.service.impl.FacetServiceImpl;
+import com.example.weblibrary.service.impl.SuggestServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Imports books through {@link BookServiceImpl#createBooksBulk}, two existing
+ * authors per book, into an in-memory H2 database, once with the JDBC
+ * batching settings of {@code application.yml} and once without, and prints
+ * the time and the number of statements prepared.
+ *
+ * <p>Each run starts a Spring context with the real service, mappers,
+ * suggestion and facet services and caches, so the measured import includes
+ * the author lookup, the chunked search vector update, the index hooks and
+ * the patching of the cached catalog. Ids come from the entities' sequences
+ * in both runs; only batching differs. H2 has no text search, so the
+ * PostgreSQL functions of the search vector are stubbed with aliases that
+ * concatenate the text: the update runs as many statements as on PostgreSQL,
+ * but costs less.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.weblibrary.benchmark.ImportBenchmark \
+ *     -Dexec.args="100000"
+ * </pre>
+ */
+public final class ImportBenchmark {
+  private static final int BOOKS = 100_000;
+  private static final int WARMUP_BOOKS = 10_000;
+  private static final int AUTHORS = 200;
+  private static final int AUTHORS_PER_BOOK = 2;
+
+  private ImportBenchmark() {
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args an optional number of books to import
+   */
+  public static void main(String[] args) {
+    int books = args.length > 0 ? Integer.parseInt(args[0]) : BOOKS;
+    System.out.printf("%-10s %10s %10s %12s%n", "mode", "books", "ms", "prepared");
+    run("single", false, books);
+    run("batched", true, books);
+  }
+
+  /**
+   * Stub of PostgreSQL's {@code to_tsvector}, registered as an H2 alias.
+   *
+   * @param config the text search configuration, ignored
+   * @param text the text
+   * @return the text itself
+   */
+  public static String toTsvector(String config, String text) {
+    return text;
+  }
+
+  /**
+   * Stub of PostgreSQL's {@code setweight}, registered as an H2 alias.
+   *
+   * @param vector the vector
+   * @param weight the weight, ignored
+   * @return the vector itself
+   */
+  public static String setweight(String vector, String weight) {
+    return vector;
+  }
+
+  /**
+   * Stub of the {@code book_search_config} function, registered as an H2
+   * alias.
+   *
+   * @param language the language of the book, ignored
+   * @return {@code simple}
+   */
+  public static String bookSearchConfig(String language) {
+    return "simple";
+  }
+
+  private static void run(String mode, boolean batched, int books) {
+    try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Config.class)
+        .web(WebApplicationType.NONE)
+        .bannerMode(Banner.Mode.OFF)
+        .logStartupInfo(false)
+        .run(arguments(mode, batched))) {
+      createSearchSchema(context.getBean(JdbcTemplate.class));
+      List<Long> authorIds = createAuthors(context.getBean(AuthorRepository.class));
+      BookServiceImpl bookService = context.getBean(BookServiceImpl.class);
+      bookService.getAll();
+      bookService.createBooksBulk(requests(authorIds, WARMUP_BOOKS));
+      Statistics statistics = context.getBean(EntityManagerFactory.class)
+          .unwrap(SessionFactory.class)
+          .getStatistics();
+      statistics.clear();
+      long start = System.nanoTime();
+      bookService.createBooksBulk(requests(authorIds, books));
+      long millis = (System.nanoTime() - start) / 1_000_000;
+      System.out.printf("%-10s %10d %10d %12d%n", mode, books, millis,
+          statistics.getPrepareStatementCount());
+    }
+  }
+
+  /**
+   * Returns the settings as command line arguments, which take precedence
+   * over {@code application.yml}.
+   */
+  private static String[] arguments(String database, boolean batched) {
+    Map<String, String> properties = new LinkedHashMap<>();
+    properties.put("spring.datasource.url", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+    properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+    properties.put("spring.datasource.username", "sa");
+    properties.put("spring.datasource.password", "");
+    properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+    properties.put("spring.jpa.hibernate.ddl-auto", "create");
+    properties.put("spring.jpa.show-sql", "false");
+    properties.put("spring.jpa.properties.hibernate.generate_statistics", "true");
+    properties.put("logging.level.root", "WARN");
+    if (!batched) {
+      properties.put("spring.jpa.properties.hibernate.jdbc.batch_size", "0");
+      properties.put("spring.jpa.properties.hibernate.order_inserts", "false");
+      properties.put("spring.jpa.properties.hibernate.order_updates", "false");
+    }
+    return properties.entrySet().stream()
+        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+        .toArray(String[]::new);
+  }
+
+  private static void createSearchSchema(JdbcTemplate jdbcTemplate) {
+    String benchmark = ImportBenchmark.class.getName();
+    jdbcTemplate.execute("ALTER TABLE book ADD COLUMN search_vector VARCHAR");
+    jdbcTemplate.execute("CREATE ALIAS to_tsvector FOR '" + benchmark + ".toTsvector'");
+    jdbcTemplate.execute("CREATE ALIAS setweight FOR '" + benchmark + ".setweight'");
+    jdbcTemplate.execute(
+        "CREATE ALIAS book_search_config FOR '" + benchmark + ".bookSearchConfig'");
+  }
+
+  private static List<Long> createAuthors(AuthorRepository authorRepository) {
+    List<Author> authors = new ArrayList<>(AUTHORS);
+    for (int i = 0; i < AUTHORS; i++) {
+      authors.add(new Author(null, "Name " + i, "Surname", null, null, null, null, null, null));
+    }
+    return authorRepository.saveAll(authors).stream().map(Author::getId).toList();
+  }
+
+  private static List<BookDtoRequest> requests(List<Long> authorIds, int count) {
+    List<BookDtoRequest> requests = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      List<Long> bookAuthors = new ArrayList<>(AUTHORS_PER_BOOK);
+      for (int j = 0; j < AUTHORS_PER_BOOK; j++) {
+        bookAuthors.add(authorIds.get((i + j) % authorIds.size()));
+      }
+      requests.add(new BookDtoRequest("Title " + i, "Publisher", null, 100 + i % 900, "Genre",
+          null, "English", "Description " + i, null, 4.0, null, bookAuthors));
+    }
+    return requests;
+  }
+
+  @Configuration
+  @ImportAutoConfiguration({DataSourceAutoConfiguration.class,
+      JdbcTemplateAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+      TransactionAutoConfiguration.class})
+  @EntityScan(basePackageClasses = Book.class)
+  @EnableJpaRepositories(basePackageClasses = BookRepository.class)
+  @Import({BookServiceImpl.class, BookMapperImpl.class, AuthorMapperImpl.class,
+      KeysetPager.class, SuggestServiceImpl.class, FacetServiceImpl.class})
+  static class Config {
+    @Bean
+    SimpleCache<Long, BookDtoResponse> bookCache() {
+      return new SimpleCache<>(100);
+    }
+
+    @Bean
+    SimpleCache<String, List<BookDtoResponse>> bookListCache() {
+      return SimpleCache.<String, List<BookDtoResponse>>builder()
+          .maximumWeight(64L * 1024 * 1024)
+          .weigher(SizeEstimator.weigher())
+          .build();
+    }
+
+    @Bean
+    SimpleCache<String, CursorPage<BookDtoResponse>> bookPageCache() {
+      return new SimpleCache<>(1000);
+    }
+
+    @Bean
+    InvalidationBus invalidationBus() {
+      return new InProcessInvalidationBus();
+    }
+
+    @Bean
+    ObjectMapper objectMapper() {
+      return new ObjectMapper();
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.example.weblibrary.benchmark;
+
+import com.example.weblibrary.service.cache.SimpleCache;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of {@link SimpleCache} operations on a full cache of growing size.
+ *
+ * <p>Lookups, insertions and evictions do not scan the entries, yet a hit
+ * still gets slower as the cache grows. {@code mapGetHit} reads the same
+ * keys from a bare {@link ConcurrentHashMap} of the same size as a control
+ * for the memory latency both share: the ratio of {@code getHit} to
+ * {@code mapGetHit} at each size, rather than the raw latency, shows how
+ * the cost of the cache itself scales. A hit touches more objects than the
+ * map's node, so it is not expected to stay flat either; JMH's
+ * {@code -prof perfnorm}, where perf is available, attributes the time to
+ * cache misses per operation.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test -Dbenchmark=SimpleCacheBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimpleCacheBenchmark {
+  @Param({"100", "10000", "1000000"})
+  private int size;
+
+  private SimpleCache<Long, Long> cache;
+  private ConcurrentHashMap<Long, Long> map;
+  private Long[] keys;
+  private long nextKey;
+  private int random;
+
+  /**
+   * Fills the cache to its maximum size and reads every entry a varying
+   * number of times, so entries are spread over many frequencies.
+   */
+  @Setup(Level.Trial)
+  public void fill() {
+    cache = new SimpleCache<>(size);
+    map = new ConcurrentHashMap<>();
+    keys = new Long[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = (long) i;
+      cache.put(keys[i], keys[i]);
+      map.put(keys[i], keys[i]);
+    }
+    for (int i = 0; i < size; i++) {
+      for (int reads = i % 8; reads > 0; reads--) {
+        cache.get(keys[i]);
+      }
+    }
+    nextKey = size;
+    random = 1;
+  }
+
+  /**
+   * Reads a random cached key.
+   *
+   * @return the value, returned so that the read is not optimized away
+   */
+  @Benchmark
+  public Long getHit() {
+    return cache.get(nextKey());
+  }
+
+  /**
+   * Reads a random key from a bare map of the same size, as a control.
+   *
+   * @return the value, returned so that the read is not optimized away
+   */
+  @Benchmark
+  public Long mapGetHit() {
+    return map.get(nextKey());
+  }
+
+  /**
+   * Inserts a key that was never cached, which evicts an entry.
+   */
+  @Benchmark
+  public void putEvict() {
+    Long key = nextKey++;
+    cache.put(key, key);
+  }
+
+  private Long nextKey() {
+    random ^= random << 13;
+    random ^= random >>> 17;
+    random ^= random << 5;
+    return keys[(random & Integer.MAX_VALUE) % size];
+  }
+}
@@ -0,0 +1,67 @@
+package com.example.weblibrary.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.weblibrary.service.cache.SerializedResponse;
+import com.example.weblibrary.service.cache.SerializedResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class JsonResponsesTest {
+  private final SerializedResponseCache responseCache =
+      new SerializedResponseCache(null, new ObjectMapper(), 16);
+  private final SerializedResponse body =
+      responseCache.encode(Collections.nCopies(20, "some book title"));
+
+  @Test
+  void identityAndGzipBodiesHaveDifferentStrongEtags() {
+    ResponseEntity<byte[]> identity = JsonResponses.ok(body, request(null, null));
+    ResponseEntity<byte[]> gzip = JsonResponses.ok(body, request("gzip, deflate", null));
+
+    assertThat(identity.getHeaders().getETag()).isEqualTo(body.etag());
+    assertThat(gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(gzip.getHeaders().getETag()).isEqualTo(body.gzipEtag())
+        .isNotEqualTo(body.etag())
+        .startsWith("\"").endsWith("-gzip\"");
+  }
+
+  @Test
+  void conditionalRequestMatchesOnlyTheSelectedEncoding() {
+    assertThat(JsonResponses.ok(body, request("gzip", body.gzipEtag())).getStatusCode())
+        .isEqualTo(HttpStatus.NOT_MODIFIED);
+    assertThat(JsonResponses.ok(body, request(null, body.etag())).getStatusCode())
+        .isEqualTo(HttpStatus.NOT_MODIFIED);
+    assertThat(JsonResponses.ok(body, request("gzip", body.etag())).getStatusCode())
+        .isEqualTo(HttpStatus.OK);
+    assertThat(JsonResponses.ok(body, request(null, body.gzipEtag())).getStatusCode())
+        .isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  void smallBodyIsNeverCompressed() {
+    SerializedResponse small = responseCache.encode(List.of(1));
+
+    ResponseEntity<byte[]> response = JsonResponses.ok(small, request("gzip", null));
+
+    assertThat(small.gzipEtag()).isNull();
+    assertThat(response.getHeaders().getETag()).isEqualTo(small.etag());
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+  }
+
+  private static MockHttpServletRequest request(String acceptEncoding, String ifNoneMatch) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books");
+    if (acceptEncoding != null) {
+      request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+    }
+    if (ifNoneMatch != null) {
+      request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return request;
+  }
+}
@@ -0,0 +1,108 @@
+package com.example.weblibrary.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.weblibrary.model.Author;
+import com.example.weblibrary.model.Book;
+import com.example.weblibrary.model.dto.BookAuthorRow;
+import com.example.weblibrary.model.enums.BookSort;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import(StatementCounter.Config.class)
+class BookRepositoryStatementCountTest {
+  private static final int BOOKS = 30;
+  private static final int AUTHORS_PER_BOOK = 2;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private StatementCounter statements;
+
+  private Long firstId;
+
+  @BeforeEach
+  void setUp() {
+    List<Book> books = new ArrayList<>();
+    for (int i = 0; i < BOOKS; i++) {
+      Book book = new Book(null, "Book " + i, "Publisher", "isbn-" + i, 100 + i,
+          i % 2 == 0 ? "Fantasy" : "Drama", LocalDate.of(2000, 1, 1).plusDays(i), "English",
+          "Description " + i, null, null, 4.0);
+      for (int j = 0; j < AUTHORS_PER_BOOK; j++) {
+        book.getAuthors().add(new Author(null, "Name " + i + "-" + j, "Surname", null,
+            null, null, null, null, null));
+      }
+      entityManager.persist(book);
+      books.add(book);
+    }
+    entityManager.flush();
+    entityManager.clear();
+    firstId = books.get(0).getId();
+    statements.reset();
+  }
+
+  @Test
+  void catalogListIsOneStatement() {
+    List<BookAuthorRow> rows = bookRepository.findAllRows();
+
+    assertThat(rows).hasSize(BOOKS * AUTHORS_PER_BOOK);
+    assertThat(statements.count()).isEqualTo(1);
+  }
+
+  @Test
+  void filteredListsAreOneStatementEach() {
+    assertThat(bookRepository.findRowsByGenre("Fantasy")).hasSize(BOOKS);
+    assertThat(bookRepository.findRowsByTitleContaining("book 1")).isNotEmpty();
+
+    assertThat(statements.count()).isEqualTo(2);
+  }
+
+  @Test
+  void bookDetailIsOneStatement() {
+    List<BookAuthorRow> rows = bookRepository.findRowsById(firstId);
+
+    assertThat(rows).hasSize(AUTHORS_PER_BOOK);
+    assertThat(statements.count()).isEqualTo(1);
+  }
+
+  @Test
+  void entityGraphListLoadsAuthorsInTheSameStatement() {
+    List<Book> books = bookRepository.findAll();
+    books.forEach(book -> assertThat(book.getAuthors()).hasSize(AUTHORS_PER_BOOK));
+
+    assertThat(statements.count()).isEqualTo(1);
+  }
+
+  @Test
+  void keysetPageLoadsAuthorsInOneBatch() {
+    List<Book> page = bookRepository.findPage(BookSort.ID, false, null, null, 21);
+    page.forEach(book -> assertThat(book.getAuthors()).hasSize(AUTHORS_PER_BOOK));
+
+    assertThat(page).hasSize(21);
+    assertThat(statements.count()).isEqualTo(2);
+  }
+
+  @Test
+  void exportBatchLoadsAuthorsInOneStatement() {
+    List<Book> batch;
+    try (Stream<Book> books = bookRepository.streamAllByOrderById()) {
+      batch = books.toList();
+    }
+    batch.forEach(book -> assertThat(book.getAuthors()).hasSize(AUTHORS_PER_BOOK));
+
+    assertThat(statements.count()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,46 @@
+package com.example.weblibrary.repository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Counts the SQL statements Hibernate prepares. Import {@link Config} into a
+ * JPA test to register it.
+ */
+public class StatementCounter implements StatementInspector {
+  private final AtomicInteger count = new AtomicInteger();
+
+  @Override
+  public String inspect(String sql) {
+    count.incrementAndGet();
+    return sql;
+  }
+
+  public int count() {
+    return count.get();
+  }
+
+  public void reset() {
+    count.set(0);
+  }
+
+  /**
+   * Registers a counter as the statement inspector of the persistence unit.
+   */
+  @TestConfiguration
+  public static class Config {
+    @Bean
+    StatementCounter statementCounter() {
+      return new StatementCounter();
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer statementCounterCustomizer(StatementCounter counter) {
+      return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, counter);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.example.weblibrary.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.weblibrary.model.dto.FuzzyMatch;
+import com.example.weblibrary.model.dto.Suggestion;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SuggestionIndexTest {
+  private SuggestionIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new SuggestionIndex(10, Runnable::run);
+    index.putAll(List.of(
+        new Suggestion(Suggestion.BOOK, 1L, "Мастер и Маргарита", 4.8),
+        new Suggestion(Suggestion.BOOK, 2L, "Война и мир", 4.9),
+        new Suggestion(Suggestion.BOOK, 3L, "Мастерская", 3.5),
+        new Suggestion(Suggestion.AUTHOR, 4L, "Лев Толстой", 4.7)));
+  }
+
+  @Test
+  void prefixOfAnyWordMatchesBestRatedFirst() {
+    assertThat(index.suggest("маст", 10)).extracting(Suggestion::id).containsExactly(1L, 3L);
+    assertThat(index.suggest("маргар", 10)).extracting(Suggestion::id).containsExactly(1L);
+    assertThat(index.suggest("и марг", 10)).extracting(Suggestion::id).containsExactly(1L);
+  }
+
+  @Test
+  void limitAndBlankQueriesAreRespected() {
+    assertThat(index.suggest("м", 1)).extracting(Suggestion::id).containsExactly(2L);
+    assertThat(index.suggest("  ", 10)).isEmpty();
+  }
+
+  @Test
+  void normalizationFoldsCaseDiacriticsAndYo() {
+    assertThat(SuggestionIndex.normalize("Ёжик, в ТУМАНЕ!")).isEqualTo("ежик в тумане");
+  }
+
+  @Test
+  void removedSuggestionsAreNotReturned() {
+    index.removeAll(Suggestion.BOOK, List.of(1L));
+
+    assertThat(index.suggest("маст", 10)).extracting(Suggestion::id).containsExactly(3L);
+  }
+
+  @Test
+  void fuzzyToleratesTyposAndWordsStillBeingTyped() {
+    assertThat(index.fuzzy("толтсой")).extracting(FuzzyMatch::id).containsExactly(4L);
+    assertThat(index.fuzzy("толстой л")).extracting(FuzzyMatch::id).containsExactly(4L);
+    assertThat(index.fuzzy("лев т")).extracting(FuzzyMatch::id).containsExactly(4L);
+  }
+}
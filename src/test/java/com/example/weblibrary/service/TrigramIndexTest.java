@@ -0,0 +1,53 @@
+package com.example.weblibrary.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTest {
+  private final TrigramIndex index = TrigramIndex.build(new String[] {
+      "лев толстои",
+      "алексеи толстои",
+      "война и мир",
+      ""
+  });
+
+  @Test
+  void exactWordsScoreOne() {
+    assertThat(index.search("лев толстои")).containsExactly(Map.entry(0, 1.0));
+  }
+
+  @Test
+  void typoIsTolerated() {
+    assertThat(index.search("толтсои")).containsOnlyKeys(0, 1);
+  }
+
+  @Test
+  void lastWordMayBeUnfinished() {
+    assertThat(index.search("алексеи толс")).containsOnlyKeys(1);
+  }
+
+  @Test
+  void shortWordsAreIgnoredInsteadOfEmptyingTheResult() {
+    assertThat(index.search("толстои л")).containsOnlyKeys(0, 1);
+    assertThat(index.search("лев н")).containsOnlyKeys(0);
+    assertThat(index.search("война и мир")).containsExactly(Map.entry(2, 1.0));
+  }
+
+  @Test
+  void shortWordsDoNotLowerTheScore() {
+    assertThat(index.search("лев толстои л")).isEqualTo(index.search("лев толстои"));
+  }
+
+  @Test
+  void queryOfShortWordsOnlyFindsNothing() {
+    assertThat(index.search("л т")).isEmpty();
+  }
+
+  @Test
+  void distanceCountsTranspositionAsOneEdit() {
+    assertThat(TrigramIndex.distance("толстои", "толтсои", 2)).isEqualTo(1);
+    assertThat(TrigramIndex.distance("мир", "война", 1)).isEqualTo(2);
+  }
+}
@@ -0,0 +1,121 @@
+package com.example.weblibrary.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class InProcessInvalidationBusTest {
+  private InProcessInvalidationBus nodeA;
+  private InProcessInvalidationBus nodeB;
+  private SimpleCache<Long, String> cacheA;
+  private SimpleCache<Long, String> cacheB;
+  private SimpleCache<String, String> listCacheB;
+
+  @BeforeEach
+  void setUp() {
+    nodeA = new InProcessInvalidationBus();
+    nodeB = new InProcessInvalidationBus(nodeA);
+    cacheA = new SimpleCache<>(10);
+    cacheB = new SimpleCache<>(10);
+    listCacheB = new SimpleCache<>(10);
+    nodeA.subscribe("books", cacheA);
+    nodeB.subscribe("books", cacheB, listCacheB);
+    cacheA.put(1L, "book 1");
+    cacheB.put(1L, "book 1");
+    cacheB.put(2L, "book 2");
+    listCacheB.put("all_books", "books 1, 2");
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void publishInvalidatesPeerButNotPublisher() {
+    nodeA.publish("books", 1L);
+
+    assertThat(cacheB.get(1L)).isNull();
+    assertThat(cacheB.get(2L)).isEqualTo("book 2");
+    assertThat(listCacheB.get("all_books")).isNull();
+    assertThat(cacheA.get(1L)).isEqualTo("book 1");
+  }
+
+  @Test
+  void publishIgnoresOtherRegions() {
+    nodeA.publish("authors", 1L);
+
+    assertThat(cacheB.get(1L)).isEqualTo("book 1");
+    assertThat(listCacheB.get("all_books")).isEqualTo("books 1, 2");
+  }
+
+  @Test
+  void busesInSeparateGroupsDoNotSeeEachOther() {
+    InProcessInvalidationBus other = new InProcessInvalidationBus();
+
+    other.publish("books", 1L);
+
+    assertThat(cacheB.get(1L)).isEqualTo("book 1");
+  }
+
+  @Test
+  void publishInTransactionIsCoalescedAndSentAfterCommit() {
+    List<Set<Long>> received = new ArrayList<>();
+    nodeB.subscribe("books", new InvalidationBus.Listener() {
+      @Override
+      public void invalidate(Set<Long> ids) {
+        received.add(ids);
+      }
+
+      @Override
+      public void invalidateAll() {
+        received.add(Set.of());
+      }
+    });
+    TransactionSynchronizationManager.initSynchronization();
+
+    nodeA.publish("books", 1L);
+    nodeA.publish("books", List.of(1L, 2L));
+
+    assertThat(received).isEmpty();
+    assertThat(cacheB.get(1L)).isEqualTo("book 1");
+
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+
+    assertThat(received).containsExactly(Set.of(1L, 2L));
+    assertThat(cacheB.get(1L)).isNull();
+    assertThat(cacheB.get(2L)).isNull();
+  }
+
+  @Test
+  void publishInRolledBackTransactionIsDropped() {
+    TransactionSynchronizationManager.initSynchronization();
+
+    nodeA.publish("books", 1L);
+    complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+    nodeA.flush();
+
+    assertThat(cacheB.get(1L)).isEqualTo("book 1");
+  }
+
+  private static void complete(int status) {
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+    for (TransactionSynchronization synchronization : synchronizations) {
+      if (status == TransactionSynchronization.STATUS_COMMITTED) {
+        synchronization.afterCommit();
+      }
+      synchronization.afterCompletion(status);
+    }
+  }
+}
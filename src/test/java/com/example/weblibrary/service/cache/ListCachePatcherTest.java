@@ -0,0 +1,93 @@
+package com.example.weblibrary.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ListCachePatcherTest {
+  private final ListCachePatcher<Item> patcher = new ListCachePatcher<>(Item::id,
+      (key, item) -> key.equals("all") || key.equals("group:" + item.group()),
+      key -> !key.startsWith("name:"));
+  private SimpleCache<String, List<Item>> cache;
+
+  @BeforeEach
+  void setUp() {
+    cache = SimpleCache.<String, List<Item>>builder()
+        .maximumWeight(Long.MAX_VALUE / 2)
+        .weigher(SizeEstimator.weigher())
+        .build();
+    List<Item> all = new ArrayList<>();
+    for (long id = 1; id <= 1_000; id++) {
+      all.add(new Item(id, id % 2 == 0 ? "even" : "odd", "item " + id));
+    }
+    cache.put("all", all);
+    cache.put("group:even", all.stream().filter(item -> item.group().equals("even")).toList());
+    cache.put("name:item 7", List.of(all.get(6)));
+  }
+
+  @Test
+  void upsertReplacesMovesAndAppendsElements() {
+    patcher.upsert(cache,
+        List.of(new Item(2L, "odd", "renamed"), new Item(1_001L, "even", "new")));
+
+    List<Item> all = cache.get("all");
+    assertThat(all).hasSize(1_001);
+    assertThat(all.get(1)).isEqualTo(new Item(2L, "odd", "renamed"));
+    assertThat(all.get(1_000).id()).isEqualTo(1_001L);
+    assertThat(cache.get("group:even")).extracting(Item::id)
+        .doesNotContain(2L)
+        .contains(1_001L)
+        .hasSize(500);
+  }
+
+  @Test
+  void deleteRemovesElementAndLaterPatchesStillFindPositions() {
+    patcher.delete(cache, 1L);
+    patcher.upsert(cache, new Item(3L, "odd", "renamed"));
+
+    List<Item> all = cache.get("all");
+    assertThat(all).hasSize(999);
+    assertThat(all.get(0)).isEqualTo(new Item(2L, "even", "item 2"));
+    assertThat(all.get(1)).isEqualTo(new Item(3L, "odd", "renamed"));
+  }
+
+  @Test
+  void listsWithApproximateMembershipAreInvalidated() {
+    patcher.upsert(cache, new Item(7L, "odd", "renamed"));
+
+    assertThat(cache.get("name:item 7")).isNull();
+  }
+
+  @Test
+  void patchedWeightTracksTheFullEstimate() {
+    for (long id = 1_001; id <= 1_100; id++) {
+      patcher.upsert(cache, new Item(id, "even", "a somewhat longer name " + id));
+    }
+    for (long id = 1; id <= 100; id++) {
+      patcher.delete(cache, id);
+    }
+
+    List<Item> all = cache.get("all");
+    assertThat(all).isInstanceOf(IndexedList.class);
+    long incremental = ((IndexedList<Item>) all).estimatedSize();
+    long full = SizeEstimator.estimate(new ArrayList<>(all))
+        + SizeEstimator.estimate(positionsOf(all));
+    assertThat((double) incremental / full).isBetween(0.95, 1.05);
+  }
+
+  private static Map<Long, Integer> positionsOf(List<Item> list) {
+    Map<Long, Integer> positions = new HashMap<>();
+    for (int i = 0; i < list.size(); i++) {
+      positions.put(list.get(i).id(), i);
+    }
+    return positions;
+  }
+
+  private record Item(Long id, String group, String name) {
+  }
+}
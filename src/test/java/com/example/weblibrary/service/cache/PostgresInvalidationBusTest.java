@@ -0,0 +1,94 @@
+package com.example.weblibrary.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+class PostgresInvalidationBusTest {
+  private static final int POSTGRES_PAYLOAD_LIMIT = 8000;
+
+  private final PostgresInvalidationBus sender = bus();
+  private final PostgresInvalidationBus receiver = bus();
+
+  @Test
+  void smallBatchFitsInOnePayload() {
+    List<String> payloads = sender.payloads("books", new LinkedHashSet<>(List.of(1L, 2L, 3L)));
+
+    assertThat(payloads).hasSize(1);
+    assertThat(payloads.get(0)).endsWith(";books;1,2,3");
+  }
+
+  @Test
+  void largeBatchIsSplitBelowPayloadLimit() {
+    Set<Long> ids = ids(5000);
+
+    List<String> payloads = sender.payloads("books", ids);
+
+    assertThat(payloads).hasSizeGreaterThan(1);
+    assertThat(payloads).allSatisfy(payload ->
+        assertThat(payload.length()).isLessThan(POSTGRES_PAYLOAD_LIMIT));
+  }
+
+  @Test
+  void splitPayloadsDeliverEveryIdToPeer() {
+    Set<Long> ids = ids(5000);
+    List<Long> delivered = new ArrayList<>();
+    receiver.subscribe("books", listener(delivered));
+
+    sender.payloads("books", ids).forEach(receiver::receive);
+
+    assertThat(delivered).containsExactlyElementsOf(ids);
+  }
+
+  @Test
+  void ownNotificationsAreIgnored() {
+    List<Long> delivered = new ArrayList<>();
+    sender.subscribe("books", listener(delivered));
+
+    sender.payloads("books", Set.of(1L)).forEach(sender::receive);
+
+    assertThat(delivered).isEmpty();
+  }
+
+  @Test
+  void malformedNotificationIsIgnored() {
+    List<Long> delivered = new ArrayList<>();
+    receiver.subscribe("books", listener(delivered));
+
+    receiver.receive("other-node;books;1,x");
+    receiver.receive("garbage");
+
+    assertThat(delivered).isEmpty();
+  }
+
+  private static PostgresInvalidationBus bus() {
+    return new PostgresInvalidationBus("jdbc:postgresql://localhost/unused", "user", "password",
+        Duration.ofMillis(100));
+  }
+
+  private static Set<Long> ids(int count) {
+    Set<Long> ids = new LinkedHashSet<>();
+    LongStream.rangeClosed(1_000_000_000L, 1_000_000_000L + count - 1).forEach(ids::add);
+    return ids;
+  }
+
+  private static InvalidationBus.Listener listener(List<Long> delivered) {
+    return new InvalidationBus.Listener() {
+      @Override
+      public void invalidate(Set<Long> ids) {
+        delivered.addAll(ids);
+      }
+
+      @Override
+      public void invalidateAll() {
+        throw new AssertionError("No full invalidation expected");
+      }
+    };
+  }
+}
@@ -0,0 +1,292 @@
+package com.example.weblibrary.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SimpleCacheTest {
+  private static final long TIMEOUT_SECONDS = 10;
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final AtomicLong time = new AtomicLong();
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void concurrentMissesShareOneLoad() throws Exception {
+    SimpleCache<Long, String> cache = new SimpleCache<>(10);
+    BlockingLoader loader = new BlockingLoader("loaded");
+    AtomicInteger otherLoads = new AtomicInteger();
+
+    Future<String> first = executor.submit(() -> cache.get(1L, loader));
+    loader.awaitStarted();
+    AtomicReference<Thread> waiter = new AtomicReference<>();
+    Future<String> second = executor.submit(() -> {
+      waiter.set(Thread.currentThread());
+      return cache.get(1L, key -> {
+        otherLoads.incrementAndGet();
+        return "other";
+      });
+    });
+    awaitWaiting(waiter);
+    loader.release();
+
+    assertThat(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo("loaded");
+    assertThat(second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo("loaded");
+    assertThat(loader.calls()).isEqualTo(1);
+    assertThat(otherLoads).hasValue(0);
+    assertThat(cache.stats().loadSuccessCount()).isEqualTo(1);
+  }
+
+  @Test
+  void loadRacingPutIsNotStored() throws Exception {
+    SimpleCache<Long, String> cache = new SimpleCache<>(10);
+    BlockingLoader loader = new BlockingLoader("stale");
+
+    Future<String> load = executor.submit(() -> cache.get(1L, loader));
+    loader.awaitStarted();
+    cache.put(1L, "fresh");
+    loader.release();
+
+    assertThat(load.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo("stale");
+    assertThat(cache.get(1L)).isEqualTo("fresh");
+  }
+
+  @Test
+  void loadRacingRemoveIsNotStored() throws Exception {
+    SimpleCache<Long, String> cache = new SimpleCache<>(10);
+    BlockingLoader loader = new BlockingLoader("stale");
+
+    Future<String> load = executor.submit(() -> cache.get(1L, loader));
+    loader.awaitStarted();
+    cache.remove(1L);
+    loader.release();
+
+    assertThat(load.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo("stale");
+    assertThat(cache.get(1L)).isNull();
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void entriesExpireAfterWrite() {
+    SimpleCache<Long, String> cache = SimpleCache.<Long, String>builder()
+        .maximumSize(10)
+        .expireAfterWrite(Duration.ofMinutes(1))
+        .ticker(time::get)
+        .build();
+    cache.put(1L, "value");
+
+    advance(Duration.ofSeconds(59));
+    assertThat(cache.get(1L)).isEqualTo("value");
+
+    advance(Duration.ofSeconds(1));
+    assertThat(cache.get(1L)).isNull();
+    assertThat(cache.size()).isZero();
+    assertThat(cache.weightedSize()).isZero();
+  }
+
+  @Test
+  void readsExtendExpireAfterAccess() {
+    SimpleCache<Long, String> cache = SimpleCache.<Long, String>builder()
+        .maximumSize(10)
+        .expireAfterAccess(Duration.ofMinutes(1))
+        .ticker(time::get)
+        .build();
+    cache.put(1L, "value");
+
+    for (int i = 0; i < 5; i++) {
+      advance(Duration.ofSeconds(50));
+      assertThat(cache.get(1L)).isEqualTo("value");
+    }
+    advance(Duration.ofMinutes(1));
+    assertThat(cache.get(1L)).isNull();
+  }
+
+  @Test
+  void expiredEntriesAreCleanedUpWithoutBeingRead() {
+    SimpleCache<Long, String> cache = SimpleCache.<Long, String>builder()
+        .maximumSize(10)
+        .expireAfterWrite(Duration.ofMinutes(1))
+        .ticker(time::get)
+        .build();
+    for (long key = 1; key <= 5; key++) {
+      cache.put(key, "value " + key);
+    }
+
+    advance(Duration.ofMinutes(2));
+    cache.put(6L, "value 6");
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.stats().evictionCount()).isEqualTo(5);
+  }
+
+  @Test
+  void staleEntryIsServedWhileRefreshing() {
+    AtomicInteger refreshes = new AtomicInteger();
+    SimpleCache<Long, String> cache = SimpleCache.<Long, String>builder()
+        .maximumSize(10)
+        .refreshAfterWrite(Duration.ofMinutes(1),
+            key -> "refreshed " + refreshes.incrementAndGet())
+        .executor(Runnable::run)
+        .ticker(time::get)
+        .build();
+    cache.put(1L, "value");
+
+    advance(Duration.ofSeconds(59));
+    assertThat(cache.get(1L)).isEqualTo("value");
+    assertThat(refreshes).hasValue(0);
+
+    advance(Duration.ofSeconds(1));
+    assertThat(cache.get(1L)).isEqualTo("value");
+    assertThat(cache.get(1L)).isEqualTo("refreshed 1");
+    assertThat(refreshes).hasValue(1);
+  }
+
+  @Test
+  void refreshReturningNullRemovesEntry() {
+    SimpleCache<Long, String> cache = SimpleCache.<Long, String>builder()
+        .maximumSize(10)
+        .refreshAfterWrite(Duration.ofMinutes(1), key -> null)
+        .executor(Runnable::run)
+        .ticker(time::get)
+        .build();
+    cache.put(1L, "value");
+
+    advance(Duration.ofMinutes(1));
+    assertThat(cache.get(1L)).isEqualTo("value");
+    assertThat(cache.get(1L)).isNull();
+  }
+
+  @Test
+  void sizeIsBoundedOnceBuffersAreDrained() throws Exception {
+    SimpleCache<Long, String> cache = new SimpleCache<>(100);
+
+    runConcurrently(4, thread -> {
+      for (long key = 0; key < 10_000; key++) {
+        cache.put(thread * 10_000L + key, "value");
+      }
+    });
+    cache.put(-1L, "value");
+
+    assertThat(cache.size()).isEqualTo(100);
+    assertThat(cache.weightedSize()).isEqualTo(100);
+    assertThat(cache.stats().evictionCount()).isEqualTo(40_001 - 100);
+  }
+
+  @Test
+  void weightIsBoundedOnceBuffersAreDrained() throws Exception {
+    SimpleCache<Long, String> cache = SimpleCache.<Long, String>builder()
+        .maximumWeight(1_000)
+        .weigher((key, value) -> value.length())
+        .build();
+
+    runConcurrently(4, thread -> {
+      for (long key = 0; key < 10_000; key++) {
+        cache.put(thread * 10_000L + key, "x".repeat(1 + (int) (key % 20)));
+      }
+    });
+    cache.put(-1L, "x".repeat(2_000));
+
+    assertThat(cache.weightedSize()).isBetween(1L, 1_000L);
+    assertThat(cache.get(-1L)).isNull();
+    long total = 0;
+    for (Long key : cache.keys()) {
+      total += cache.peek(key).length();
+    }
+    assertThat(total).isEqualTo(cache.weightedSize());
+  }
+
+  private void advance(Duration duration) {
+    time.addAndGet(duration.toNanos());
+  }
+
+  private void runConcurrently(int threads, ThreadTask task) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      int thread = i;
+      futures.add(executor.submit(() -> {
+        start.await();
+        task.run(thread);
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Waits until the thread blocks, which a caller joining an in-flight load
+   * does until the load completes.
+   */
+  private static void awaitWaiting(AtomicReference<Thread> thread) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+    while (thread.get() == null || thread.get().getState() != Thread.State.WAITING) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Second caller did not wait for the load");
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  private interface ThreadTask {
+    void run(int thread);
+  }
+
+  /**
+   * Loader that blocks until released, so that the test can act while a load
+   * is in flight.
+   */
+  private static final class BlockingLoader implements Function<Long, String> {
+    private final String value;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private BlockingLoader(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public String apply(Long key) {
+      calls.incrementAndGet();
+      started.countDown();
+      try {
+        released.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return value;
+    }
+
+    void awaitStarted() throws InterruptedException {
+      assertThat(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+    }
+
+    void release() {
+      released.countDown();
+    }
+
+    int calls() {
+      return calls.get();
+    }
+  }
+}
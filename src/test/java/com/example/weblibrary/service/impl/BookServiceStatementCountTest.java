@@ -0,0 +1,146 @@
+package com.example.weblibrary.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.weblibrary.mapper.AuthorMapperImpl;
+import com.example.weblibrary.mapper.BookMapperImpl;
+import com.example.weblibrary.model.Author;
+import com.example.weblibrary.model.Book;
+import com.example.weblibrary.model.dto.BookDtoResponse;
+import com.example.weblibrary.model.dto.CursorPage;
+import com.example.weblibrary.repository.StatementCounter;
+import com.example.weblibrary.service.KeysetPager;
+import com.example.weblibrary.service.cache.InProcessInvalidationBus;
+import com.example.weblibrary.service.cache.InvalidationBus;
+import com.example.weblibrary.service.cache.SimpleCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({StatementCounter.Config.class, BookServiceStatementCountTest.Config.class,
+    BookServiceImpl.class, BookMapperImpl.class, AuthorMapperImpl.class, KeysetPager.class})
+class BookServiceStatementCountTest {
+  private static final int BOOKS = 30;
+  private static final int AUTHORS_PER_BOOK = 2;
+
+  @Autowired
+  private BookServiceImpl bookService;
+
+  @Autowired
+  private TestEntityManager entityManager;
+
+  @Autowired
+  private StatementCounter statements;
+
+  @MockBean
+  private SuggestServiceImpl suggestService;
+
+  @MockBean
+  private FacetServiceImpl facetService;
+
+  private final List<Long> ids = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    for (int i = 0; i < BOOKS; i++) {
+      Book book = new Book(null, "Book " + i, "Publisher", "isbn-" + i, 100 + i,
+          i % 2 == 0 ? "Fantasy" : "Drama", LocalDate.of(2000, 1, 1).plusDays(i), "English",
+          "Description " + i, null, null, 4.0);
+      for (int j = 0; j < AUTHORS_PER_BOOK; j++) {
+        book.getAuthors().add(new Author(null, "Name " + i + "-" + j, "Surname", null,
+            null, null, null, null, null));
+      }
+      entityManager.persist(book);
+      ids.add(book.getId());
+    }
+    entityManager.flush();
+    entityManager.clear();
+    statements.reset();
+  }
+
+  @Test
+  void catalogIsOneStatementThenServedFromCache() {
+    List<BookDtoResponse> books = bookService.getAll();
+    bookService.getAll();
+
+    assertThat(books).hasSize(BOOKS)
+        .allSatisfy(book -> assertThat(book.authors()).hasSize(AUTHORS_PER_BOOK));
+    assertThat(statements.count()).isEqualTo(1);
+  }
+
+  @Test
+  void genreAndTitleListsAreOneStatementEach() {
+    assertThat(bookService.getByGenre("Fantasy")).hasSize(BOOKS / 2)
+        .allSatisfy(book -> assertThat(book.authors()).hasSize(AUTHORS_PER_BOOK));
+    assertThat(bookService.getBookByTitle("book 1")).isNotEmpty();
+
+    assertThat(statements.count()).isEqualTo(2);
+  }
+
+  @Test
+  void bookDetailIsOneStatementThenServedFromCache() {
+    BookDtoResponse book = bookService.getById(ids.get(0));
+    bookService.getById(ids.get(0));
+
+    assertThat(book.authors()).hasSize(AUTHORS_PER_BOOK);
+    assertThat(statements.count()).isEqualTo(1);
+  }
+
+  @Test
+  void batchReadsOnlyMissingBooksInOneStatement() {
+    bookService.getById(ids.get(0));
+    List<BookDtoResponse> books = bookService.getByIds(ids.subList(0, 10));
+
+    assertThat(books).hasSize(10)
+        .allSatisfy(book -> assertThat(book.authors()).hasSize(AUTHORS_PER_BOOK));
+    assertThat(statements.count()).isEqualTo(2);
+  }
+
+  @Test
+  void keysetPageLoadsAuthorsInOneBatch() {
+    CursorPage<BookDtoResponse> page = bookService.getPage(null, 20);
+
+    assertThat(page.items()).hasSize(20)
+        .allSatisfy(book -> assertThat(book.authors()).hasSize(AUTHORS_PER_BOOK));
+    assertThat(statements.count()).isEqualTo(2);
+  }
+
+  @TestConfiguration
+  static class Config {
+    @Bean
+    SimpleCache<Long, BookDtoResponse> bookCache() {
+      return new SimpleCache<>(100);
+    }
+
+    @Bean
+    SimpleCache<String, List<BookDtoResponse>> bookListCache() {
+      return new SimpleCache<>(100);
+    }
+
+    @Bean
+    SimpleCache<String, CursorPage<BookDtoResponse>> bookPageCache() {
+      return new SimpleCache<>(100);
+    }
+
+    @Bean
+    InvalidationBus invalidationBus() {
+      return new InProcessInvalidationBus();
+    }
+
+    @Bean
+    ObjectMapper objectMapper() {
+      return new ObjectMapper();
+    }
+  }
+}